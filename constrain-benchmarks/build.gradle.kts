@@ -0,0 +1,23 @@
+plugins {
+    java
+    id("me.champeau.jmh")
+}
+
+dependencies {
+    jmh(project(":constrain-lib"))
+    jmh(gradleApi())
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    benchmarkMode.set(listOf("thrpt"))
+    // Report the allocation rate next to the throughput
+    profilers.add("gc")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // Run a subset of the benchmarks with eg. `-PjmhIncludes=ConstraintsJsonReaderBenchmark`
+    providers.gradleProperty("jmhIncludes").forUseAtConfigurationTime().orNull?.let {
+        includes.add(it)
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.benchmarks;
+
+import org.gradle.dependency.constrain.lib.model.LoadedConstraint;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
+import org.gradle.dependency.constrain.lib.serialize.ConstrainFileLoader;
+import org.gradle.dependency.constrain.lib.serialize.ConstraintsBinaryFormat;
+import org.gradle.dependency.constrain.lib.serialize.InMemoryConstraintsCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Measures loading the same constraints from a {@code gradle/dependency-constraints} file in each of the supported
+ * formats, the binary file being memory-mapped.
+ * <p>
+ * The in-memory cache is cleared before every invocation and the binary cache is disabled, so that every file is read.
+ */
+@State(Scope.Benchmark)
+public class ConstraintsFormatLoaderBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"json", "xml", "bin"})
+    public String format;
+
+    private File gradleDirectory;
+
+    @Setup
+    public void setup() throws IOException {
+        gradleDirectory = Files.createTempDirectory("constrain-benchmark").toFile();
+        final File constraintsFile = new File(gradleDirectory, "dependency-constraints." + format);
+        switch (format) {
+            case "json":
+                Files.write(constraintsFile.toPath(), SyntheticConstraints.json(size));
+                break;
+            case "xml":
+                Files.write(constraintsFile.toPath(), SyntheticConstraints.xml(size));
+                break;
+            case "bin":
+                final LoadedConstraints.Builder builder = LoadedConstraints.builder();
+                for (LoadedConstraint constraint : SyntheticConstraints.loadedConstraints(size)) {
+                    builder.addConstraint(constraint);
+                }
+                ConstraintsBinaryFormat.write(builder.build(), constraintsFile);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown format " + format);
+        }
+    }
+
+    @Benchmark
+    public LoadedConstraints loadConstraints() {
+        InMemoryConstraintsCache.getInstance().clear();
+        return ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory);
+    }
+}
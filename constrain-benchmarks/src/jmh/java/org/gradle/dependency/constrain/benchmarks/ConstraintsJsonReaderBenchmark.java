@@ -0,0 +1,44 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.dependency.constrain.benchmarks;
+
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
+import org.gradle.dependency.constrain.lib.serialize.ConstraintsJsonReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+
+@State(Scope.Benchmark)
+public class ConstraintsJsonReaderBenchmark {
+    @Param({"10", "1000", "10000", "100000"})
+    public int size;
+
+    private byte[] json;
+
+    @Setup
+    public void setup() {
+        json = SyntheticConstraints.json(size);
+    }
+
+    @Benchmark
+    public LoadedConstraints readFromJson() {
+        return ConstraintsJsonReader.readFromJson(new ByteArrayInputStream(json));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.benchmarks;
+
+import org.gradle.dependency.constrain.lib.DependencyConstrainException;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
+import org.gradle.dependency.constrain.lib.serialize.ConstraintsJsonReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Measures the fixed cost of loading small constraint files, the way several included builds of a build running
+ * in the same daemon each load their own constraints.
+ * <p>
+ * With small files, the cost is dominated by the setup of the reader (object mapper, schema, pretty printer)
+ * rather than by the parsing itself.
+ */
+@State(Scope.Benchmark)
+public class ConstraintsJsonReaderSetupBenchmark {
+    @Param({"1", "5", "20"})
+    public int includedBuilds;
+
+    private byte[] json;
+    private byte[] misformattedJson;
+
+    @Setup
+    public void setup() {
+        json = SyntheticConstraints.json(10);
+        misformattedJson = new String(json, StandardCharsets.UTF_8)
+            .replace("\"version\": ", "\"version\":")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void loadSmallFiles(Blackhole blackhole) {
+        for (int i = 0; i < includedBuilds; i++) {
+            final LoadedConstraints constraints = ConstraintsJsonReader.readFromJson(new ByteArrayInputStream(json));
+            blackhole.consume(constraints);
+        }
+    }
+
+    /**
+     * Files that aren't formatted correctly go through the full validation, including the schema.
+     */
+    @Benchmark
+    public void reportMisformattedFiles(Blackhole blackhole) {
+        for (int i = 0; i < includedBuilds; i++) {
+            try {
+                ConstraintsJsonReader.readFromJson(new ByteArrayInputStream(misformattedJson));
+            } catch (DependencyConstrainException ex) {
+                blackhole.consume(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.benchmarks;
+
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionParser;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraint;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
+import org.gradle.dependency.constrain.lib.model.RejectedVersionsMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the {@link RejectedVersionsMatcher} with parsing the rejected versions of the queried module with Gradle for
+ * every coordinate, for a batch of {@code coordinates} coordinates of which about half are constrained modules.
+ */
+@State(Scope.Benchmark)
+public class RejectedVersionsMatcherBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"1000", "10000"})
+    public int coordinates;
+
+    private LoadedConstraints loadedConstraints;
+    private RejectedVersionsMatcher matcher;
+    private VersionSelectorScheme versionSelectorScheme;
+    private List<String> queries;
+
+    @Setup
+    public void setup() {
+        final LoadedConstraints.Builder builder = LoadedConstraints.builder();
+        for (LoadedConstraint constraint : SyntheticConstraints.loadedConstraints(size)) {
+            builder.addConstraint(constraint);
+        }
+        loadedConstraints = builder.build();
+        matcher = RejectedVersionsMatcher.compile(loadedConstraints);
+        versionSelectorScheme = new DefaultVersionSelectorScheme(new DefaultVersionComparator(), new VersionParser());
+        final Random random = new Random(42);
+        queries = new ArrayList<>(coordinates);
+        for (int i = 0; i < coordinates; i++) {
+            // Every other coordinate is a module without constraints
+            final int index = random.nextInt(size) + (i % 2 == 0 ? 0 : size);
+            final String version = "1." + random.nextInt(8) + "." + random.nextInt(3);
+            queries.add(SyntheticConstraints.group(index) + ":" + SyntheticConstraints.name(index) + ":" + version);
+        }
+    }
+
+    @Benchmark
+    public RejectedVersionsMatcher compile() {
+        return RejectedVersionsMatcher.compile(loadedConstraints);
+    }
+
+    @Benchmark
+    public boolean[] compiledMatcher() {
+        return matcher.areRejected(queries);
+    }
+
+    @Benchmark
+    public boolean[] naiveRangeParsing() {
+        final boolean[] rejected = new boolean[queries.size()];
+        for (int i = 0; i < rejected.length; i++) {
+            final String[] coordinate = queries.get(i).split(":");
+            for (LoadedConstraint constraint : loadedConstraints.getIndex().getConstraintsForModule(coordinate[0], coordinate[1])) {
+                for (String selector : constraint.getRejected()) {
+                    if (versionSelectorScheme.parseSelector(selector).accept(coordinate[2])) {
+                        rejected[i] = true;
+                    }
+                }
+            }
+        }
+        return rejected;
+    }
+}
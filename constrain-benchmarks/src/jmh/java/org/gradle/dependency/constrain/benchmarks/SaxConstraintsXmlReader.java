@@ -0,0 +1,276 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.benchmarks;
+
+import org.gradle.dependency.constrain.lib.DependencyConstrainException;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraint;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.DefaultHandler2;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillClose;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The SAX reader the {@link org.gradle.dependency.constrain.lib.serialize.ConstraintsXmlReader} replaced, kept as the
+ * baseline of the benchmarks. It creates a parser factory for every read and a string for every chunk of text.
+ * The string pool of the library isn't visible here, the strings are deduplicated with a map instead.
+ */
+final class SaxConstraintsXmlReader {
+    private static final String CONSTRAINTS = "constraints";
+    private static final String CONSTRAINT = "constraint";
+    private static final String GROUP = "group";
+    private static final String NAME = "name";
+    private static final String SUGGESTED_VERSION = "suggested-version";
+    private static final String REJECTED = "rejected";
+    private static final String REJECT = "reject";
+    private static final String BECAUSE = "because";
+    private static final String ADVISORY = "advisory";
+
+    /**
+     * Reads in the constraints from the passed in input stream.
+     */
+    static LoadedConstraints readFromXml(@WillClose InputStream in) {
+        LoadedConstraints.Builder builder = LoadedConstraints.builder();
+        readFromXml(in, builder);
+        return builder.build();
+    }
+
+    private static void readFromXml(
+        @WillClose InputStream in, LoadedConstraints.Builder constraintsBuilder
+    ) {
+        try (InputStream inputStream = in) {
+            SAXParser saxParser = createSecureParser();
+            XMLReader xmlReader = saxParser.getXMLReader();
+            ConstraintsHandler handler = new ConstraintsHandler(constraintsBuilder);
+            xmlReader.setProperty("http://xml.org/sax/properties/lexical-handler", handler);
+            xmlReader.setContentHandler(handler);
+            xmlReader.parse(new InputSource(inputStream));
+        } catch (IOException
+            | SAXException
+            | ParserConfigurationException
+            | DependencyConstrainException e) {
+            throw new DependencyConstrainException("Unable to read dependency constraints", e);
+        }
+    }
+
+    private static SAXParser createSecureParser() throws ParserConfigurationException, SAXException {
+        SAXParserFactory spf = SAXParserFactory.newInstance();
+        spf.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        spf.setFeature("http://xml.org/sax/features/namespaces", false);
+        spf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        return spf.newSAXParser();
+    }
+
+    /**
+     * Handler that parses the constraints.xml file building the {@link LoadedConstraints} via the
+     * {@link LoadedConstraints.Builder}.
+     */
+    private static class ConstraintsHandler extends DefaultHandler2 {
+        private final LoadedConstraints.Builder constraintsBuilder;
+        private final Map<String, String> stringPool = new HashMap<>();
+        private LoadedConstraint.Builder currentConstraintBuilder;
+        private boolean inConstraints;
+        private boolean inConstraint;
+        private boolean inGroup;
+        private boolean inName;
+        private boolean inSuggestedVersion;
+        private boolean inRejected;
+        private boolean inReject;
+        private boolean inBecause;
+        private String currentGroup;
+        private String currentName;
+        private String currentSuggestedVersion;
+        private String currentReject;
+        private String currentBecause;
+
+        ConstraintsHandler(LoadedConstraints.Builder constraintsBuilder) {
+            this.constraintsBuilder = constraintsBuilder;
+        }
+
+        @Nonnull
+        private static String createOrAppend(@Nullable String current, @Nonnull String append) {
+            return current == null ? append : current + append;
+        }
+
+        @Nullable
+        private String pooled(@Nullable String value) {
+            return value == null ? null : stringPool.computeIfAbsent(value, Function.identity());
+        }
+
+        private static void assertContext(boolean test, String innerTag, String outerTag) {
+            assertContext(test, "<" + innerTag + "> must be found under the <" + outerTag + "> tag");
+        }
+
+        private static void assertContext(boolean test, String message) {
+            if (!test) {
+                throw new DependencyConstrainException("Invalid dependency constraints file: " + message);
+            }
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (qName) {
+                case CONSTRAINTS:
+                    inConstraints = true;
+                    break;
+                case CONSTRAINT:
+                    assertContext(inConstraints, CONSTRAINT, CONSTRAINTS);
+                    inConstraint = true;
+                    assert currentConstraintBuilder == null : "`currentConstraintBuilder` already defined";
+                    currentConstraintBuilder = LoadedConstraint.builder();
+                    break;
+                case GROUP:
+                    assertContext(inConstraint, GROUP, CONSTRAINT);
+                    inGroup = true;
+                    break;
+                case NAME:
+                    assertContext(inConstraint, NAME, CONSTRAINT);
+                    inName = true;
+                    break;
+                case SUGGESTED_VERSION:
+                    assertContext(inConstraint, SUGGESTED_VERSION, CONSTRAINT);
+                    inSuggestedVersion = true;
+                    break;
+                case REJECTED:
+                    assertContext(inConstraint, REJECTED, CONSTRAINT);
+                    inRejected = true;
+                    break;
+                case REJECT:
+                    assertContext(inRejected, REJECT, REJECTED);
+                    inReject = true;
+                    break;
+                case BECAUSE:
+                    assertContext(inConstraint, BECAUSE, CONSTRAINT);
+                    maybeExtractAdvisory(attributes);
+                    inBecause = true;
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (qName) {
+                case CONSTRAINTS:
+                    inConstraints = false;
+                    break;
+                case CONSTRAINT:
+                    inConstraint = false;
+                    assertConstraintValid();
+                    constraintsBuilder.addConstraint(currentConstraintBuilder.build());
+                    currentConstraintBuilder = null;
+                    break;
+                case GROUP:
+                    currentConstraintBuilder.group(pooled(currentGroup));
+                    currentGroup = null;
+                    inGroup = false;
+                    break;
+                case NAME:
+                    currentConstraintBuilder.name(pooled(currentName));
+                    currentName = null;
+                    inName = false;
+                    break;
+                case SUGGESTED_VERSION:
+                    currentConstraintBuilder.suggestedVersion(pooled(currentSuggestedVersion));
+                    currentSuggestedVersion = null;
+                    inSuggestedVersion = false;
+                    break;
+                case REJECTED:
+                    inRejected = false;
+                    break;
+                case REJECT:
+                    currentConstraintBuilder.addReject(pooled(currentReject));
+                    inReject = false;
+                    currentReject = null;
+                    break;
+                case BECAUSE:
+                    currentConstraintBuilder.because(pooled(currentBecause));
+                    inBecause = false;
+                    currentBecause = null;
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            // This method could be called multiple times for the same subset of a string
+            if (inGroup) {
+                currentGroup = createOrAppend(currentGroup, new String(ch, start, length));
+            }
+            if (inName) {
+                currentName = createOrAppend(currentName, new String(ch, start, length));
+            }
+            if (inSuggestedVersion) {
+                currentSuggestedVersion =
+                    createOrAppend(currentSuggestedVersion, new String(ch, start, length));
+            }
+            if (inReject) {
+                currentReject = createOrAppend(currentReject, new String(ch, start, length));
+            }
+            if (inBecause) {
+                currentBecause = createOrAppend(currentBecause, new String(ch, start, length));
+            }
+        }
+
+        /**
+         * Asserts that the {@code <constraint>...</constraint>} element is well-formed.
+         */
+        private void assertConstraintValid() {
+            assert currentConstraintBuilder != null : "`currentConstraintBuilder` not defined";
+            assertContext(
+                currentConstraintBuilder.isGroupSet(),
+                String.format("<%s> tag must appear under the <%s> tag", GROUP, CONSTRAINT));
+            assertContext(
+                currentConstraintBuilder.isNameSet(),
+                String.format("<%s> tag must appear under the <%s> tag", NAME, CONSTRAINT));
+            assertContext(
+                currentConstraintBuilder.isSuggestedVersionSet(),
+                String.format("<%s> tag must appear under the <%s> tag", SUGGESTED_VERSION, CONSTRAINT));
+            assertContext(
+                currentConstraintBuilder.isBecauseSet(),
+                String.format("<%s> tag must appear under the <%s> tag", BECAUSE, CONSTRAINT));
+        }
+
+        private void maybeExtractAdvisory(Attributes attributes) {
+            String advisory = getNullableAttribute(attributes, ADVISORY);
+            if (advisory != null) {
+                if (currentBecause == null) {
+                    currentBecause = advisory + ": ";
+                } else {
+                    currentBecause = advisory + ": " + currentBecause;
+                }
+            }
+        }
+
+        @Nullable
+        private String getNullableAttribute(Attributes attributes, String name) {
+            return attributes.getValue(name);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.benchmarks;
+
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
+import org.gradle.dependency.constrain.lib.serialize.ConstrainFileLoader;
+import org.gradle.dependency.constrain.lib.serialize.InMemoryConstraintsCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Measures loading the same constraints split into a growing number of shards in the
+ * {@code gradle/dependency-constraints.d} directory, which are parsed in parallel.
+ * <p>
+ * The in-memory cache is cleared before every invocation and the binary cache is disabled, so that every shard is parsed.
+ */
+@State(Scope.Benchmark)
+public class ShardedConstraintsLoaderBenchmark {
+    @Param({"100000"})
+    public int size;
+
+    @Param({"1", "4", "16"})
+    public int shards;
+
+    private File gradleDirectory;
+
+    @Setup
+    public void setup() throws IOException {
+        gradleDirectory = Files.createTempDirectory("constrain-benchmark").toFile();
+        final File shardsDirectory = new File(gradleDirectory, "dependency-constraints.d");
+        Files.createDirectories(shardsDirectory.toPath());
+        for (int shard = 0; shard < shards; shard++) {
+            final int from = (int) ((long) size * shard / shards);
+            final int to = (int) ((long) size * (shard + 1) / shards);
+            final File shardFile = new File(shardsDirectory, String.format("shard-%02d.json", shard));
+            Files.write(shardFile.toPath(), SyntheticConstraints.json(from, to));
+        }
+    }
+
+    @Benchmark
+    public LoadedConstraints loadShards() {
+        InMemoryConstraintsCache.getInstance().clear();
+        return ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.benchmarks;
+
+import org.gradle.dependency.constrain.lib.model.LoadedConstraint;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates synthetic constraint sets of a given size, sorted and formatted the way the readers expect them.
+ */
+public final class SyntheticConstraints {
+    private static final int MODULES_PER_GROUP = 10;
+
+    private SyntheticConstraints() {
+        // Utility class
+    }
+
+    public static String group(int index) {
+        return String.format("org.example.group%06d", index / MODULES_PER_GROUP);
+    }
+
+    public static String name(int index) {
+        return String.format("module-%02d", index % MODULES_PER_GROUP);
+    }
+
+    public static String suggestedVersion(int index) {
+        return "1." + (index % 7) + ".1";
+    }
+
+    public static String rejected(int index) {
+        return "[1.0,1." + (index % 7) + ".0]";
+    }
+
+    public static String advisoryIdentifier(int index) {
+        return String.format("CVE-2021-%05d", index);
+    }
+
+    public static String reason(int index) {
+        return "Synthetic vulnerability number " + index;
+    }
+
+    private static String paddedReason(int index, int reasonLength) {
+        final StringBuilder reason = new StringBuilder(reason(index));
+        while (reason.length() < reasonLength) {
+            reason.append(", affecting the versions up to ").append(rejected(index));
+        }
+        return reason.toString();
+    }
+
+    public static List<LoadedConstraint> loadedConstraints(int size) {
+        final List<LoadedConstraint> constraints = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            constraints.add(
+                LoadedConstraint
+                    .builder()
+                    .group(group(i))
+                    .name(name(i))
+                    .suggestedVersion(suggestedVersion(i))
+                    .addReject(rejected(i))
+                    .because("[" + advisoryIdentifier(i) + "]: " + reason(i))
+                    .build()
+            );
+        }
+        return constraints;
+    }
+
+    public static byte[] json(int size) {
+        return json(0, size);
+    }
+
+    /**
+     * Generates the constraints from index {@code from} (inclusive) to index {@code to} (exclusive), eg. for a shard.
+     */
+    public static byte[] json(int from, int to) {
+        final StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"version\": \"1.0.0\",\n");
+        json.append("  \"dependencyConstraints\": [\n");
+        for (int i = from; i < to; i++) {
+            json.append("    {\n");
+            json.append("      \"group\": \"").append(group(i)).append("\",\n");
+            json.append("      \"name\": \"").append(name(i)).append("\",\n");
+            json.append("      \"suggestedVersion\": \"").append(suggestedVersion(i)).append("\",\n");
+            json.append("      \"rejectedVersions\": [\n");
+            json.append("        \"").append(rejected(i)).append("\"\n");
+            json.append("      ],\n");
+            json.append("      \"because\": {\n");
+            json.append("        \"advisoryIdentifiers\": [\n");
+            json.append("          \"").append(advisoryIdentifier(i)).append("\"\n");
+            json.append("        ],\n");
+            json.append("        \"reason\": \"").append(reason(i)).append("\"\n");
+            json.append("      }\n");
+            json.append(i == to - 1 ? "    }\n" : "    },\n");
+        }
+        json.append("  ]\n");
+        json.append("}\n");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static byte[] xml(int size) {
+        return xml(size, 0);
+    }
+
+    /**
+     * Generates the constraints with reasons padded to at least {@code reasonLength} characters, eg. to read texts
+     * reported by the XML parsers in many chunks.
+     */
+    public static byte[] xml(int size, int reasonLength) {
+        final StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append("<constraints>\n");
+        for (int i = 0; i < size; i++) {
+            xml.append("    <constraint>\n");
+            xml.append("        <group>").append(group(i)).append("</group>\n");
+            xml.append("        <name>").append(name(i)).append("</name>\n");
+            xml.append("        <suggested-version>").append(suggestedVersion(i)).append("</suggested-version>\n");
+            xml.append("        <rejected>\n");
+            xml.append("            <reject>").append(rejected(i)).append("</reject>\n");
+            xml.append("        </rejected>\n");
+            xml.append("        <because advisory=\"").append(advisoryIdentifier(i)).append("\">").append(paddedReason(i, reasonLength)).append("</because>\n");
+            xml.append("    </constraint>\n");
+        }
+        xml.append("</constraints>\n");
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
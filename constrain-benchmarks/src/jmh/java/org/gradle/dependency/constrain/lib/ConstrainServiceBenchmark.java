@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.dependency.constrain.lib;
+
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.DependencyConstraint;
+import org.gradle.dependency.constrain.benchmarks.SyntheticConstraints;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraint;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Measures the creation of the Gradle dependency constraints and their application to a configuration.
+ * Lives in the {@code lib} package to access {@link DefaultConstrainService.Factory} directly.
+ */
+@State(Scope.Benchmark)
+public class ConstrainServiceBenchmark {
+    @Param({"10", "1000", "10000", "100000"})
+    public int size;
+
+    private Project project;
+    private DefaultConstrainService.Factory factory;
+    private DependencyConstraintFactory constraintFactory;
+    private DependencyConstraintFactory reusingConstraintFactory;
+    private ConstrainService constrainService;
+    private ConstrainService lazyConstrainService;
+
+    @Setup
+    public void setup() throws IOException {
+        project = ProjectBuilder.builder().withProjectDir(Files.createTempDirectory("constrain-benchmark").toFile()).build();
+        final LoadedConstraints.Builder builder = LoadedConstraints.builder();
+        for (LoadedConstraint constraint : SyntheticConstraints.loadedConstraints(size)) {
+            builder.addConstraint(constraint);
+        }
+        factory = new DefaultConstrainService.Factory(builder.build());
+        constraintFactory = project.getDependencies().getConstraints()::create;
+        final DependencyConstraint reusedConstraint = project.getDependencies().getConstraints().create("org.example:reused");
+        reusingConstraintFactory = (notation, configureAction) -> reusedConstraint;
+        constrainService = factory.create(constraintFactory);
+        lazyConstrainService = factory.createLazy(constraintFactory);
+    }
+
+    @Benchmark
+    public ConstrainService create() {
+        return factory.create(constraintFactory);
+    }
+
+    /**
+     * Creates the constraints with a factory returning the same constraint, so that the allocation rate reported by the
+     * GC profiler is only the one of the constrain service, and not the one of Gradle creating the constraints.
+     * Once the constraints are prepared, {@code gc.alloc.rate.norm} should be close to the reference to each constraint
+     * in the created list, ie. 4 or 8 bytes per constraint.
+     */
+    @Benchmark
+    public ConstrainService createWithReusedConstraint() {
+        return factory.create(reusingConstraintFactory);
+    }
+
+    @Benchmark
+    public Configuration doConstrain(FreshConfiguration freshConfiguration) {
+        constrainService.doConstrain(freshConfiguration.configuration);
+        return freshConfiguration.configuration;
+    }
+
+    @Benchmark
+    public Configuration doConstrainLazily(FreshConfiguration freshConfiguration) {
+        lazyConstrainService.doConstrain(freshConfiguration.configuration);
+        return freshConfiguration.configuration;
+    }
+
+    /**
+     * A fresh configuration is required for every invocation, as the constraints are only added once to a configuration.
+     */
+    @State(Scope.Thread)
+    public static class FreshConfiguration {
+        private Configuration configuration;
+
+        @Setup(Level.Invocation)
+        public void setup(ConstrainServiceBenchmark benchmark) {
+            configuration = benchmark.project.getConfigurations().detachedConfiguration();
+        }
+    }
+}
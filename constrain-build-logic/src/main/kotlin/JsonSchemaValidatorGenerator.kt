@@ -0,0 +1,313 @@
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.CacheableTask
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFile
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Generate a Java validator for the JSON schema, so that the schema doesn't need to be interpreted at runtime.
+ *
+ * Only the subset of JSON schema used by the dependency constraints schema is supported, the generation fails on any
+ * other keyword. The messages match the ones of the networknt json-schema-validator.
+ */
+@CacheableTask
+abstract class JsonSchemaValidatorGenerator : DefaultTask() {
+    init {
+        description = "Generate a Java validator from the JSON schema"
+    }
+
+    @get:InputFile
+    @get:PathSensitive(PathSensitivity.NONE)
+    abstract val schemaFile: RegularFileProperty
+
+    @get:Input
+    abstract val packageName: Property<String>
+
+    @get:Input
+    abstract val className: Property<String>
+
+    @get:OutputDirectory
+    abstract val outputDirectory: DirectoryProperty
+
+    @TaskAction
+    fun generate() {
+        val theSchemaFile = schemaFile.get().asFile
+        val schema = ObjectMapper(YAMLFactory()).readTree(theSchemaFile)
+        val source = JsonSchemaValidatorSource(schema, theSchemaFile.name, packageName.get(), className.get()).generate()
+        val theOutputDirectory = outputDirectory.get().asFile
+        theOutputDirectory.deleteRecursively()
+        val outputFile = theOutputDirectory.resolve(packageName.get().replace('.', '/')).resolve("${className.get()}.java")
+        outputFile.parentFile.mkdirs()
+        outputFile.writeText(source)
+    }
+}
+
+internal class JsonSchemaValidatorSource(
+    private val root: JsonNode,
+    private val schemaName: String,
+    private val packageName: String,
+    private val className: String
+) {
+    private companion object {
+        val annotationKeywords = setOf("\$schema", "\$comment", "title", "description", "default", "examples")
+        val supportedKeywords = setOf("\$ref", "\$defs", "type", "properties", "additionalProperties", "items", "required")
+        val supportedTypes = setOf("object", "array", "string", "number", "integer", "boolean", "null")
+        const val definitionReferencePrefix = "#/\$defs/"
+    }
+
+    private val pendingMethods = ArrayDeque<Triple<String, JsonNode, String>>()
+    private val scheduledMethods = mutableSetOf<String>()
+
+    fun generate(): String {
+        val methods = StringBuilder()
+        schedule("validateRoot", root, "#")
+        while (pendingMethods.isNotEmpty()) {
+            val (methodName, schema, schemaPath) = pendingMethods.removeFirst()
+            methods.append("\n").append(generateMethod(methodName, schema, schemaPath))
+        }
+        return header() + methods + footer()
+    }
+
+    private fun schedule(methodName: String, schema: JsonNode, schemaPath: String) {
+        if (scheduledMethods.add(methodName)) {
+            pendingMethods.addLast(Triple(methodName, schema, schemaPath))
+        }
+    }
+
+    private fun generateMethod(methodName: String, schema: JsonNode, schemaPath: String): String {
+        if (!schema.isObject) {
+            unsupported("Schema at $schemaPath must be an object")
+        }
+        schema.fieldNames().forEach { keyword ->
+            if (keyword !in annotationKeywords && keyword !in supportedKeywords) {
+                unsupported("Unsupported keyword '$keyword' at $schemaPath")
+            }
+            if (keyword == "\$defs" && schemaPath != "#") {
+                unsupported("Definitions are only supported at the root of the schema, found at $schemaPath")
+            }
+        }
+        val body = StringBuilder()
+        // The networknt validator evaluates `properties` first, then the other keywords in alphabetical order
+        schema.get("properties")?.let { body.append(generateProperties(methodName, it, schemaPath)) }
+        schema.get("\$ref")?.let { body.append(generateReference(it, schemaPath)) }
+        schema.get("additionalProperties")?.let { body.append(generateAdditionalProperties(schema, it, schemaPath)) }
+        schema.get("items")?.let { body.append(generateItems(methodName, it, schemaPath)) }
+        schema.get("required")?.let { body.append(generateRequired(it, schemaPath)) }
+        schema.get("type")?.let { body.append(generateType(it, schemaPath)) }
+        return """
+            |    private static void $methodName(JsonNode node, String at, List<String> messages) {
+            |${body.toString().trimEnd('\n')}
+            |    }
+            |""".trimMargin()
+    }
+
+    private fun generateProperties(methodName: String, properties: JsonNode, schemaPath: String): String {
+        val code = StringBuilder()
+        var index = 0
+        properties.fields().forEach { (name, propertySchema) ->
+            val propertyMethodName = methodName + javaIdentifierPart(name)
+            schedule(propertyMethodName, propertySchema, "$schemaPath/properties/$name")
+            code.append(
+                """
+                |        final JsonNode property$index = node.get(${javaString(name)});
+                |        if (property$index != null) {
+                |            $propertyMethodName(property$index, at + ${javaString(".$name")}, messages);
+                |        }
+                |""".trimMargin()
+            )
+            index++
+        }
+        return code.toString()
+    }
+
+    private fun generateReference(reference: JsonNode, schemaPath: String): String {
+        val target = reference.asText()
+        if (!target.startsWith(definitionReferencePrefix)) {
+            unsupported("Only references to definitions are supported, found '$target' at $schemaPath")
+        }
+        val definitionName = target.removePrefix(definitionReferencePrefix)
+        val definition = root.get("\$defs")?.get(definitionName)
+            ?: unsupported("Unable to resolve reference '$target' at $schemaPath")
+        val definitionMethodName = "validate" + javaIdentifierPart(definitionName)
+        schedule(definitionMethodName, definition, target)
+        return "        $definitionMethodName(node, at, messages);\n"
+    }
+
+    private fun generateAdditionalProperties(schema: JsonNode, additionalProperties: JsonNode, schemaPath: String): String {
+        if (!additionalProperties.isBoolean) {
+            unsupported("Only boolean additionalProperties are supported at $schemaPath")
+        }
+        if (additionalProperties.booleanValue()) {
+            return ""
+        }
+        val cases = schema.get("properties")
+            ?.fieldNames()
+            ?.asSequence()
+            ?.joinToString("") { "                    case ${javaString(it)}:\n" }
+            ?: ""
+        return """
+            |        if (node.isObject()) {
+            |            final Iterator<String> names = node.fieldNames();
+            |            while (names.hasNext()) {
+            |                final String name = names.next();
+            |                switch (name) {
+            |$cases                        break;
+            |                    default:
+            |                        messages.add(at + "." + name + ": is not defined in the schema and the schema does not allow additional properties");
+            |                }
+            |            }
+            |        }
+            |""".trimMargin()
+    }
+
+    private fun generateItems(methodName: String, items: JsonNode, schemaPath: String): String {
+        val itemsMethodName = methodName + "Items"
+        schedule(itemsMethodName, items, "$schemaPath/items")
+        return """
+            |        if (node.isArray()) {
+            |            for (int i = 0; i < node.size(); i++) {
+            |                $itemsMethodName(node.get(i), at + "[" + i + "]", messages);
+            |            }
+            |        }
+            |""".trimMargin()
+    }
+
+    private fun generateRequired(required: JsonNode, schemaPath: String): String {
+        if (!required.isArray) {
+            unsupported("Required properties must be an array at $schemaPath")
+        }
+        val checks = required.joinToString("") { property ->
+            val name = property.asText()
+            """
+            |            if (node.get(${javaString(name)}) == null) {
+            |                messages.add(at + ${javaString(".$name: is missing but it is required")});
+            |            }
+            |""".trimMargin()
+        }
+        return "        if (node.isObject()) {\n$checks        }\n"
+    }
+
+    private fun generateType(type: JsonNode, schemaPath: String): String {
+        val expectedType = type.asText()
+        if (!type.isTextual || expectedType !in supportedTypes) {
+            unsupported("Unsupported type '$type' at $schemaPath")
+        }
+        return "        validateType(node, at, ${javaString(expectedType)}, messages);\n"
+    }
+
+    private fun header() = """
+        |/*
+        | * Copyright 2021 the original author or authors.
+        | *
+        | * Licensed under the Apache License, Version 2.0 (the "License");
+        | * you may not use this file except in compliance with the License.
+        | * You may obtain a copy of the License at
+        | *
+        | *      http://www.apache.org/licenses/LICENSE-2.0
+        | *
+        | * Unless required by applicable law or agreed to in writing, software
+        | * distributed under the License is distributed on an "AS IS" BASIS,
+        | * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+        | * See the License for the specific language governing permissions and
+        | * limitations under the License.
+        | */
+        |
+        |package $packageName;
+        |
+        |import com.fasterxml.jackson.databind.JsonNode;
+        |
+        |import java.util.ArrayList;
+        |import java.util.Iterator;
+        |import java.util.List;
+        |
+        |/**
+        | * Validates JSON against {@code $schemaName}.
+        | * <p>
+        | * Generated by the {@code JsonSchemaValidatorGenerator} task, do not edit.
+        | */
+        |final class $className {
+        |    private $className() {
+        |        // Generated validator
+        |    }
+        |
+        |    /**
+        |     * Returns the schema violations of the given JSON, or an empty list if it is valid.
+        |     */
+        |    static List<String> validate(JsonNode json) {
+        |        final List<String> messages = new ArrayList<>();
+        |        validateRoot(json, "${'$'}", messages);
+        |        return messages;
+        |    }
+        |""".trimMargin()
+
+    private fun footer() = """
+        |
+        |    private static void validateType(JsonNode node, String at, String expectedType, List<String> messages) {
+        |        final String type = typeOf(node);
+        |        if (!type.equals(expectedType) && !(expectedType.equals("number") && type.equals("integer"))) {
+        |            messages.add(at + ": " + type + " found, " + expectedType + " expected");
+        |        }
+        |    }
+        |
+        |    private static String typeOf(JsonNode node) {
+        |        if (node.isObject()) {
+        |            return "object";
+        |        } else if (node.isArray()) {
+        |            return "array";
+        |        } else if (node.isTextual()) {
+        |            return "string";
+        |        } else if (node.isIntegralNumber()) {
+        |            return "integer";
+        |        } else if (node.isNumber()) {
+        |            return "number";
+        |        } else if (node.isBoolean()) {
+        |            return "boolean";
+        |        } else if (node.isNull()) {
+        |            return "null";
+        |        }
+        |        return "unknown";
+        |    }
+        |}
+        |""".trimMargin()
+
+    private fun unsupported(message: String): Nothing =
+        throw GradleException("Unable to generate a validator for $schemaName. $message")
+
+    private fun javaIdentifierPart(name: String): String =
+        name.split(Regex("[^A-Za-z0-9]+"))
+            .filter { it.isNotEmpty() }
+            .joinToString("") { "${Character.toUpperCase(it[0])}${it.substring(1)}" }
+
+    private fun javaString(value: String): String {
+        if (value.any { it < ' ' || it > '~' }) {
+            unsupported("Only printable ASCII characters are supported in property names, found '$value'")
+        }
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\""
+    }
+}
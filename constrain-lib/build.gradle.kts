@@ -7,11 +7,14 @@ plugins {
 dependencies {
     compileOnly(gradleApi())
     implementation(platform(libs.jackson.platform))
-    implementation("com.networknt:json-schema-validator:1.0.64")
     implementation(libs.jackson.parameter.names)
     implementation(libs.github.diff.utils)
 
     testImplementation(gradleApi())
+    // Only used to verify that the generated schema validator conforms to the schema
+    testImplementation("com.networknt:json-schema-validator:1.0.64")
+    // Only used to measure the heap footprint of the loaded constraints
+    testImplementation(libs.jol.core)
 }
 
 tasks.withType<JavaCompile>().configureEach {
@@ -25,6 +28,17 @@ tasks.withType<BaseYamlToJson>().configureEach {
     jsonFile.set(file("src/main/resources/schema/dependency-constraints-schema.json"))
 }
 
+val generateSchemaValidator by tasks.creating(JsonSchemaValidatorGenerator::class) {
+    schemaFile.set(file("src/main/resources/schema/dependency-constraints-schema.yaml"))
+    packageName.set("org.gradle.dependency.constrain.lib.serialize")
+    className.set("ConstraintsSchemaValidator")
+    outputDirectory.set(layout.buildDirectory.dir("generated/sources/schemaValidator/java/main"))
+}
+
+sourceSets.main {
+    java.srcDir(generateSchemaValidator)
+}
+
 tasks.named("spotlessCheck") {
     dependsOn(yamlToJsonCheck)
 }
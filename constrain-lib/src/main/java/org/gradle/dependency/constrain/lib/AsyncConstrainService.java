@@ -17,30 +17,54 @@
 package org.gradle.dependency.constrain.lib;
 
 import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ConfigurationContainer;
 import org.gradle.api.artifacts.DependencyConstraint;
 
+import javax.annotation.Nullable;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 class AsyncConstrainService implements ConstrainService {
     private final CompletableFuture<ConstrainService> futureConstrainService;
+    @Nullable
+    private final Duration joinTimeout;
+    private final Runnable cancelLoading;
+    private final boolean lazy;
 
-    AsyncConstrainService(CompletableFuture<ConstrainService> futureConstrainService) {
+    private AsyncConstrainService(
+        CompletableFuture<ConstrainService> futureConstrainService,
+        @Nullable Duration joinTimeout,
+        Runnable cancelLoading,
+        boolean lazy
+    ) {
         this.futureConstrainService = futureConstrainService;
+        this.joinTimeout = joinTimeout;
+        this.cancelLoading = cancelLoading;
+        this.lazy = lazy;
+    }
+
+    /**
+     * Whether the loaded service is a {@link LazyConstrainService}, known without waiting for the loading.
+     */
+    boolean isLazy() {
+        return lazy;
     }
 
     private ConstrainService joinToLoadConstrainService() {
-        try {
-            return futureConstrainService.join();
-        } catch (CompletionException e) {
-            Throwable cause = e.getCause();
-            if (cause instanceof DependencyConstrainException) {
-                cause.addSuppressed(e);
-                throw (DependencyConstrainException) cause;
-            }
-            throw e;
-        }
+        return await(futureConstrainService, joinTimeout, cancelLoading);
+    }
+
+    @Override
+    public void awaitLoaded(Duration timeout) {
+        await(futureConstrainService, timeout, cancelLoading);
     }
 
     @Override
@@ -48,35 +72,130 @@ class AsyncConstrainService implements ConstrainService {
         joinToLoadConstrainService().doConstrain(configuration);
     }
 
+    @Override
+    public void doConstrainConsumable(ConfigurationContainer configurations) {
+        if (lazy) {
+            joinToLoadConstrainService().doConstrainConsumable(configurations);
+        }
+    }
+
     @Override
     public List<DependencyConstraint> getConstraints() {
         return joinToLoadConstrainService().getConstraints();
     }
 
-    @Override
-    public ConstrainService union(ConstrainService other) {
-        final CompletableFuture<ConstrainService> otherFutureConstrainService;
-        if (other instanceof AsyncConstrainService) {
-            otherFutureConstrainService = ((AsyncConstrainService) other).futureConstrainService;
-        } else {
-            otherFutureConstrainService = CompletableFuture.completedFuture(other);
+    /**
+     * Waits for the future, for at most the timeout if any, and cancels the loading when the wait times out so that
+     * the following waits fail right away instead of waiting again.
+     */
+    private static <T> T await(CompletableFuture<T> future, @Nullable Duration timeout, Runnable cancelLoading) {
+        try {
+            if (timeout == null) {
+                return future.get();
+            }
+            return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof DependencyConstrainException) {
+                cause.addSuppressed(e);
+                throw (DependencyConstrainException) cause;
+            }
+            if (cause instanceof CancellationException) {
+                throw loadingCancelled((CancellationException) cause);
+            }
+            throw new CompletionException(cause);
+        } catch (CancellationException e) {
+            throw loadingCancelled(e);
+        } catch (TimeoutException e) {
+            cancelLoading.run();
+            throw new DependencyConstrainException(
+                "Timed out after " + timeout.toMillis() + " ms waiting for the dependency constraints to be loaded",
+                e
+            );
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DependencyConstrainException("Interrupted while waiting for the dependency constraints to be loaded", e);
         }
-        return new AsyncConstrainService(
-            futureConstrainService.thenCombine(otherFutureConstrainService, ConstrainService::union)
-        );
+    }
+
+    private static DependencyConstrainException loadingCancelled(CancellationException e) {
+        return new DependencyConstrainException("The loading of the dependency constraints was cancelled", e);
     }
 
     static class Factory implements ConstrainService.Factory {
         private final CompletableFuture<ConstrainService.Factory> futureConstrainServiceFactory;
+        @Nullable
+        private final Duration joinTimeout;
+        private final Object loadingThreadLock = new Object();
+        @Nullable
+        private Thread loadingThread;
 
-        Factory(CompletableFuture<ConstrainService.Factory> futureConstrainServiceFactory) {
+        private Factory(CompletableFuture<ConstrainService.Factory> futureConstrainServiceFactory, @Nullable Duration joinTimeout) {
             this.futureConstrainServiceFactory = futureConstrainServiceFactory;
+            this.joinTimeout = joinTimeout;
+        }
+
+        /**
+         * Runs the loader with the executor, keeping track of the thread running it so that it can be interrupted when
+         * the loading is cancelled.
+         */
+        static Factory load(Supplier<ConstrainService.Factory> loader, Executor executor, @Nullable Duration joinTimeout) {
+            final Factory factory = new Factory(new CompletableFuture<>(), joinTimeout);
+            executor.execute(factory.loadWith(loader));
+            return factory;
+        }
+
+        private Runnable loadWith(Supplier<ConstrainService.Factory> loader) {
+            return () -> {
+                synchronized (loadingThreadLock) {
+                    if (futureConstrainServiceFactory.isDone()) {
+                        // Cancelled before it started
+                        return;
+                    }
+                    loadingThread = Thread.currentThread();
+                }
+                try {
+                    futureConstrainServiceFactory.complete(loader.get());
+                } catch (Throwable e) {
+                    futureConstrainServiceFactory.completeExceptionally(e);
+                } finally {
+                    synchronized (loadingThreadLock) {
+                        loadingThread = null;
+                    }
+                    // Clears an interrupt of the cancellation, so that it doesn't leak to the next task of a pooled thread
+                    Thread.interrupted();
+                }
+            };
+        }
+
+        @Override
+        public void cancelLoading() {
+            if (futureConstrainServiceFactory.cancel(false)) {
+                synchronized (loadingThreadLock) {
+                    if (loadingThread != null) {
+                        loadingThread.interrupt();
+                    }
+                }
+            }
         }
 
         @Override
         public ConstrainService create(DependencyConstraintFactory constraintFactory) {
             return new AsyncConstrainService(
-                futureConstrainServiceFactory.thenApply(factory -> factory.create(constraintFactory))
+                futureConstrainServiceFactory.thenApply(factory -> factory.create(constraintFactory)),
+                joinTimeout,
+                this::cancelLoading,
+                false
+            );
+        }
+
+        @Override
+        public ConstrainService createLazy(DependencyConstraintFactory constraintFactory) {
+            return new AsyncConstrainService(
+                futureConstrainServiceFactory.thenApply(factory -> factory.createLazy(constraintFactory)),
+                joinTimeout,
+                this::cancelLoading,
+                true
             );
         }
     }
@@ -16,40 +16,55 @@
 
 package org.gradle.dependency.constrain.lib;
 
+import org.gradle.api.artifacts.ConfigurationContainer;
 import org.gradle.api.artifacts.DependencyConstraint;
 import org.gradle.dependency.constrain.lib.serialize.ConstrainFileLoader;
 import org.gradle.internal.service.scopes.Scopes;
 import org.gradle.internal.service.scopes.ServiceScope;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @ServiceScope(value = Scopes.Build.class)
 public interface ConstrainService extends ConfigurationConstrainService {
 
     List<DependencyConstraint> getConstraints();
 
+    /**
+     * Waits for the constraints to be loaded, for at most the given timeout, when they are loaded asynchronously.
+     * Returns right away when the constraints are already loaded.
+     *
+     * @throws DependencyConstrainException when the loading failed, was cancelled or timed out. The loading is
+     * cancelled when it times out.
+     */
+    default void awaitLoaded(Duration timeout) {
+    }
+
+    /**
+     * Adds the constraints to the configurations of the container which can be consumed, eg. by other projects or to be
+     * published, when the constraints are otherwise only added to the configurations when they are resolved.
+     * Does nothing when the constraints are added to every configuration by {@link #doConstrain}.
+     * <p>
+     * Must be called once the roles of the configurations are known, eg. after the project is evaluated.
+     */
+    default void doConstrainConsumable(ConfigurationContainer configurations) {
+    }
+
     /**
      * Creates a new {@link ConstrainService} which is a union between this and the passed {@link ConstrainService}.
      * Loading error will not be thrown by this method.
      * The returned {@link ConstrainService} will inherit loading exceptions from this and the other.
+     * <p>
+     * The union shares both services instead of copying their constraints, so chaining unions stays linear. When its
+     * constraints are first needed, the constraints with the same module and versions are only kept once. The lazy
+     * services keep applying their constraints lazily.
      */
     default ConstrainService union(ConstrainService other) {
-        assert !(this instanceof AsyncConstrainService) :
-            "The default implementation of ConstrainService.union must not be used for AsyncConstrainService";
-        if (other instanceof AsyncConstrainService) {
-            return new AsyncConstrainService(CompletableFuture.completedFuture(this)).union(other);
-        }
-        final List<DependencyConstraint> union =
-            Stream
-                .concat(getConstraints().stream(), other.getConstraints().stream())
-                .collect(Collectors.toList());
-        return new DefaultConstrainService(union);
+        return new UnionConstrainService(this, other);
     }
 
     /**
@@ -65,13 +80,43 @@ public interface ConstrainService extends ConfigurationConstrainService {
 
         ConstrainService create(DependencyConstraintFactory constraintFactory);
 
+        /**
+         * Creates a {@link ConstrainService} that only adds the constraints to a configuration right before it is resolved,
+         * instead of registering all the constraints on every configuration while the projects are configured.
+         * All the constraints are added to a resolved configuration, as the modules entering its graph transitively are
+         * only known once it is resolved. The configurations which can be consumed only get the constraints from
+         * {@link ConstrainService#doConstrainConsumable}.
+         */
+        ConstrainService createLazy(DependencyConstraintFactory constraintFactory);
+
+        /**
+         * Cancels the loading of the constraints if they are loaded asynchronously and still loading, eg. when the build
+         * is aborted. The thread loading them is interrupted, and the calls to the {@link ConstrainService services}
+         * waiting for them throw a {@link DependencyConstrainException}.
+         */
+        default void cancelLoading() {
+        }
+
         /**
          * Loads the constraints from the constraints file and generates the constraints model.
          *
          * @param projectGradleDirectory The directory containing the constraints file.
          */
         static ConstrainService.Factory loadAndCreate(File projectGradleDirectory) {
-            return new DefaultConstrainService.Factory(ConstrainFileLoader.loadConstraintsFromFile(projectGradleDirectory));
+            return loadAndCreate(projectGradleDirectory, null);
+        }
+
+        /**
+         * Loads the constraints from the constraints file and generates the constraints model.
+         * The parsed constraints are cached in the project cache directory and reused as long as the constraints file is unchanged.
+         *
+         * @param projectGradleDirectory The directory containing the constraints file.
+         * @param projectCacheDirectory The project cache directory (eg. {@code .gradle}), or {@code null} to disable caching.
+         */
+        static ConstrainService.Factory loadAndCreate(File projectGradleDirectory, @Nullable File projectCacheDirectory) {
+            return new DefaultConstrainService.Factory(
+                ConstrainFileLoader.loadConstraintsFromFile(projectGradleDirectory, projectCacheDirectory)
+            );
         }
 
         /**
@@ -79,9 +124,36 @@ public interface ConstrainService extends ConfigurationConstrainService {
          * Exceptions will be thrown by the calls to {@link ConstrainService} if they occur.
          */
         static ConstrainService.Factory loadAndCreateAsync(File projectGradleDirectory, Executor executor) {
-            final CompletableFuture<Factory> factoryCompletableFuture =
-                CompletableFuture.supplyAsync(() -> loadAndCreate(projectGradleDirectory), executor);
-            return new AsyncConstrainService.Factory(factoryCompletableFuture);
+            return loadAndCreateAsync(projectGradleDirectory, null, executor);
+        }
+
+        /**
+         * Loads the constraints from the constraints file, using the cache in the project cache directory,
+         * and generates the constraints model asynchronously.
+         * Exceptions will be thrown by the calls to {@link ConstrainService} if they occur.
+         */
+        static ConstrainService.Factory loadAndCreateAsync(
+            File projectGradleDirectory, @Nullable File projectCacheDirectory, Executor executor
+        ) {
+            return AsyncConstrainService.Factory.load(
+                () -> loadAndCreate(projectGradleDirectory, projectCacheDirectory), executor, null
+            );
+        }
+
+        /**
+         * Loads the constraints like {@link #loadAndCreateAsync(File, File, Executor)}, but the calls to {@link ConstrainService}
+         * wait for at most the join timeout before cancelling the loading and throwing a {@link DependencyConstrainException},
+         * instead of blocking forever when the loading hangs, eg. on a stalled network file system.
+         *
+         * @param executor The executor running the loading, see {@link ConstraintsLoadExecutors} for the built-in ones.
+         * @param joinTimeout How long the calls to {@link ConstrainService} wait for the constraints to be loaded.
+         */
+        static ConstrainService.Factory loadAndCreateAsync(
+            File projectGradleDirectory, @Nullable File projectCacheDirectory, Executor executor, Duration joinTimeout
+        ) {
+            return AsyncConstrainService.Factory.load(
+                () -> loadAndCreate(projectGradleDirectory, projectCacheDirectory), executor, joinTimeout
+            );
         }
     }
 }
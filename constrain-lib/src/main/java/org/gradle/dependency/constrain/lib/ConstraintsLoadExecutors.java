@@ -0,0 +1,122 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors to load the constraints asynchronously with {@link ConstrainService.Factory#loadAndCreateAsync}.
+ */
+public final class ConstraintsLoadExecutors {
+    private static final int MAXIMUM_SHARED_THREADS = 4;
+    private static final long SHARED_THREADS_KEEP_ALIVE_SECONDS = 30;
+
+    private ConstraintsLoadExecutors() {
+        // Utility class
+    }
+
+    /**
+     * A pool shared by all the loads of the JVM, eg. by the builds of a daemon and their included builds.
+     * It runs at most {@value #MAXIMUM_SHARED_THREADS} loads at once, on daemon threads that stop when they are idle.
+     */
+    public static Executor sharedBoundedPool() {
+        return SharedBoundedPool.EXECUTOR;
+    }
+
+    /**
+     * Whether the JVM supports virtual threads, ie. runs on Java 21 or later.
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return VirtualThreads.EXECUTOR != null;
+    }
+
+    /**
+     * Starts a new virtual thread for every load.
+     *
+     * @throws UnsupportedOperationException when the JVM doesn't support virtual threads
+     */
+    public static Executor virtualThreads() {
+        final Executor executor = VirtualThreads.EXECUTOR;
+        if (executor == null) {
+            throw new UnsupportedOperationException(
+                "Virtual threads require Java 21 or later, the current Java version is " + System.getProperty("java.version"));
+        }
+        return executor;
+    }
+
+    /**
+     * Virtual threads when they are supported, otherwise the {@link #sharedBoundedPool() shared bounded pool}.
+     */
+    public static Executor defaultExecutor() {
+        return isVirtualThreadsSupported() ? virtualThreads() : sharedBoundedPool();
+    }
+
+    private static final class SharedBoundedPool {
+        static final Executor EXECUTOR = create();
+
+        private static Executor create() {
+            final int threads = Math.min(MAXIMUM_SHARED_THREADS, Runtime.getRuntime().availableProcessors());
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                SHARED_THREADS_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new LoaderThreadFactory()
+            );
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
+    private static final class LoaderThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "Dependency constraints loader " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * The library targets Java 8, so the virtual thread executor is looked up reflectively.
+     */
+    private static final class VirtualThreads {
+        @Nullable
+        static final Executor EXECUTOR = create();
+
+        @Nullable
+        private static Executor create() {
+            try {
+                final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (Executor) factory.invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -18,12 +18,14 @@ package org.gradle.dependency.constrain.lib;
 
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.DependencyConstraint;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainMetrics;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainPhase;
 import org.gradle.dependency.constrain.lib.model.LoadedConstraint;
 import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 
 class DefaultConstrainService implements ConstrainService {
@@ -35,7 +37,10 @@ class DefaultConstrainService implements ConstrainService {
 
     @Override
     public void doConstrain(Configuration configuration) {
-        configuration.getDependencyConstraints().addAll(constraints);
+        try (ConstrainMetrics.Phase phase = ConstrainMetrics.start(ConstrainPhase.DO_CONSTRAIN, configuration.getName())) {
+            configuration.getDependencyConstraints().addAll(constraints);
+            phase.count(constraints.size());
+        }
     }
 
     @Override
@@ -45,6 +50,7 @@ class DefaultConstrainService implements ConstrainService {
 
     static class Factory implements ConstrainService.Factory {
         private final LoadedConstraints loadedConstraints;
+        private volatile PreparedConstraint[] preparedConstraints;
 
         Factory(LoadedConstraints loadedConstraints) {
             this.loadedConstraints = loadedConstraints;
@@ -52,29 +58,42 @@ class DefaultConstrainService implements ConstrainService {
 
         @Override
         public ConstrainService create(DependencyConstraintFactory constraintFactory) {
-            final List<DependencyConstraint> constraints =
-                loadedConstraints.getConstraints().stream()
-                    .map(loadedConstraint -> generateConstraint(constraintFactory, loadedConstraint))
-                    .collect(Collectors.toList());
-            return new DefaultConstrainService(constraints);
+            try (ConstrainMetrics.Phase phase = ConstrainMetrics.start(ConstrainPhase.CONSTRAINT_CREATION, null)) {
+                final PreparedConstraint[] prepared = getPreparedConstraints();
+                final List<DependencyConstraint> constraints = new ArrayList<>(prepared.length);
+                for (PreparedConstraint preparedConstraint : prepared) {
+                    constraints.add(constraintFactory.create(preparedConstraint));
+                }
+                phase.count(constraints.size());
+                return new DefaultConstrainService(constraints);
+            }
+        }
+
+        @Override
+        public ConstrainService createLazy(DependencyConstraintFactory constraintFactory) {
+            return new LazyConstrainService(this, constraintFactory);
         }
 
-        private DependencyConstraint generateConstraint(
-            DependencyConstraintFactory constraintFactory, LoadedConstraint loadedConstraint
-        ) {
-            return constraintFactory.create(
-                loadedConstraint.getObjectNotation(),
-                gradleConstraint -> {
-                    gradleConstraint.version(
-                        gradleVersion -> {
-                            gradleVersion.strictly(loadedConstraint.getSuggestedVersion());
-                            //noinspection RedundantSuppression
-                            //noinspection SimplifyStreamApiCallChains - `toArray` on collection is Java 10+ only
-                            gradleVersion.reject(
-                                loadedConstraint.getRejected().stream().toArray(String[]::new));
-                        });
-                    gradleConstraint.because(loadedConstraint.getBecause());
-                });
+        boolean isEmpty() {
+            return loadedConstraints.getConstraints().isEmpty();
+        }
+
+        /**
+         * The constraints are prepared when they are first created, and reused by the following creations,
+         * eg. for the build script classpath and for the projects.
+         * Preparing them concurrently is harmless, they are immutable.
+         */
+        private PreparedConstraint[] getPreparedConstraints() {
+            PreparedConstraint[] prepared = preparedConstraints;
+            if (prepared == null) {
+                final List<LoadedConstraint> constraints = loadedConstraints.getConstraints();
+                prepared = new PreparedConstraint[constraints.size()];
+                for (int i = 0; i < prepared.length; i++) {
+                    prepared[i] = PreparedConstraint.of(constraints.get(i));
+                }
+                preparedConstraints = prepared;
+            }
+            return prepared;
         }
 
         /**
@@ -11,4 +11,12 @@ public interface DependencyConstraintFactory {
 
   DependencyConstraint create(
       Object dependencyNotation, Action<? super DependencyConstraint> configureAction);
+
+  /**
+   * Creates the {@link DependencyConstraint} of a constraint whose notation, rejected versions and
+   * reason were computed once, so that nothing is allocated besides the constraint itself.
+   */
+  default DependencyConstraint create(PreparedConstraint constraint) {
+    return create(constraint.getModuleNotation(), constraint);
+  }
 }
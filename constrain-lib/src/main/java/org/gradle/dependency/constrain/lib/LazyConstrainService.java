@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib;
+
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.artifacts.DependencyConstraint;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainMetrics;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainPhase;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies the constraints only to the configurations that are actually resolved, when they are resolved.
+ * <p>
+ * Instead of adding every constraint to every configuration while the projects are configured, a single
+ * {@link Configuration#withDependencies dependency action} is registered per configuration. Gradle only runs it right
+ * before the configuration, or a configuration extending from it, is resolved. The action then adds the same
+ * {@link DependencyConstraint}s as the eager mode, so their {@code strictly} and {@code reject} versions keep their
+ * semantics and the resolved graph is the same.
+ * <p>
+ * The modules entering the graph transitively are only known once the graph is resolved, and constraints can't be
+ * added during the resolution, so all the constraints are added to a resolved configuration, not only the ones of its
+ * modules. Configurations which are never resolved, or whose graph is empty, never get any, and the constraints are
+ * only created once the first configuration is resolved.
+ * <p>
+ * The configurations which can be consumed, eg. by other projects or to publish their variant, get the constraints
+ * from {@link #doConstrainConsumable}, once their role is known, so that the published metadata and the graphs of the
+ * consumers are the same as in the eager mode.
+ */
+class LazyConstrainService implements ConstrainService {
+    private final DefaultConstrainService.Factory factory;
+    private final DependencyConstraintFactory constraintFactory;
+    private final Set<Configuration> constrainedConfigurations = Collections.newSetFromMap(new IdentityHashMap<>());
+    private List<DependencyConstraint> constraints;
+
+    LazyConstrainService(DefaultConstrainService.Factory factory, DependencyConstraintFactory constraintFactory) {
+        this.factory = factory;
+        this.constraintFactory = constraintFactory;
+    }
+
+    /**
+     * No constraint is added to the configuration yet, so no phase is recorded, the configurations are only counted
+     * once the constraints are added to them.
+     */
+    @Override
+    public void doConstrain(Configuration configuration) {
+        if (!factory.isEmpty()) {
+            configuration.withDependencies(dependencies -> applyConstraints(configuration));
+        }
+    }
+
+    @Override
+    public void doConstrainConsumable(ConfigurationContainer configurations) {
+        if (factory.isEmpty()) {
+            return;
+        }
+        for (Configuration configuration : configurations) {
+            if (configuration.isCanBeConsumed()) {
+                addConstraints(configuration);
+            }
+        }
+    }
+
+    /**
+     * Runs for each configuration of the hierarchy of the resolved one, only the resolvable ones need the constraints.
+     */
+    private void applyConstraints(Configuration configuration) {
+        if (configuration.isCanBeResolved() && !configuration.getAllDependencies().isEmpty()) {
+            addConstraints(configuration);
+        }
+    }
+
+    /**
+     * Adds the constraints once, a consumable configuration may also be resolved.
+     */
+    private void addConstraints(Configuration configuration) {
+        synchronized (constrainedConfigurations) {
+            if (!constrainedConfigurations.add(configuration)) {
+                return;
+            }
+        }
+        try (ConstrainMetrics.Phase phase = ConstrainMetrics.start(ConstrainPhase.DO_CONSTRAIN, configuration.getName())) {
+            final List<DependencyConstraint> constraints = getConstraints();
+            configuration.getDependencyConstraints().addAll(constraints);
+            phase.count(constraints.size());
+        }
+    }
+
+    /**
+     * The {@link DependencyConstraint}s are only created when they are first needed, and shared by the configurations.
+     */
+    @Override
+    public synchronized List<DependencyConstraint> getConstraints() {
+        if (constraints == null) {
+            constraints = factory.create(constraintFactory).getConstraints();
+        }
+        return constraints;
+    }
+}
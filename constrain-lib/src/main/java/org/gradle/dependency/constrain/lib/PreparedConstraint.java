@@ -0,0 +1,88 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib;
+
+import org.gradle.api.Action;
+import org.gradle.api.artifacts.DependencyConstraint;
+import org.gradle.api.artifacts.MutableVersionConstraint;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraint;
+
+import java.util.Map;
+
+/**
+ * The values needed to create the {@link DependencyConstraint} of a {@link LoadedConstraint}, computed once and reused
+ * every time the constraint is created.
+ * <p>
+ * It is also the action configuring the created constraint, so that creating a constraint doesn't allocate a notation,
+ * a configure action or an array of rejected versions.
+ */
+public final class PreparedConstraint implements Action<DependencyConstraint> {
+    private final Map<String, String> moduleNotation;
+    private final String strictVersion;
+    private final String[] rejectedVersions;
+    private final String because;
+    private final Action<MutableVersionConstraint> versionAction = this::configureVersion;
+
+    private PreparedConstraint(Map<String, String> moduleNotation, String strictVersion, String[] rejectedVersions, String because) {
+        this.moduleNotation = moduleNotation;
+        this.strictVersion = strictVersion;
+        this.rejectedVersions = rejectedVersions;
+        this.because = because;
+    }
+
+    static PreparedConstraint of(LoadedConstraint loadedConstraint) {
+        return new PreparedConstraint(
+            loadedConstraint.getObjectNotation(),
+            loadedConstraint.getSuggestedVersion(),
+            loadedConstraint.getRejected().toArray(new String[0]),
+            loadedConstraint.getBecause()
+        );
+    }
+
+    /**
+     * The map notation of the constrained module, with its {@code group} and {@code name}.
+     */
+    public Map<String, String> getModuleNotation() {
+        return moduleNotation;
+    }
+
+    public String getStrictVersion() {
+        return strictVersion;
+    }
+
+    /**
+     * The rejected versions, which are shared between all the created constraints and must not be modified.
+     */
+    public String[] getRejectedVersions() {
+        return rejectedVersions;
+    }
+
+    public String getBecause() {
+        return because;
+    }
+
+    @Override
+    public void execute(DependencyConstraint constraint) {
+        constraint.version(versionAction);
+        constraint.because(because);
+    }
+
+    private void configureVersion(MutableVersionConstraint version) {
+        version.strictly(strictVersion);
+        version.reject(rejectedVersions);
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib;
+
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.artifacts.DependencyConstraint;
+import org.gradle.api.artifacts.VersionConstraint;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainMetrics;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainPhase;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The union of two {@link ConstrainService}s, which shares them instead of copying their constraints.
+ * <p>
+ * Creating a union is constant time, and unions of unions form a tree whose services are only flattened into a single
+ * list of constraints when the constraints are first needed. This keeps chains of unions, eg. across many included
+ * builds, linear instead of quadratic. The services loaded asynchronously are only waited for at that point, so
+ * loading errors are not thrown when creating the union.
+ * <p>
+ * When flattening, constraints with the same module and versions are only kept once, whatever their reason. Services
+ * constraining the same module differently, eg. an older and a newer constraints file, keep all their constraints
+ * and Gradle resolves them together, as if they were declared by a single service.
+ * <p>
+ * The {@link LazyConstrainService lazy services} of the union keep applying their constraints lazily, only the
+ * constraints of the other services are added to the configurations right away.
+ */
+class UnionConstrainService implements ConstrainService {
+    private static final Logger LOGGER = Logging.getLogger(UnionConstrainService.class);
+
+    private final ConstrainService left;
+    private final ConstrainService right;
+    private List<DependencyConstraint> constraints;
+    private List<DependencyConstraint> eagerConstraints;
+    private List<ConstrainService> lazyServices;
+
+    UnionConstrainService(ConstrainService left, ConstrainService right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    @Override
+    public void doConstrain(Configuration configuration) {
+        final List<DependencyConstraint> constraints = getEagerConstraints();
+        // The lazy services record their own phase, when they add their constraints
+        if (!constraints.isEmpty()) {
+            try (ConstrainMetrics.Phase phase = ConstrainMetrics.start(ConstrainPhase.DO_CONSTRAIN, configuration.getName())) {
+                configuration.getDependencyConstraints().addAll(constraints);
+                phase.count(constraints.size());
+            }
+        }
+        for (ConstrainService lazyService : getLazyServices()) {
+            lazyService.doConstrain(configuration);
+        }
+    }
+
+    @Override
+    public void doConstrainConsumable(ConfigurationContainer configurations) {
+        for (ConstrainService lazyService : getLazyServices()) {
+            lazyService.doConstrainConsumable(configurations);
+        }
+    }
+
+    @Override
+    public synchronized List<DependencyConstraint> getConstraints() {
+        if (constraints == null) {
+            constraints = Collections.unmodifiableList(flatten(services()));
+        }
+        return constraints;
+    }
+
+    private synchronized List<DependencyConstraint> getEagerConstraints() {
+        if (eagerConstraints == null) {
+            final List<ConstrainService> eagerServices = services();
+            eagerServices.removeAll(getLazyServices());
+            eagerConstraints = Collections.unmodifiableList(flatten(eagerServices));
+        }
+        return eagerConstraints;
+    }
+
+    private synchronized List<ConstrainService> getLazyServices() {
+        if (lazyServices == null) {
+            final List<ConstrainService> services = new ArrayList<>();
+            for (ConstrainService service : services()) {
+                if (isLazy(service)) {
+                    services.add(service);
+                }
+            }
+            lazyServices = services;
+        }
+        return lazyServices;
+    }
+
+    private static boolean isLazy(ConstrainService service) {
+        return service instanceof LazyConstrainService ||
+            service instanceof AsyncConstrainService && ((AsyncConstrainService) service).isLazy();
+    }
+
+    /**
+     * Waits for every service loaded asynchronously, sharing the timeout between them.
+     */
+    @Override
+    public void awaitLoaded(Duration timeout) {
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        for (ConstrainService service : services()) {
+            service.awaitLoaded(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+        }
+    }
+
+    /**
+     * The services of the tree, from left to right, without recursion as chains of unions can be deep.
+     */
+    private List<ConstrainService> services() {
+        final List<ConstrainService> services = new ArrayList<>();
+        final Deque<ConstrainService> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            final ConstrainService service = pending.pop();
+            if (service instanceof UnionConstrainService) {
+                final UnionConstrainService union = (UnionConstrainService) service;
+                pending.push(union.right);
+                pending.push(union.left);
+            } else {
+                services.add(service);
+            }
+        }
+        return services;
+    }
+
+    private static List<DependencyConstraint> flatten(List<ConstrainService> services) {
+        final List<DependencyConstraint> union = new ArrayList<>();
+        final Set<ConstraintKey> keys = new HashSet<>();
+        final Map<String, Origin> moduleOrigins = new HashMap<>();
+        for (int serviceIndex = 0; serviceIndex < services.size(); serviceIndex++) {
+            for (DependencyConstraint constraint : services.get(serviceIndex).getConstraints()) {
+                final ConstraintKey key = ConstraintKey.of(constraint);
+                if (!keys.add(key)) {
+                    continue;
+                }
+                final Origin origin = moduleOrigins.putIfAbsent(key.getModule(), new Origin(key, serviceIndex));
+                if (origin != null && origin.serviceIndex != serviceIndex) {
+                    LOGGER.info(
+                        "Dependency constraints for {} differ between the constraints files: {} and {}",
+                        key.getModule(), origin.key, key
+                    );
+                }
+                union.add(constraint);
+            }
+        }
+        return union;
+    }
+
+    private static final class Origin {
+        private final ConstraintKey key;
+        private final int serviceIndex;
+
+        private Origin(ConstraintKey key, int serviceIndex) {
+            this.key = key;
+            this.serviceIndex = serviceIndex;
+        }
+    }
+
+    /**
+     * What a {@link DependencyConstraint} constrains, to compare constraints created by different services.
+     * The reason is not part of it, as it doesn't change the resolution.
+     */
+    private static final class ConstraintKey {
+        private final String group;
+        private final String name;
+        @Nullable
+        private final String strictVersion;
+        @Nullable
+        private final String requiredVersion;
+        @Nullable
+        private final String preferredVersion;
+        private final List<String> rejectedVersions;
+
+        private ConstraintKey(
+            String group,
+            String name,
+            @Nullable String strictVersion,
+            @Nullable String requiredVersion,
+            @Nullable String preferredVersion,
+            List<String> rejectedVersions
+        ) {
+            this.group = group;
+            this.name = name;
+            this.strictVersion = strictVersion;
+            this.requiredVersion = requiredVersion;
+            this.preferredVersion = preferredVersion;
+            this.rejectedVersions = rejectedVersions;
+        }
+
+        static ConstraintKey of(DependencyConstraint constraint) {
+            final VersionConstraint version = constraint.getVersionConstraint();
+            return new ConstraintKey(
+                constraint.getGroup(),
+                constraint.getName(),
+                version.getStrictVersion(),
+                version.getRequiredVersion(),
+                version.getPreferredVersion(),
+                version.getRejectedVersions()
+            );
+        }
+
+        String getModule() {
+            return group + ":" + name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final ConstraintKey that = (ConstraintKey) o;
+            return group.equals(that.group) &&
+                name.equals(that.name) &&
+                Objects.equals(strictVersion, that.strictVersion) &&
+                Objects.equals(requiredVersion, that.requiredVersion) &&
+                Objects.equals(preferredVersion, that.preferredVersion) &&
+                rejectedVersions.equals(that.rejectedVersions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(group, name, strictVersion, requiredVersion, preferredVersion, rejectedVersions);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder description = new StringBuilder();
+            if (strictVersion != null && !strictVersion.isEmpty()) {
+                description.append("strictly ").append(strictVersion);
+            } else {
+                description.append("requiring ").append(requiredVersion);
+            }
+            if (!rejectedVersions.isEmpty()) {
+                description.append(" rejecting ").append(rejectedVersions);
+            }
+            return description.toString();
+        }
+    }
+}
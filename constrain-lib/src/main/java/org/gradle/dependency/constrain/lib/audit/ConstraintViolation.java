@@ -0,0 +1,63 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.audit;
+
+import org.gradle.dependency.constrain.lib.model.LoadedConstraint;
+
+import java.util.List;
+
+/**
+ * A resolved component whose version is rejected by the constraints of its module, ie. a component the constraints
+ * failed to keep out of the dependency graph.
+ */
+public final class ConstraintViolation {
+    private final String group;
+    private final String name;
+    private final String version;
+    private final List<LoadedConstraint> constraints;
+
+    ConstraintViolation(String group, String name, String version, List<LoadedConstraint> constraints) {
+        this.group = group;
+        this.name = name;
+        this.version = version;
+        this.constraints = constraints;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * All the constraints of the module, as Gradle applies all of them.
+     */
+    public List<LoadedConstraint> getConstraints() {
+        return constraints;
+    }
+
+    @Override
+    public String toString() {
+        return group + ":" + name + ":" + version;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.audit;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraint;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the violations found by a {@link ConstraintsAudit} in the configurations of a project as JSON:
+ * <pre>
+ * {
+ *   "project" : ":app",
+ *   "configurations" : [ {
+ *     "configuration" : "runtimeClasspath",
+ *     "components" : 42,
+ *     "violations" : [ {
+ *       "group" : "junit",
+ *       "name" : "junit",
+ *       "version" : "4.12",
+ *       "constraints" : [ {
+ *         "suggestedVersion" : "4.13.1",
+ *         "rejectedVersions" : [ "[4.7,4.13]" ],
+ *         "because" : "[CVE-2020-15250]: TemporaryFolder on unix-like systems does not limit access to created files"
+ *       } ]
+ *     } ]
+ *   } ]
+ * }
+ * </pre>
+ */
+public final class ConstraintViolationsReport {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private ConstraintViolationsReport() {
+        // Utility class
+    }
+
+    /**
+     * Audits the resolved components of the configurations of a project, and writes the report of the project.
+     *
+     * @param resolvedComponents the {@code group:name:version} coordinates of the resolved components of each
+     * configuration, reported in the iteration order of the map
+     */
+    public static void writeProject(File reportFile, String projectPath, Map<String, List<String>> resolvedComponents, ConstraintsAudit audit) {
+        try (JsonGenerator generator = createGenerator(reportFile)) {
+            generator.writeStartObject();
+            generator.writeStringField("project", projectPath);
+            generator.writeArrayFieldStart("configurations");
+            for (Map.Entry<String, List<String>> configuration : resolvedComponents.entrySet()) {
+                generator.writeStartObject();
+                generator.writeStringField("configuration", configuration.getKey());
+                generator.writeNumberField("components", configuration.getValue().size());
+                generator.writeArrayFieldStart("violations");
+                for (ConstraintViolation violation : audit.audit(configuration.getValue())) {
+                    writeViolation(generator, violation);
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeViolation(JsonGenerator generator, ConstraintViolation violation) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("group", violation.getGroup());
+        generator.writeStringField("name", violation.getName());
+        generator.writeStringField("version", violation.getVersion());
+        generator.writeArrayFieldStart("constraints");
+        for (LoadedConstraint constraint : violation.getConstraints()) {
+            generator.writeStartObject();
+            generator.writeStringField("suggestedVersion", constraint.getSuggestedVersion());
+            generator.writeArrayFieldStart("rejectedVersions");
+            for (String rejected : constraint.getRejected()) {
+                generator.writeString(rejected);
+            }
+            generator.writeEndArray();
+            generator.writeStringField("because", constraint.getBecause());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private static JsonGenerator createGenerator(File reportFile) throws IOException {
+        Files.createDirectories(reportFile.getParentFile().toPath());
+        return JSON_FACTORY.createGenerator(reportFile, JsonEncoding.UTF8).useDefaultPrettyPrinter();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.audit;
+
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
+import org.gradle.dependency.constrain.lib.model.RejectedVersionsMatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Finds the resolved components whose versions are rejected by the loaded constraints.
+ * <p>
+ * The {@link RejectedVersionsMatcher} of the constraints is compiled once per {@link LoadedConstraints} instance and
+ * shared by the audits running concurrently, eg. one per project, as the loaded constraints are themselves shared by
+ * the in-memory cache.
+ */
+public final class ConstraintsAudit {
+    private static final Map<LoadedConstraints, RejectedVersionsMatcher> MATCHERS =
+        Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final LoadedConstraints loadedConstraints;
+    private final RejectedVersionsMatcher matcher;
+
+    private ConstraintsAudit(LoadedConstraints loadedConstraints, RejectedVersionsMatcher matcher) {
+        this.loadedConstraints = loadedConstraints;
+        this.matcher = matcher;
+    }
+
+    public static ConstraintsAudit of(LoadedConstraints loadedConstraints) {
+        // The matcher doesn't reference the constraints, so the entry is removed with them
+        return new ConstraintsAudit(loadedConstraints, MATCHERS.computeIfAbsent(loadedConstraints, RejectedVersionsMatcher::compile));
+    }
+
+    /**
+     * Audits the given {@code group:name:version} coordinates of the resolved components.
+     *
+     * @return the violations, in the order of the coordinates
+     */
+    public List<ConstraintViolation> audit(List<String> components) {
+        final boolean[] rejected = matcher.areRejected(components);
+        final List<ConstraintViolation> violations = new ArrayList<>();
+        for (int i = 0; i < rejected.length; i++) {
+            if (rejected[i]) {
+                final String component = components.get(i);
+                final int groupEnd = component.indexOf(':');
+                final int nameEnd = component.indexOf(':', groupEnd + 1);
+                final String group = component.substring(0, groupEnd);
+                final String name = component.substring(groupEnd + 1, nameEnd);
+                violations.add(new ConstraintViolation(
+                    group,
+                    name,
+                    component.substring(nameEnd + 1),
+                    loadedConstraints.getIndex().getConstraintsForModule(group, name)
+                ));
+            }
+        }
+        return violations;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.metrics;
+
+import javax.annotation.Nullable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records the duration and the allocations of the {@link ConstrainPhase}s, and reports them to the registered
+ * {@link ConstrainMetricsListener}s.
+ * <p>
+ * The listeners are registered for the whole process, as the constraints are loaded by static loaders and cached for
+ * the whole process. Nothing is measured while no listener is registered.
+ */
+public final class ConstrainMetrics {
+    private static final List<ConstrainMetricsListener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final ConstrainMetricsListener[] NO_LISTENERS = new ConstrainMetricsListener[0];
+    private static final Phase NOT_RECORDED = new Phase(ConstrainPhase.READ, null, NO_LISTENERS, 0, 0);
+
+    private ConstrainMetrics() {
+        // Utility class
+    }
+
+    public static void addListener(ConstrainMetricsListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(ConstrainMetricsListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Starts recording a phase on the current thread, which must be closed once the phase completed.
+     *
+     * @param subject what the phase runs on, eg. the constraints file, if known
+     */
+    public static Phase start(ConstrainPhase phase, @Nullable String subject) {
+        if (LISTENERS.isEmpty()) {
+            return NOT_RECORDED;
+        }
+        // The listeners notified when the phase started are the ones notified when it finishes
+        final ConstrainMetricsListener[] listeners = LISTENERS.toArray(NO_LISTENERS);
+        for (ConstrainMetricsListener listener : listeners) {
+            listener.phaseStarted(phase, subject);
+        }
+        return new Phase(phase, subject, listeners, System.nanoTime(), ThreadAllocations.current());
+    }
+
+    /**
+     * A phase being recorded.
+     */
+    public static final class Phase implements AutoCloseable {
+        private final ConstrainPhase phase;
+        @Nullable
+        private final String subject;
+        private final ConstrainMetricsListener[] listeners;
+        private final long startNanos;
+        private final long startAllocatedBytes;
+        private int count;
+
+        private Phase(
+            ConstrainPhase phase,
+            @Nullable String subject,
+            ConstrainMetricsListener[] listeners,
+            long startNanos,
+            long startAllocatedBytes
+        ) {
+            this.phase = phase;
+            this.subject = subject;
+            this.listeners = listeners;
+            this.startNanos = startNanos;
+            this.startAllocatedBytes = startAllocatedBytes;
+        }
+
+        /**
+         * Records the number of constraints the phase processed.
+         */
+        public void count(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void close() {
+            if (listeners.length == 0) {
+                return;
+            }
+            final long durationNanos = System.nanoTime() - startNanos;
+            final long allocatedBytes = startAllocatedBytes == PhaseMetrics.UNKNOWN_ALLOCATED_BYTES
+                ? PhaseMetrics.UNKNOWN_ALLOCATED_BYTES
+                : ThreadAllocations.current() - startAllocatedBytes;
+            final PhaseMetrics metrics = new PhaseMetrics(phase, subject, durationNanos, allocatedBytes, count);
+            for (int i = listeners.length - 1; i >= 0; i--) {
+                listeners[i].phaseFinished(metrics);
+            }
+        }
+    }
+
+    /**
+     * Measures the allocations of the current thread with the HotSpot extension of the {@link ThreadMXBean}, when the
+     * JVM supports it.
+     */
+    private static final class ThreadAllocations {
+        @Nullable
+        static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = create();
+
+        @Nullable
+        private static com.sun.management.ThreadMXBean create() {
+            final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean hotSpotThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+                if (hotSpotThreadMXBean.isThreadAllocatedMemorySupported() && hotSpotThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                    return hotSpotThreadMXBean;
+                }
+            }
+            return null;
+        }
+
+        static long current() {
+            return THREAD_MX_BEAN == null
+                ? PhaseMetrics.UNKNOWN_ALLOCATED_BYTES
+                : THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+}
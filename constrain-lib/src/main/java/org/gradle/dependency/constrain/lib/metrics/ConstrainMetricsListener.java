@@ -0,0 +1,36 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.metrics;
+
+import javax.annotation.Nullable;
+
+/**
+ * Notified of the phases of loading and applying the dependency constraints, see {@link ConstrainMetrics}.
+ * <p>
+ * Both methods are called on the thread running the phase, which is not always a build thread as the constraints can
+ * be loaded in the background. The nested phases of a thread are finished before their enclosing phase.
+ */
+public interface ConstrainMetricsListener {
+
+    default void phaseStarted(ConstrainPhase phase, @Nullable String subject) {
+    }
+
+    /**
+     * Called once the phase completed, also when it failed.
+     */
+    void phaseFinished(PhaseMetrics metrics);
+}
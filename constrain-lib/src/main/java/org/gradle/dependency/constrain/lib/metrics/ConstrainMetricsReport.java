@@ -0,0 +1,119 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.metrics;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.gradle.api.UncheckedIOException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Sums the metrics of each {@link ConstrainPhase} while registered as a listener, and writes them as JSON:
+ * <pre>
+ * {
+ *   "constraintsLoaded" : 1000,
+ *   "configurationsConstrained" : 12,
+ *   "phases" : [ {
+ *     "phase" : "READ",
+ *     "displayName" : "Read dependency constraints",
+ *     "invocations" : 1,
+ *     "durationNanos" : 14812300,
+ *     "allocatedBytes" : 5242880,
+ *     "count" : 1000
+ *   } ]
+ * }
+ * </pre>
+ * The durations and allocations of the nested phases are included in the ones of their enclosing phase. The
+ * allocations are {@code -1} when the JVM can't measure them.
+ */
+public final class ConstrainMetricsReport implements ConstrainMetricsListener {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Map<ConstrainPhase, PhaseTotals> totals = new EnumMap<>(ConstrainPhase.class);
+
+    @Override
+    public synchronized void phaseFinished(PhaseMetrics metrics) {
+        totals.computeIfAbsent(metrics.getPhase(), phase -> new PhaseTotals()).add(metrics);
+    }
+
+    /**
+     * The number of constraints read from the constraints files.
+     */
+    public synchronized int getConstraintsLoaded() {
+        final PhaseTotals read = totals.get(ConstrainPhase.READ);
+        return read == null ? 0 : read.count;
+    }
+
+    /**
+     * The number of configurations the constraints were added to.
+     */
+    public synchronized int getConfigurationsConstrained() {
+        final PhaseTotals doConstrain = totals.get(ConstrainPhase.DO_CONSTRAIN);
+        return doConstrain == null ? 0 : doConstrain.invocations;
+    }
+
+    public synchronized void writeTo(File reportFile) {
+        try {
+            Files.createDirectories(reportFile.getParentFile().toPath());
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(reportFile, JsonEncoding.UTF8).useDefaultPrettyPrinter()) {
+                generator.writeStartObject();
+                generator.writeNumberField("constraintsLoaded", getConstraintsLoaded());
+                generator.writeNumberField("configurationsConstrained", getConfigurationsConstrained());
+                generator.writeArrayFieldStart("phases");
+                for (Map.Entry<ConstrainPhase, PhaseTotals> entry : totals.entrySet()) {
+                    final PhaseTotals phaseTotals = entry.getValue();
+                    generator.writeStartObject();
+                    generator.writeStringField("phase", entry.getKey().name());
+                    generator.writeStringField("displayName", entry.getKey().getDisplayName());
+                    generator.writeNumberField("invocations", phaseTotals.invocations);
+                    generator.writeNumberField("durationNanos", phaseTotals.durationNanos);
+                    generator.writeNumberField("allocatedBytes", phaseTotals.allocatedBytes);
+                    generator.writeNumberField("count", phaseTotals.count);
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class PhaseTotals {
+        int invocations;
+        long durationNanos;
+        long allocatedBytes;
+        int count;
+
+        void add(PhaseMetrics metrics) {
+            invocations++;
+            durationNanos += metrics.getDurationNanos();
+            if (metrics.getAllocatedBytes() == PhaseMetrics.UNKNOWN_ALLOCATED_BYTES || allocatedBytes == PhaseMetrics.UNKNOWN_ALLOCATED_BYTES) {
+                allocatedBytes = PhaseMetrics.UNKNOWN_ALLOCATED_BYTES;
+            } else {
+                allocatedBytes += metrics.getAllocatedBytes();
+            }
+            count += metrics.getCount();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.metrics;
+
+/**
+ * The phases of loading and applying the dependency constraints, recorded by {@link ConstrainMetrics}.
+ * <p>
+ * Phases are nested: reading a constraints file includes the phases reading its content, and most constraints files
+ * are read in a single streaming pass that validates, binds and checks the format of the content at once. The
+ * separate validation phases only run when the streaming pass rejects the content, to report why.
+ */
+public enum ConstrainPhase {
+    READ("Read dependency constraints"),
+    CACHE_READ("Read cached dependency constraints"),
+    STREAMING_PARSE("Parse dependency constraints"),
+    SCHEMA_VALIDATION("Validate dependency constraints schema"),
+    BINDING("Bind dependency constraints"),
+    FORMAT_CHECK("Check dependency constraints format"),
+    SORT_CHECK("Check dependency constraints order"),
+    NORMALIZATION("Normalize dependency constraints"),
+    CONSTRAINT_CREATION("Create dependency constraints"),
+    DO_CONSTRAIN("Constrain configuration");
+
+    private final String displayName;
+
+    ConstrainPhase(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.metrics;
+
+import javax.annotation.Nullable;
+
+/**
+ * What a completed {@link ConstrainPhase} cost.
+ */
+public final class PhaseMetrics {
+    /**
+     * The value of {@link #getAllocatedBytes()} when the JVM can't measure the allocations of a thread.
+     */
+    public static final long UNKNOWN_ALLOCATED_BYTES = -1;
+
+    private final ConstrainPhase phase;
+    @Nullable
+    private final String subject;
+    private final long durationNanos;
+    private final long allocatedBytes;
+    private final int count;
+
+    PhaseMetrics(ConstrainPhase phase, @Nullable String subject, long durationNanos, long allocatedBytes, int count) {
+        this.phase = phase;
+        this.subject = subject;
+        this.durationNanos = durationNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.count = count;
+    }
+
+    public ConstrainPhase getPhase() {
+        return phase;
+    }
+
+    /**
+     * What the phase ran on, eg. the constraints file for {@link ConstrainPhase#READ} or the name of the configuration
+     * for {@link ConstrainPhase#DO_CONSTRAIN}, if known.
+     */
+    @Nullable
+    public String getSubject() {
+        return subject;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * The bytes allocated by the thread running the phase, or {@link #UNKNOWN_ALLOCATED_BYTES}.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * The number of constraints the phase processed, eg. read from a file or added to a configuration.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return phase + (subject == null ? "" : " " + subject) + ": " + count + " constraints in " + durationNanos + " ns";
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable index of the constraints by group, by module and by group namespace.
+ * <p>
+ * The constraints are sorted by {@code group:name:suggestedVersion}, so the constraints of a group, and of a module,
+ * are next to each other. The index is built in a single pass over the constraints, and the lists it returns are views
+ * of the constraints, in the same order.
+ * <p>
+ * Group namespaces are looked up in a trie of the dot separated segments of the groups, eg. {@code org.eclipse} finds
+ * the constraints of {@code org.eclipse} and {@code org.eclipse.jetty}, but not the ones of {@code org.eclipsefoundation}.
+ */
+public final class ConstraintsIndex {
+    private static final ConstraintsIndex EMPTY = new ConstraintsIndex(Collections.emptyMap(), new GroupNode());
+
+    private final Map<String, GroupEntry> groups;
+    private final GroupNode groupTrie;
+
+    private ConstraintsIndex(Map<String, GroupEntry> groups, GroupNode groupTrie) {
+        this.groups = groups;
+        this.groupTrie = groupTrie;
+    }
+
+    /**
+     * Indexes the given constraints, which must be sorted by {@link LoadedConstraint#GROUP_NAME_SUGGESTED_VERSION_COMPARATOR}.
+     */
+    static ConstraintsIndex of(List<LoadedConstraint> constraints) {
+        if (constraints.isEmpty()) {
+            return EMPTY;
+        }
+        final Map<String, GroupEntry> groups = new HashMap<>();
+        final GroupNode groupTrie = new GroupNode();
+        int groupStart = 0;
+        int moduleStart = 0;
+        for (int i = 1; i <= constraints.size(); i++) {
+            final LoadedConstraint first = constraints.get(moduleStart);
+            final LoadedConstraint current = i < constraints.size() ? constraints.get(i) : null;
+            final boolean sameGroup = current != null && current.getGroup().equals(first.getGroup());
+            if (sameGroup && current.getName().equals(first.getName())) {
+                continue;
+            }
+            GroupEntry group = groups.get(first.getGroup());
+            if (group == null) {
+                group = new GroupEntry(groupStart);
+                groups.put(first.getGroup(), group);
+                groupTrie.insert(first.getGroup(), group);
+            }
+            group.addModule(first.getName(), constraints.subList(moduleStart, i));
+            moduleStart = i;
+            if (!sameGroup) {
+                group.addConstraints(constraints.subList(groupStart, i));
+                groupStart = i;
+            }
+        }
+        return new ConstraintsIndex(groups, groupTrie);
+    }
+
+    /**
+     * Returns the constraints of the given group, or an empty list if there are none.
+     */
+    public List<LoadedConstraint> getConstraintsForGroup(String group) {
+        final GroupEntry entry = groups.get(group);
+        return entry == null ? Collections.emptyList() : entry.constraints;
+    }
+
+    /**
+     * Returns the constraints of the module with the given group and name, or an empty list if there are none.
+     */
+    public List<LoadedConstraint> getConstraintsForModule(String group, String name) {
+        final GroupEntry entry = groups.get(group);
+        if (entry == null) {
+            return Collections.emptyList();
+        }
+        final List<LoadedConstraint> constraints = entry.modules.get(name);
+        return constraints == null ? Collections.emptyList() : constraints;
+    }
+
+    /**
+     * Returns the constraints of the given group and of all the groups nested in its namespace, in the order of the
+     * constraints file.
+     */
+    public List<LoadedConstraint> getConstraintsForGroupNamespace(String groupNamespace) {
+        final GroupNode node = groupTrie.find(groupNamespace);
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        final List<GroupEntry> entries = new ArrayList<>();
+        node.collect(entries);
+        if (entries.size() == 1) {
+            return entries.get(0).constraints;
+        }
+        entries.sort(Comparator.comparingInt(entry -> entry.firstIndex));
+        final List<LoadedConstraint> constraints = new ArrayList<>();
+        for (GroupEntry entry : entries) {
+            constraints.addAll(entry.constraints);
+        }
+        return Collections.unmodifiableList(constraints);
+    }
+
+    private static final class GroupEntry {
+        private final int firstIndex;
+        private final Map<String, List<LoadedConstraint>> modules = new HashMap<>(4);
+        private List<LoadedConstraint> constraints;
+
+        GroupEntry(int firstIndex) {
+            this.firstIndex = firstIndex;
+        }
+
+        void addModule(String name, List<LoadedConstraint> moduleConstraints) {
+            modules.merge(name, Collections.unmodifiableList(moduleConstraints), ConstraintsIndex::concat);
+        }
+
+        /**
+         * Adds a run of constraints of the group. A group only has several runs when its coordinates contain the
+         * {@code :} separator, which changes where it sorts.
+         */
+        void addConstraints(List<LoadedConstraint> groupConstraints) {
+            final List<LoadedConstraint> run = Collections.unmodifiableList(groupConstraints);
+            constraints = constraints == null ? run : concat(constraints, run);
+        }
+    }
+
+    private static List<LoadedConstraint> concat(List<LoadedConstraint> first, List<LoadedConstraint> second) {
+        final List<LoadedConstraint> constraints = new ArrayList<>(first.size() + second.size());
+        constraints.addAll(first);
+        constraints.addAll(second);
+        return Collections.unmodifiableList(constraints);
+    }
+
+    /**
+     * A node of the trie of group segments. Children are only allocated for the nodes that have some.
+     */
+    private static final class GroupNode {
+        private Map<String, GroupNode> children;
+        private GroupEntry group;
+
+        void insert(String group, GroupEntry entry) {
+            GroupNode node = this;
+            int segmentStart = 0;
+            while (segmentStart <= group.length()) {
+                final int segmentEnd = segmentEnd(group, segmentStart);
+                final String segment = group.substring(segmentStart, segmentEnd);
+                if (node.children == null) {
+                    node.children = new HashMap<>(4);
+                }
+                node = node.children.computeIfAbsent(segment, ignored -> new GroupNode());
+                segmentStart = segmentEnd + 1;
+            }
+            node.group = entry;
+        }
+
+        GroupNode find(String groupNamespace) {
+            GroupNode node = this;
+            int segmentStart = 0;
+            while (segmentStart <= groupNamespace.length()) {
+                final int segmentEnd = segmentEnd(groupNamespace, segmentStart);
+                if (node.children == null) {
+                    return null;
+                }
+                node = node.children.get(groupNamespace.substring(segmentStart, segmentEnd));
+                if (node == null) {
+                    return null;
+                }
+                segmentStart = segmentEnd + 1;
+            }
+            return node;
+        }
+
+        void collect(List<GroupEntry> entries) {
+            if (group != null) {
+                entries.add(group);
+            }
+            if (children != null) {
+                for (GroupNode child : children.values()) {
+                    child.collect(entries);
+                }
+            }
+        }
+
+        private static int segmentEnd(String group, int segmentStart) {
+            final int dot = group.indexOf('.', segmentStart);
+            return dot < 0 ? group.length() : dot;
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package org.gradle.dependency.constrain.lib.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -31,20 +32,24 @@ import static java.util.Objects.requireNonNull;
  */
 public final class LoadedConstraint {
     public static final Comparator<LoadedConstraint> GROUP_NAME_SUGGESTED_VERSION_COMPARATOR =
-        Comparator.comparing(LoadedConstraint::getGroupNameSuggestedVersion);
+        LoadedConstraint::compareGroupNameSuggestedVersion;
     public static final BiPredicate<LoadedConstraint, LoadedConstraint> GROUP_NAME_SUGGESTED_VERSION_EQUALITY =
-        (a, b) -> a.getGroupNameSuggestedVersion().equals(b.getGroupNameSuggestedVersion());
+        (a, b) -> a.group.equals(b.group) && a.name.equals(b.name) && a.suggestedVersion.equals(b.suggestedVersion);
+    private static final String[] NO_REJECTED = new String[0];
     private final String group;
     private final String name;
     private final String suggestedVersion;
-    private final List<String> rejected;
+    /**
+     * Kept as an exactly sized array, as there are as many of them as constraints and most only reject a few ranges.
+     */
+    private final String[] rejected;
     private final String because;
 
     /**
      * Use {@link LoadedConstraint#builder()} to create an instance.
      */
     LoadedConstraint(
-        String group, String name, String suggestedVersion, List<String> rejected, String because
+        String group, String name, String suggestedVersion, String[] rejected, String because
     ) {
         this.group = requireNonNull(group, "`group` must not be null");
         this.name = requireNonNull(name, "`name` must not be null");
@@ -70,7 +75,7 @@ public final class LoadedConstraint {
     }
 
     public List<String> getRejected() {
-        return rejected;
+        return Collections.unmodifiableList(Arrays.asList(rejected));
     }
 
     public String getBecause() {
@@ -84,8 +89,72 @@ public final class LoadedConstraint {
         return Collections.unmodifiableMap(objectNotation);
     }
 
-    private String getGroupNameSuggestedVersion() {
-        return group + ":" + name + ":" + suggestedVersion;
+    /**
+     * Compares the {@code group:name:suggestedVersion} keys of the constraints lexicographically,
+     * without allocating the concatenated keys.
+     */
+    private static int compareGroupNameSuggestedVersion(LoadedConstraint a, LoadedConstraint b) {
+        // Fast path for the common case of adjacent constraints sharing the same group and/or name
+        if (a.group.equals(b.group)) {
+            if (a.name.equals(b.name)) {
+                return a.suggestedVersion.compareTo(b.suggestedVersion);
+            }
+            if (a.name.indexOf(':') < 0 && b.name.indexOf(':') < 0) {
+                return compareSegment(a.name, b.name);
+            }
+        } else if (a.group.indexOf(':') < 0 && b.group.indexOf(':') < 0) {
+            return compareSegment(a.group, b.group);
+        }
+        final int aLength = a.keyLength();
+        final int bLength = b.keyLength();
+        final int length = Math.min(aLength, bLength);
+        for (int i = 0; i < length; i++) {
+            final char aChar = a.keyCharAt(i);
+            final char bChar = b.keyCharAt(i);
+            if (aChar != bChar) {
+                return aChar - bChar;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    /**
+     * Compares two different segments of the key, which are both followed by the {@code :} separator.
+     */
+    private static int compareSegment(String a, String b) {
+        final int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            final char aChar = a.charAt(i);
+            final char bChar = b.charAt(i);
+            if (aChar != bChar) {
+                return aChar - bChar;
+            }
+        }
+        // One segment is a prefix of the other, compare the separator with the next character of the longer one
+        return a.length() < b.length() ? ':' - b.charAt(length) : a.charAt(length) - ':';
+    }
+
+    private int keyLength() {
+        return group.length() + name.length() + suggestedVersion.length() + 2;
+    }
+
+    private char keyCharAt(int index) {
+        if (index < group.length()) {
+            return group.charAt(index);
+        }
+        index -= group.length();
+        if (index == 0) {
+            return ':';
+        }
+        index--;
+        if (index < name.length()) {
+            return name.charAt(index);
+        }
+        index -= name.length();
+        if (index == 0) {
+            return ':';
+        }
+        return suggestedVersion.charAt(index - 1);
     }
 
     public static final class Builder {
@@ -143,7 +212,7 @@ public final class LoadedConstraint {
 
         public LoadedConstraint build() {
             return new LoadedConstraint(
-                group, name, suggestedVersion, Collections.unmodifiableList(rejected), because);
+                group, name, suggestedVersion, rejected.isEmpty() ? NO_REJECTED : rejected.toArray(NO_REJECTED), because);
         }
     }
 }
@@ -16,23 +16,24 @@
 
 package org.gradle.dependency.constrain.lib.model;
 
-import com.github.difflib.DiffUtils;
-import com.github.difflib.patch.AbstractDelta;
-import com.github.difflib.patch.Patch;
 import org.gradle.dependency.constrain.lib.DependencyConstrainException;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainMetrics;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainPhase;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public final class LoadedConstraints {
+    public static final int DEFAULT_MAXIMUM_REPORTED_MOVES = 20;
     private static final LoadedConstraints EMPTY = new LoadedConstraints(Collections.emptyList());
 
     private final List<LoadedConstraint> constraints;
+    private volatile ConstraintsIndex index;
 
     private LoadedConstraints(List<LoadedConstraint> constraints) {
-        this.constraints = constraints;
+        this.constraints = Collections.unmodifiableList(constraints);
     }
 
     public static Builder builder() {
@@ -43,80 +44,94 @@ public final class LoadedConstraints {
         return EMPTY;
     }
 
+    /**
+     * Returns the constraints, sorted by {@code group:name:suggestedVersion}.
+     * The list is unmodifiable, as the loaded constraints may be shared by several builds of the daemon.
+     */
     public List<LoadedConstraint> getConstraints() {
         return constraints;
     }
 
+    /**
+     * Returns the index of the constraints, to look them up by group, by module or by group namespace without scanning them.
+     * <p>
+     * The index is built on the first call, so that the intermediate constraints of a loading, eg. the shards before
+     * they are merged, never build one.
+     */
+    public ConstraintsIndex getIndex() {
+        ConstraintsIndex result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    result = ConstraintsIndex.of(constraints);
+                    index = result;
+                }
+            }
+        }
+        return result;
+    }
+
     public static final class Builder {
         private final String LINE_SEPARATOR = System.lineSeparator();
         private final List<LoadedConstraint> constraints = new ArrayList<>();
+        private int maximumReportedMoves = DEFAULT_MAXIMUM_REPORTED_MOVES;
 
         private Builder() {
             // no-op
         }
 
+        /**
+         * Limits how many constraints are listed in the error reported when the constraints are not sorted.
+         */
+        public Builder maximumReportedMoves(int maximumReportedMoves) {
+            if (maximumReportedMoves < 1) {
+                throw new IllegalArgumentException("maximumReportedMoves must be at least 1, was " + maximumReportedMoves);
+            }
+            this.maximumReportedMoves = maximumReportedMoves;
+            return this;
+        }
+
         public void addConstraint(LoadedConstraint constraint) {
             constraints.add(constraint);
         }
 
+        /**
+         * Verifies that the constraints are sorted in a single pass over adjacent pairs.
+         * The instructions to sort them are only computed when the constraints are not sorted.
+         */
         private void ensureConstraintsSorted() {
-            List<LoadedConstraint> sortedConstraints =
-                constraints.stream().sorted(LoadedConstraint.GROUP_NAME_SUGGESTED_VERSION_COMPARATOR).collect(Collectors.toList());
-            final Patch<LoadedConstraint> patch =
-                DiffUtils.diff(constraints, sortedConstraints, LoadedConstraint.GROUP_NAME_SUGGESTED_VERSION_EQUALITY);
-            if (!patch.getDeltas().isEmpty()) {
-                String deltas =
-                    patch
-                        .getDeltas()
-                        .stream()
-                        .map(this::toConstraintSortErrorMessage)
-                        .collect(Collectors.joining(LINE_SEPARATOR + "  - ", "  - ", ""));
-                throw new DependencyConstrainException(
-                    "Constrains were not sorted by group:name:suggestedVersion in lexicographical order:" + LINE_SEPARATOR + deltas
-                );
+            final Comparator<LoadedConstraint> comparator = LoadedConstraint.GROUP_NAME_SUGGESTED_VERSION_COMPARATOR;
+            for (int i = 1; i < constraints.size(); i++) {
+                if (comparator.compare(constraints.get(i - 1), constraints.get(i)) > 0) {
+                    reportSortViolation();
+                }
             }
         }
 
-        private String toConstraintSortErrorMessage(AbstractDelta<LoadedConstraint> delta) {
-            final List<LoadedConstraint> lines;
-            final String qualifier;
-            switch (delta.getType()) {
-                case DELETE:
-                    qualifier = "Remove";
-                    lines = delta.getSource().getLines();
-                    break;
-                case INSERT:
-                    qualifier = "Insert";
-                    lines = delta.getTarget().getLines();
-                    break;
-                default:
-                    throw new IllegalStateException("Unexpected delta: " + delta);
-            }
-            final String constraintPluralized = lines.size() > 1 ? "constraints" : "constraint";
-            String deltaFixMessage =
-                qualifier + " " + constraintPluralized + " at position " + delta.getSource().getPosition();
-            if (lines.size() > 1) {
-                deltaFixMessage += " through " + (delta.getSource().getPosition() + lines.size() - 1);
-            }
-            final String linesMessage =
-                lines
-                    .stream()
-                    .map(Builder::toJsonMapNotation)
-                    .collect(Collectors.joining(LINE_SEPARATOR + "    - ", "    - ", ""));
-            return deltaFixMessage + ':' + LINE_SEPARATOR + linesMessage;
-        }
-
-        private static String toJsonMapNotation(LoadedConstraint loadedConstraint) {
-            return String.format("{\"group\":\"%s\", \"name\":\"%s\", \"suggestedVersion\":\"%s\"}",
-                loadedConstraint.getGroup(),
-                loadedConstraint.getName(),
-                loadedConstraint.getSuggestedVersion()
+        private void reportSortViolation() {
+            final SortViolationReport report =
+                SortViolationReport.create(constraints, LoadedConstraint.GROUP_NAME_SUGGESTED_VERSION_COMPARATOR);
+            throw new DependencyConstrainException(
+                "Constrains were not sorted by group:name:suggestedVersion in lexicographical order:" + LINE_SEPARATOR +
+                    report.render(maximumReportedMoves)
             );
         }
 
         public LoadedConstraints build() {
-            ensureConstraintsSorted();
-            return new LoadedConstraints(constraints);
+            try (ConstrainMetrics.Phase phase = ConstrainMetrics.start(ConstrainPhase.SORT_CHECK, null)) {
+                ensureConstraintsSorted();
+                phase.count(constraints.size());
+            }
+            return new LoadedConstraints(new ArrayList<>(constraints));
+        }
+
+        /**
+         * Builds the constraints without verifying that they are sorted.
+         * Must only be used for constraints that were already verified, eg. when reading them back from a cache.
+         */
+        public LoadedConstraints buildTrusted() {
+            return new LoadedConstraints(new ArrayList<>(constraints));
         }
     }
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.model;
+
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.Version;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionParser;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers whether a version of a module is rejected by the loaded constraints, eg. for audits or for validating a
+ * proposed version bump, without parsing the rejected version selectors again for every question.
+ * <p>
+ * The selectors of each module are compiled once: its ranges are merged into intervals sorted by their start, which
+ * are binary searched, and its exact versions are hashed. The merged intervals are disjoint, except where merging them
+ * would have rejected the pre-releases that Gradle excludes below an exclusive upper bound, so a query checks the
+ * interval found by the search and, rarely, the few overlapping intervals before it. Sub-version selectors such as
+ * {@code 1.+} are matched by their prefix. Selectors that need the metadata of the module, such as
+ * {@code latest.release}, can't be matched from a version and are ignored.
+ */
+public final class RejectedVersionsMatcher {
+    private static final String SUB_VERSION_SUFFIX = "+";
+
+    private final VersionParser versionParser;
+    private final Comparator<Version> versionComparator;
+    private final Map<String, Map<String, ModuleMatcher>> modulesByGroup;
+
+    private RejectedVersionsMatcher(
+        VersionParser versionParser,
+        Comparator<Version> versionComparator,
+        Map<String, Map<String, ModuleMatcher>> modulesByGroup
+    ) {
+        this.versionParser = versionParser;
+        this.versionComparator = versionComparator;
+        this.modulesByGroup = modulesByGroup;
+    }
+
+    /**
+     * Compiles the rejected versions of the sorted constraints. The rejected versions of all the constraints of a module
+     * are combined, as Gradle applies all of them.
+     */
+    public static RejectedVersionsMatcher compile(LoadedConstraints loadedConstraints) {
+        final VersionParser versionParser = new VersionParser();
+        final Comparator<Version> versionComparator = new DefaultVersionComparator().asVersionComparator();
+        final Map<String, Map<String, ModuleMatcher>> modulesByGroup = new HashMap<>();
+        final List<LoadedConstraint> constraints = loadedConstraints.getConstraints();
+        int start = 0;
+        while (start < constraints.size()) {
+            final LoadedConstraint first = constraints.get(start);
+            int end = start + 1;
+            while (end < constraints.size() && isSameModule(first, constraints.get(end))) {
+                end++;
+            }
+            final ModuleMatcher moduleMatcher =
+                ModuleMatcher.compile(constraints.subList(start, end), versionParser, versionComparator);
+            modulesByGroup.computeIfAbsent(first.getGroup(), group -> new HashMap<>()).put(first.getName(), moduleMatcher);
+            start = end;
+        }
+        return new RejectedVersionsMatcher(versionParser, versionComparator, modulesByGroup);
+    }
+
+    private static boolean isSameModule(LoadedConstraint a, LoadedConstraint b) {
+        return a.getGroup().equals(b.getGroup()) && a.getName().equals(b.getName());
+    }
+
+    /**
+     * Whether the version of the module is rejected by its constraints.
+     */
+    public boolean isRejected(String group, String name, String version) {
+        final ModuleMatcher moduleMatcher = findModule(group, name);
+        return moduleMatcher != null && moduleMatcher.isRejected(version, versionParser, versionComparator, null);
+    }
+
+    /**
+     * Answers {@link #isRejected(String, String, String)} for many {@code group:name:version} coordinates at once,
+     * parsing each distinct version only once.
+     *
+     * @return whether each coordinate is rejected, in the order of the coordinates
+     */
+    public boolean[] areRejected(List<String> coordinates) {
+        final boolean[] rejected = new boolean[coordinates.size()];
+        final Map<String, Version> parsedVersions = new HashMap<>();
+        for (int i = 0; i < rejected.length; i++) {
+            final String coordinate = coordinates.get(i);
+            final int groupEnd = coordinate.indexOf(':');
+            final int nameEnd = coordinate.indexOf(':', groupEnd + 1);
+            if (groupEnd < 0 || nameEnd < 0 || coordinate.indexOf(':', nameEnd + 1) >= 0) {
+                throw new IllegalArgumentException("Expected a group:name:version coordinate, but was '" + coordinate + "'");
+            }
+            final ModuleMatcher moduleMatcher =
+                findModule(coordinate.substring(0, groupEnd), coordinate.substring(groupEnd + 1, nameEnd));
+            rejected[i] = moduleMatcher != null &&
+                moduleMatcher.isRejected(coordinate.substring(nameEnd + 1), versionParser, versionComparator, parsedVersions);
+        }
+        return rejected;
+    }
+
+    @Nullable
+    private ModuleMatcher findModule(String group, String name) {
+        final Map<String, ModuleMatcher> modules = modulesByGroup.get(group);
+        return modules == null ? null : modules.get(name);
+    }
+
+    private static final class ModuleMatcher {
+        private static final VersionInterval[] NO_INTERVALS = new VersionInterval[0];
+        private static final String[] NO_PREFIXES = new String[0];
+
+        /**
+         * Sorted by their start.
+         */
+        private final VersionInterval[] intervals;
+        /**
+         * For each interval, the index of the interval ending the furthest among it and the intervals before it.
+         */
+        private final int[] furthestEnds;
+        private final Set<String> exactVersions;
+        private final String[] subVersionPrefixes;
+
+        private ModuleMatcher(
+            VersionInterval[] intervals,
+            Comparator<Version> versionComparator,
+            Set<String> exactVersions,
+            String[] subVersionPrefixes
+        ) {
+            this.intervals = intervals;
+            this.furthestEnds = new int[intervals.length];
+            for (int i = 1; i < intervals.length; i++) {
+                final int furthestBefore = furthestEnds[i - 1];
+                furthestEnds[i] = intervals[i].compareUpperBounds(intervals[furthestBefore], versionComparator) > 0 ? i : furthestBefore;
+            }
+            this.exactVersions = exactVersions;
+            this.subVersionPrefixes = subVersionPrefixes;
+        }
+
+        static ModuleMatcher compile(
+            List<LoadedConstraint> moduleConstraints,
+            VersionParser versionParser,
+            Comparator<Version> versionComparator
+        ) {
+            final List<VersionInterval> intervals = new ArrayList<>();
+            final Set<String> exactVersions = new HashSet<>();
+            final List<String> subVersionPrefixes = new ArrayList<>();
+            for (LoadedConstraint constraint : moduleConstraints) {
+                for (String selector : constraint.getRejected()) {
+                    final VersionInterval interval = VersionInterval.parse(selector, versionParser);
+                    if (interval != null) {
+                        intervals.add(interval);
+                    } else if (selector.endsWith(SUB_VERSION_SUFFIX)) {
+                        subVersionPrefixes.add(selector.substring(0, selector.length() - SUB_VERSION_SUFFIX.length()));
+                    } else if (RejectedVersionsNormalizer.isExactVersion(selector)) {
+                        exactVersions.add(selector);
+                    }
+                }
+            }
+            return new ModuleMatcher(
+                intervals.isEmpty() ? NO_INTERVALS : VersionInterval.merge(intervals, versionComparator).toArray(NO_INTERVALS),
+                versionComparator,
+                exactVersions.isEmpty() ? Collections.emptySet() : exactVersions,
+                subVersionPrefixes.toArray(NO_PREFIXES)
+            );
+        }
+
+        boolean isRejected(
+            String version,
+            VersionParser versionParser,
+            Comparator<Version> versionComparator,
+            @Nullable Map<String, Version> parsedVersions
+        ) {
+            if (exactVersions.contains(version)) {
+                return true;
+            }
+            for (String prefix : subVersionPrefixes) {
+                if (version.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            if (intervals.length == 0) {
+                return false;
+            }
+            final Version parsedVersion = parsedVersions == null
+                ? versionParser.transform(version)
+                : parsedVersions.computeIfAbsent(version, versionParser::transform);
+            // The first interval starting after the version, only the intervals before it may contain it
+            int low = 0;
+            int high = intervals.length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (intervals[middle].startsAfter(parsedVersion, versionComparator)) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            for (int i = low - 1; i >= 0 && intervals[furthestEnds[i]].endsAtOrAfter(parsedVersion, versionComparator); i--) {
+                if (intervals[i].contains(parsedVersion, versionComparator)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
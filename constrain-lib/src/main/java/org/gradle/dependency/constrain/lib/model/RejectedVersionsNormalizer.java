@@ -0,0 +1,213 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.model;
+
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.Version;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionParser;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Normalizes the rejected versions of loaded constraints, so that Gradle evaluates as few selectors as possible
+ * during resolution.
+ * <p>
+ * The constraints of a module with the same suggested version, eg. from several advisories, are collapsed into a single
+ * constraint, with the reasons of all of them. Its version ranges are merged into the minimal set of disjoint ranges,
+ * using the Gradle version ordering, and the exact versions within these ranges or rejected twice are dropped.
+ * Other selectors, eg. {@code 1.+} or {@code latest.release}, are kept as they are, without their duplicates.
+ */
+public final class RejectedVersionsNormalizer {
+    private static final String BECAUSE_SEPARATOR = "; ";
+
+    private final VersionParser versionParser = new VersionParser();
+    private final Comparator<Version> versionComparator = new DefaultVersionComparator().asVersionComparator();
+
+    private RejectedVersionsNormalizer() {
+        // Created by normalize
+    }
+
+    /**
+     * Normalizes sorted constraints, eg. from {@link LoadedConstraints.Builder#build()}, keeping them sorted.
+     */
+    public static Result normalize(LoadedConstraints loadedConstraints) {
+        return new RejectedVersionsNormalizer().normalizeSorted(loadedConstraints);
+    }
+
+    private Result normalizeSorted(LoadedConstraints loadedConstraints) {
+        final List<LoadedConstraint> constraints = loadedConstraints.getConstraints();
+        final List<LoadedConstraint> normalizedConstraints = new ArrayList<>(constraints.size());
+        boolean changed = false;
+        int selectorCount = 0;
+        int normalizedSelectorCount = 0;
+        int start = 0;
+        while (start < constraints.size()) {
+            int end = start + 1;
+            while (end < constraints.size() &&
+                LoadedConstraint.GROUP_NAME_SUGGESTED_VERSION_EQUALITY.test(constraints.get(start), constraints.get(end))) {
+                end++;
+            }
+            final List<LoadedConstraint> sameConstraints = constraints.subList(start, end);
+            final LoadedConstraint normalized = normalizeSameConstraints(sameConstraints);
+            for (LoadedConstraint constraint : sameConstraints) {
+                selectorCount += constraint.getRejected().size();
+            }
+            normalizedSelectorCount += normalized.getRejected().size();
+            normalizedConstraints.add(normalized);
+            changed |= normalized != constraints.get(start);
+            start = end;
+        }
+        if (!changed) {
+            // Keeps the index of the constraints instead of building it again
+            return new Result(loadedConstraints, 0, 0);
+        }
+        final LoadedConstraints.Builder builder = LoadedConstraints.builder();
+        normalizedConstraints.forEach(builder::addConstraint);
+        return new Result(
+            builder.buildTrusted(),
+            selectorCount - normalizedSelectorCount,
+            constraints.size() - normalizedConstraints.size()
+        );
+    }
+
+    /**
+     * Collapses the constraints sharing the same {@code group:name:suggestedVersion}.
+     */
+    private LoadedConstraint normalizeSameConstraints(List<LoadedConstraint> sameConstraints) {
+        final LoadedConstraint first = sameConstraints.get(0);
+        if (sameConstraints.size() == 1 && first.getRejected().size() < 2) {
+            return first;
+        }
+        // A module only rejects a few selectors, so they are deduplicated by scanning them
+        final List<String> selectors = new ArrayList<>();
+        final List<String> reasons = new ArrayList<>(sameConstraints.size());
+        for (LoadedConstraint constraint : sameConstraints) {
+            addIfAbsent(reasons, constraint.getBecause());
+            for (String selector : constraint.getRejected()) {
+                addIfAbsent(selectors, selector);
+            }
+        }
+        final List<String> normalizedSelectors = normalizeSelectors(selectors);
+        if (sameConstraints.size() == 1 && normalizedSelectors.size() == first.getRejected().size()) {
+            return first;
+        }
+        final LoadedConstraint.Builder builder = LoadedConstraint.builder()
+            .group(first.getGroup())
+            .name(first.getName())
+            .suggestedVersion(first.getSuggestedVersion())
+            .because(String.join(BECAUSE_SEPARATOR, reasons));
+        normalizedSelectors.forEach(builder::addReject);
+        return builder.build();
+    }
+
+    private static void addIfAbsent(List<String> values, String value) {
+        if (!values.contains(value)) {
+            values.add(value);
+        }
+    }
+
+    /**
+     * Returns the merged ranges by ascending versions, then the remaining exact versions and other selectors in their
+     * original order. The selectors are kept as they are when none of them can be eliminated.
+     */
+    private List<String> normalizeSelectors(List<String> selectors) {
+        final List<VersionInterval> intervals = new ArrayList<>();
+        final List<String> exactVersions = new ArrayList<>();
+        final List<String> otherSelectors = new ArrayList<>();
+        for (String selector : selectors) {
+            final VersionInterval interval = VersionInterval.parse(selector, versionParser);
+            if (interval != null) {
+                intervals.add(interval);
+            } else if (isExactVersion(selector)) {
+                exactVersions.add(selector);
+            } else {
+                otherSelectors.add(selector);
+            }
+        }
+        final List<VersionInterval> mergedIntervals = VersionInterval.merge(intervals, versionComparator);
+        final List<String> remainingExactVersions = new ArrayList<>(exactVersions.size());
+        for (String exactVersion : exactVersions) {
+            if (!isWithin(versionParser.transform(exactVersion), mergedIntervals)) {
+                remainingExactVersions.add(exactVersion);
+            }
+        }
+        if (mergedIntervals.size() == intervals.size() && remainingExactVersions.size() == exactVersions.size()) {
+            return selectors;
+        }
+        final List<String> normalizedSelectors = new ArrayList<>(selectors.size());
+        for (VersionInterval interval : mergedIntervals) {
+            normalizedSelectors.add(interval.toSelector());
+        }
+        normalizedSelectors.addAll(remainingExactVersions);
+        normalizedSelectors.addAll(otherSelectors);
+        return normalizedSelectors;
+    }
+
+    private boolean isWithin(Version version, List<VersionInterval> intervals) {
+        for (VersionInterval interval : intervals) {
+            if (interval.contains(version, versionComparator)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Exact versions only match themselves, unlike ranges or dynamic selectors such as {@code 1.+} or
+     * {@code latest.release}. This is how Gradle tells them apart.
+     */
+    static boolean isExactVersion(String selector) {
+        return !selector.endsWith("+") &&
+            !selector.startsWith("latest.") &&
+            !VersionInterval.isRange(selector);
+    }
+
+    /**
+     * The normalized constraints, and how much was eliminated.
+     */
+    public static final class Result {
+        private final LoadedConstraints constraints;
+        private final int eliminatedSelectorCount;
+        private final int collapsedConstraintCount;
+
+        private Result(LoadedConstraints constraints, int eliminatedSelectorCount, int collapsedConstraintCount) {
+            this.constraints = constraints;
+            this.eliminatedSelectorCount = eliminatedSelectorCount;
+            this.collapsedConstraintCount = collapsedConstraintCount;
+        }
+
+        public LoadedConstraints getConstraints() {
+            return constraints;
+        }
+
+        /**
+         * How many rejected version selectors Gradle no longer has to evaluate.
+         */
+        public int getEliminatedSelectorCount() {
+            return eliminatedSelectorCount;
+        }
+
+        /**
+         * How many constraints were collapsed into another constraint of the same module and suggested version.
+         */
+        public int getCollapsedConstraintCount() {
+            return collapsedConstraintCount;
+        }
+    }
+}
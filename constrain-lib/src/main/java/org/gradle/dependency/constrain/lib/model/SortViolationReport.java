@@ -0,0 +1,171 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Describes how to sort a list of constraints with the minimal number of moves.
+ * <p>
+ * The constraints that are part of a longest increasing subsequence (in terms of their position in the sorted list)
+ * are already in the right relative order and stay where they are, every other constraint has to be moved.
+ * The subsequence is computed in {@code O(n log n)}, so the report stays fast even for heavily reordered files.
+ * Positions are given as the index of the constraint in the current list and in the sorted list.
+ */
+final class SortViolationReport {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final List<LoadedConstraint> constraints;
+    private final int[] sortedPositions;
+    private final boolean[] inPlace;
+
+    private SortViolationReport(List<LoadedConstraint> constraints, int[] sortedPositions, boolean[] inPlace) {
+        this.constraints = constraints;
+        this.sortedPositions = sortedPositions;
+        this.inPlace = inPlace;
+    }
+
+    static SortViolationReport create(List<LoadedConstraint> constraints, Comparator<LoadedConstraint> comparator) {
+        final int size = constraints.size();
+        final Integer[] sortedIndices = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            sortedIndices[i] = i;
+        }
+        // Stable, so that equal constraints keep their relative order and never need to be moved
+        Arrays.sort(sortedIndices, (a, b) -> comparator.compare(constraints.get(a), constraints.get(b)));
+        final int[] sortedPositions = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedPositions[sortedIndices[i]] = i;
+        }
+        return new SortViolationReport(constraints, sortedPositions, longestIncreasingSubsequence(sortedPositions));
+    }
+
+    /**
+     * Returns which of the distinct {@code values} are part of a longest increasing subsequence.
+     */
+    private static boolean[] longestIncreasingSubsequence(int[] values) {
+        // tails[k] is the index of the smallest value ending an increasing subsequence of length k + 1
+        final int[] tails = new int[values.length];
+        final int[] predecessors = new int[values.length];
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (values[tails[middle]] < values[i]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            predecessors[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        final boolean[] inSubsequence = new boolean[values.length];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = predecessors[i]) {
+            inSubsequence[i] = true;
+        }
+        return inSubsequence;
+    }
+
+    int getMoveCount() {
+        int moves = 0;
+        for (boolean stays : inPlace) {
+            if (!stays) {
+                moves++;
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Renders the moves, grouping constraints that are moved together as a block.
+     * At most {@code maximumReportedMoves} constraints are listed, the remaining ones are only counted.
+     */
+    String render(int maximumReportedMoves) {
+        final StringBuilder message = new StringBuilder();
+        int reported = 0;
+        int position = 0;
+        while (position < constraints.size() && reported < maximumReportedMoves) {
+            if (inPlace[position]) {
+                position++;
+                continue;
+            }
+            int end = position + 1;
+            while (end < constraints.size() &&
+                end - position < maximumReportedMoves - reported &&
+                !inPlace[end] &&
+                sortedPositions[end] == sortedPositions[end - 1] + 1) {
+                end++;
+            }
+            appendMove(message, position, end);
+            reported += end - position;
+            position = end;
+        }
+        final int remaining = getMoveCount() - reported;
+        if (remaining > 0) {
+            message
+                .append(LINE_SEPARATOR)
+                .append("  - ... and ")
+                .append(remaining)
+                .append(remaining > 1 ? " more constraints to move" : " more constraint to move");
+        }
+        return message.toString();
+    }
+
+    private void appendMove(StringBuilder message, int start, int end) {
+        if (message.length() > 0) {
+            message.append(LINE_SEPARATOR);
+        }
+        final int last = end - 1;
+        if (start == last) {
+            message
+                .append("  - Move constraint at position ")
+                .append(start)
+                .append(" to position ")
+                .append(sortedPositions[start]);
+        } else {
+            message
+                .append("  - Move constraints at position ")
+                .append(start)
+                .append(" through ")
+                .append(last)
+                .append(" to position ")
+                .append(sortedPositions[start])
+                .append(" through ")
+                .append(sortedPositions[last]);
+        }
+        message.append(':');
+        for (int i = start; i < end; i++) {
+            message.append(LINE_SEPARATOR).append("    - ").append(toJsonMapNotation(constraints.get(i)));
+        }
+    }
+
+    private static String toJsonMapNotation(LoadedConstraint loadedConstraint) {
+        return String.format("{\"group\":\"%s\", \"name\":\"%s\", \"suggestedVersion\":\"%s\"}",
+            loadedConstraint.getGroup(),
+            loadedConstraint.getName(),
+            loadedConstraint.getSuggestedVersion()
+        );
+    }
+}
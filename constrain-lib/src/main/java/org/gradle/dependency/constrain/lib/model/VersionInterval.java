@@ -0,0 +1,265 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.model;
+
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.Version;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionParser;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionRangeSelector;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An interval of versions parsed from a version range selector, eg. {@code (,9.4.32.v20200930]} or
+ * {@code [10.0.0.a,10.0.0.beta2]}, whose bounds are ordered like Gradle orders versions.
+ * <p>
+ * Both the Maven ({@code (} and {@code )}) and the Ivy ({@code ]} and {@code [}) notations of exclusive bounds are
+ * supported. Like for Gradle, only the lower bound of {@code (,1.0]} and the upper bound of {@code [1.0,)} can be
+ * missing, and are then unbounded.
+ */
+final class VersionInterval {
+    @Nullable
+    private final Version lower;
+    private final boolean lowerInclusive;
+    @Nullable
+    private final Version upper;
+    private final boolean upperInclusive;
+
+    VersionInterval(@Nullable Version lower, boolean lowerInclusive, @Nullable Version upper, boolean upperInclusive) {
+        this.lower = lower;
+        this.lowerInclusive = lower != null && lowerInclusive;
+        this.upper = upper;
+        this.upperInclusive = upper != null && upperInclusive;
+    }
+
+    /**
+     * Parses a version range selector, or returns {@code null} when Gradle doesn't parse the selector as a range.
+     */
+    @Nullable
+    static VersionInterval parse(String selector, VersionParser versionParser) {
+        if (!isRange(selector)) {
+            return null;
+        }
+        final int length = selector.length();
+        final int comma = selector.indexOf(',');
+        if (comma < 0) {
+            // A single version, eg. [1.0]
+            final Version version = versionParser.transform(selector.substring(1, length - 1).trim());
+            return new VersionInterval(version, true, version, true);
+        }
+        final String lower = selector.substring(1, comma).trim();
+        final String upper = selector.substring(comma + 1, length - 1).trim();
+        return new VersionInterval(
+            lower.isEmpty() ? null : versionParser.transform(lower),
+            selector.charAt(0) == '[',
+            upper.isEmpty() ? null : versionParser.transform(upper),
+            selector.charAt(length - 1) == ']'
+        );
+    }
+
+    /**
+     * Whether Gradle parses the selector as a range, which is only the case for exactly the notations of
+     * {@link VersionRangeSelector#ALL_RANGE}. For example, {@code [1.0,[} is an exact version for Gradle.
+     */
+    static boolean isRange(String selector) {
+        final int length = selector.length();
+        return length >= 3 &&
+            "[](".indexOf(selector.charAt(0)) >= 0 &&
+            "][)".indexOf(selector.charAt(length - 1)) >= 0 &&
+            VersionRangeSelector.ALL_RANGE.matcher(selector).matches();
+    }
+
+    /**
+     * Whether the version is within this interval, like {@link VersionRangeSelector#accept(Version)}: below an exclusive
+     * upper bound, the versions starting with the upper bound, eg. {@code 2.0-rc1} for {@code [1.0,2.0)}, are excluded.
+     */
+    boolean contains(Version version, Comparator<Version> comparator) {
+        return !startsAfter(version, comparator) && isBelowUpperBound(version, comparator);
+    }
+
+    private boolean isBelowUpperBound(Version version, Comparator<Version> comparator) {
+        if (upper == null) {
+            return true;
+        }
+        final int comparison = comparator.compare(version, upper);
+        if (upperInclusive) {
+            return comparison <= 0;
+        }
+        return comparison < 0 && !version.toString().startsWith(upper.toString());
+    }
+
+    /**
+     * Whether the version is before the start of this interval, so that it can't be within this interval or any
+     * interval starting after it.
+     */
+    boolean startsAfter(Version version, Comparator<Version> comparator) {
+        if (lower == null) {
+            return false;
+        }
+        final int comparison = comparator.compare(version, lower);
+        return comparison < 0 || (comparison == 0 && !lowerInclusive);
+    }
+
+    /**
+     * Whether the version isn't after the end of this interval, ignoring the versions excluded below an exclusive upper
+     * bound.
+     */
+    boolean endsAtOrAfter(Version version, Comparator<Version> comparator) {
+        if (upper == null) {
+            return true;
+        }
+        final int comparison = comparator.compare(version, upper);
+        return comparison < 0 || (comparison == 0 && upperInclusive);
+    }
+
+    /**
+     * Merges the intervals which can be merged without changing the versions they contain, ordered by their start.
+     * The intervals are disjoint, unless the versions excluded below an exclusive upper bound prevented merging them.
+     */
+    static List<VersionInterval> merge(List<VersionInterval> intervals, Comparator<Version> comparator) {
+        final List<VersionInterval> sorted = new ArrayList<>(intervals);
+        sorted.sort(byLowerBound(comparator));
+        final List<VersionInterval> merged = new ArrayList<>(sorted.size());
+        VersionInterval current = null;
+        for (VersionInterval interval : sorted) {
+            final VersionInterval union = current == null ? null : current.union(interval, comparator);
+            if (union != null) {
+                current = union;
+            } else {
+                if (current != null) {
+                    merged.add(current);
+                }
+                current = interval;
+            }
+        }
+        if (current != null) {
+            merged.add(current);
+        }
+        return merged;
+    }
+
+    /**
+     * Returns the union of this interval and the next one, which doesn't start before this one, or {@code null} when
+     * the union isn't an interval.
+     * <p>
+     * Besides a gap between both intervals, the union isn't an interval when one of them contains versions that the
+     * other excludes below its exclusive upper bound, eg. {@code [2.0-rc1,2.0-rc2]} and {@code [1.0,2.0)}. Every such
+     * version extends the parts of the upper bound, so an interval ending before any version extending them can't
+     * contain one.
+     */
+    @Nullable
+    private VersionInterval union(VersionInterval next, Comparator<Version> comparator) {
+        if (compareUpperBounds(next, comparator) >= 0) {
+            if (upper == null || upperInclusive) {
+                return this;
+            }
+            if (comparator.compare(next.upper, upper) == 0) {
+                // Both exclusive, they only exclude the same versions when they are written the same
+                return next.upper.toString().equals(upper.toString()) ? this : null;
+            }
+            return extendsParts(next.upper, upper) ? null : this;
+        }
+        if (next.lower != null) {
+            final int comparison = comparator.compare(next.lower, upper);
+            final boolean coversThisEnd = upperInclusive
+                ? comparison <= 0
+                : comparison < 0 && !extendsParts(next.lower, upper);
+            if (!coversThisEnd) {
+                return null;
+            }
+        }
+        if (next.upper == null && lower == null) {
+            // Gradle has no selector for all the versions, (,) is an exact version
+            return null;
+        }
+        if (next.upper != null && !next.upperInclusive && extendsParts(upper, next.upper)) {
+            return null;
+        }
+        return new VersionInterval(lower, lowerInclusive, next.upper, next.upperInclusive);
+    }
+
+    /**
+     * Compares where this interval and the other end, an inclusive end being after an exclusive end at the same version.
+     */
+    int compareUpperBounds(VersionInterval other, Comparator<Version> comparator) {
+        if (upper == null || other.upper == null) {
+            return upper == null ? (other.upper == null ? 0 : 1) : -1;
+        }
+        final int comparison = comparator.compare(upper, other.upper);
+        if (comparison != 0) {
+            return comparison;
+        }
+        return Boolean.compare(upperInclusive, other.upperInclusive);
+    }
+
+    /**
+     * Whether the version has more parts than the bound and starts with the parts of the bound, eg. {@code 2.0-rc1} or
+     * {@code 2.0.1} for {@code 2.0}.
+     */
+    private static boolean extendsParts(Version version, Version bound) {
+        final String[] parts = version.getParts();
+        final String[] boundParts = bound.getParts();
+        if (parts.length <= boundParts.length) {
+            return false;
+        }
+        final Long[] numericParts = version.getNumericParts();
+        final Long[] boundNumericParts = bound.getNumericParts();
+        for (int i = 0; i < boundParts.length; i++) {
+            final boolean samePart = numericParts[i] != null && boundNumericParts[i] != null
+                ? numericParts[i].equals(boundNumericParts[i])
+                : parts[i].equals(boundParts[i]);
+            if (!samePart) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Orders the intervals by their start, unbounded and inclusive starts first.
+     */
+    private static Comparator<VersionInterval> byLowerBound(Comparator<Version> comparator) {
+        return (a, b) -> {
+            if (a.lower == null || b.lower == null) {
+                return a.lower == null ? (b.lower == null ? 0 : -1) : 1;
+            }
+            final int comparison = comparator.compare(a.lower, b.lower);
+            if (comparison != 0) {
+                return comparison;
+            }
+            return Boolean.compare(b.lowerInclusive, a.lowerInclusive);
+        };
+    }
+
+    /**
+     * Renders the interval as a version range selector, in the Maven notation.
+     */
+    String toSelector() {
+        return (lowerInclusive ? "[" : "(") +
+            (lower == null ? "" : lower.getSource()) +
+            "," +
+            (upper == null ? "" : upper.getSource()) +
+            (upperInclusive ? "]" : ")");
+    }
+
+    @Override
+    public String toString() {
+        return toSelector();
+    }
+}
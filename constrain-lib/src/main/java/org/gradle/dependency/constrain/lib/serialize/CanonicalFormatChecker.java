@@ -0,0 +1,198 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.PrettyPrinter;
+import com.github.difflib.DiffUtils;
+import com.github.difflib.UnifiedDiffUtils;
+import com.github.difflib.patch.AbstractDelta;
+import com.github.difflib.patch.Chunk;
+import com.github.difflib.patch.Patch;
+import org.gradle.dependency.constrain.lib.DependencyConstrainException;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.gradle.dependency.constrain.lib.serialize.ConstrainFileLoader.DEPENDENCY_CONSTRAINTS_FILE_PATH_RELATIVE;
+
+/**
+ * Verifies that the input matches exactly the formatting that we expect.
+ * <p>
+ * The tokens of the input are written back with the canonical pretty printer while they are parsed, and each
+ * canonical line is compared with the corresponding input line as soon as it is complete.
+ * Only the canonical lines following the first deviation are kept, and the patch fixing the formatting is only
+ * computed for the deviating region between the common prefix and the common suffix of both.
+ */
+final class CanonicalFormatChecker {
+    private CanonicalFormatChecker() {
+        // Utility class
+    }
+
+    /**
+     * Will generate an exception containing the diff required to make the input match the expected format.
+     *
+     * @param content the UTF-8 encoded input, which must be valid JSON
+     * @param inputLines the lines of the same input
+     */
+    static void verifyNoFormattingDifferences(JsonFactory factory, PrettyPrinter prettyPrinter, byte[] content, List<String> inputLines) {
+        final CanonicalLines canonicalLines = new CanonicalLines(inputLines);
+        try (JsonParser parser = factory.createParser(content);
+             JsonGenerator generator = factory.createGenerator(canonicalLines)) {
+            generator.setPrettyPrinter(prettyPrinter);
+            copyCanonicalEvents(parser, generator);
+        } catch (IOException ex) {
+            throw new DependencyConstrainException("Unable to generate formatted JSON for dependency constraints", ex);
+        }
+        canonicalLines.finish();
+        if (canonicalLines.deviatingLines == null && canonicalLines.matchingLines == inputLines.size()) {
+            return;
+        }
+        final Patch<String> patch = diffDeviatingRegion(inputLines, canonicalLines);
+        final List<String> strings = UnifiedDiffUtils.generateUnifiedDiff(
+            DEPENDENCY_CONSTRAINTS_FILE_PATH_RELATIVE,
+            DEPENDENCY_CONSTRAINTS_FILE_PATH_RELATIVE,
+            inputLines,
+            patch,
+            0
+        );
+        final String newline = System.lineSeparator();
+        final String fixDiffToApply =
+            strings
+                .stream()
+                .collect(Collectors.joining(newline + "  ", "  ", ""));
+        throw new DependencyConstrainException(
+            "The dependency constraints are not formatted correctly. Please apply this patch to fix the formatting:" +
+                newline +
+                fixDiffToApply
+        );
+    }
+
+    /**
+     * Copies the events of the parser, dropping duplicated fields the same way that the object mapper does.
+     */
+    private static void copyCanonicalEvents(JsonParser parser, JsonGenerator generator) throws IOException {
+        final Deque<Set<String>> fieldNames = new ArrayDeque<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            if (token == JsonToken.START_OBJECT) {
+                fieldNames.push(new HashSet<>());
+            } else if (token == JsonToken.END_OBJECT) {
+                fieldNames.pop();
+            } else if (token == JsonToken.FIELD_NAME && !fieldNames.element().add(parser.getCurrentName())) {
+                parser.nextToken();
+                parser.skipChildren();
+                continue;
+            }
+            generator.copyCurrentEvent(parser);
+        }
+    }
+
+    private static Patch<String> diffDeviatingRegion(List<String> inputLines, CanonicalLines canonicalLines) {
+        final int prefixLength = canonicalLines.matchingLines;
+        final List<String> deviatingInput = inputLines.subList(prefixLength, inputLines.size());
+        final List<String> deviatingCanonical =
+            canonicalLines.deviatingLines != null ? canonicalLines.deviatingLines : Collections.emptyList();
+        int suffixLength = 0;
+        while (suffixLength < deviatingInput.size() &&
+            suffixLength < deviatingCanonical.size() &&
+            deviatingInput.get(deviatingInput.size() - suffixLength - 1)
+                .equals(deviatingCanonical.get(deviatingCanonical.size() - suffixLength - 1))) {
+            suffixLength++;
+        }
+        final Patch<String> regionPatch = DiffUtils.diff(
+            deviatingInput.subList(0, deviatingInput.size() - suffixLength),
+            deviatingCanonical.subList(0, deviatingCanonical.size() - suffixLength)
+        );
+        final Patch<String> patch = new Patch<>();
+        for (AbstractDelta<String> delta : regionPatch.getDeltas()) {
+            patch.addDelta(delta.withChunks(offset(delta.getSource(), prefixLength), offset(delta.getTarget(), prefixLength)));
+        }
+        return patch;
+    }
+
+    private static Chunk<String> offset(Chunk<String> chunk, int offset) {
+        return new Chunk<>(chunk.getPosition() + offset, chunk.getLines());
+    }
+
+    /**
+     * Receives the canonical formatting, comparing each line with the input as soon as it is complete.
+     * Both {@code \n} and {@code \r\n} are accepted as line separators, like when reading the input lines.
+     */
+    private static final class CanonicalLines extends Writer {
+        private final List<String> inputLines;
+        private final StringBuilder currentLine = new StringBuilder();
+        private int matchingLines;
+        private List<String> deviatingLines;
+
+        CanonicalLines(List<String> inputLines) {
+            this.inputLines = inputLines;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                final char c = buffer[i];
+                if (c == '\n') {
+                    endLine();
+                } else if (c != '\r') {
+                    currentLine.append(c);
+                }
+            }
+        }
+
+        private void endLine() {
+            final String line = currentLine.toString();
+            currentLine.setLength(0);
+            if (deviatingLines == null && matchingLines < inputLines.size() && inputLines.get(matchingLines).equals(line)) {
+                matchingLines++;
+            } else {
+                if (deviatingLines == null) {
+                    deviatingLines = new ArrayList<>();
+                }
+                deviatingLines.add(line);
+            }
+        }
+
+        void finish() {
+            if (currentLine.length() > 0) {
+                endLine();
+            }
+        }
+
+        @Override
+        public void flush() {
+            // Lines are compared as soon as they are complete
+        }
+
+        @Override
+        public void close() {
+            // The last line is completed by finish()
+        }
+    }
+}
@@ -17,34 +17,184 @@
 package org.gradle.dependency.constrain.lib.serialize;
 
 import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 import org.gradle.dependency.constrain.lib.DependencyConstrainException;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainMetrics;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainPhase;
 import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
+import org.gradle.dependency.constrain.lib.model.RejectedVersionsNormalizer;
 
+import javax.annotation.Nullable;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
 
 public final class ConstrainFileLoader {
-    static final String DEPENDENCY_CONSTRAINTS_FILE_NAME = "dependency-constraints.json";
+    static final String DEPENDENCY_CONSTRAINTS_BASE_NAME = "dependency-constraints";
+    static final String DEPENDENCY_CONSTRAINTS_FILE_NAME = DEPENDENCY_CONSTRAINTS_BASE_NAME + ".json";
     static final String DEPENDENCY_CONSTRAINTS_FILE_PATH_RELATIVE = "gradle/" + DEPENDENCY_CONSTRAINTS_FILE_NAME;
+    static final String CACHE_DIRECTORY_NAME = "dependency-constraints";
+    static final String SHARDS_CACHE_DIRECTORY_NAME = "shards";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final Logger LOGGER = Logging.getLogger(ConstrainFileLoader.class);
 
     private ConstrainFileLoader() {
         // Utility class
     }
 
+    /**
+     * The patterns of the files the constraints are loaded from, relative to the directory containing the constraints
+     * file, eg. to declare them as the inputs of a task.
+     */
+    public static List<String> constraintsFilePatterns() {
+        final List<String> patterns = new ArrayList<>();
+        for (ConstraintsReader reader : ConstraintsReaders.all()) {
+            patterns.add(DEPENDENCY_CONSTRAINTS_BASE_NAME + reader.getFileExtension());
+            patterns.add(ConstraintShards.SHARDS_DIRECTORY_NAME + "/*" + reader.getFileExtension());
+        }
+        return Collections.unmodifiableList(patterns);
+    }
+
     /**
      * Loads the constraints model from the given directory. Wraps {@link
      * DependencyConstrainException} thrown with an error message indicating the file that caused the
      * error.
      */
     public static LoadedConstraints loadConstraintsFromFile(File projectGradleDirectory) {
-        final File constraintsFile = new File(projectGradleDirectory, DEPENDENCY_CONSTRAINTS_FILE_NAME);
-        if (!constraintsFile.exists()) {
-            return LoadedConstraints.empty();
+        return loadConstraintsFromFile(projectGradleDirectory, null);
+    }
+
+    /**
+     * Loads the constraints model from the given directory, using a binary cache of the constraints model
+     * stored in the given cache directory when it matches the content of the constraints file.
+     * <p>
+     * The constraints file is {@code dependency-constraints.json}, or the {@code .xml} or {@code .bin} file in the
+     * other {@link ConstraintsReaders formats}. Besides it, the constraints can be split into shards in the
+     * {@code dependency-constraints.d} directory, in any of the formats. Each file is sorted on its own, and they are
+     * loaded in parallel before being merged into a single sorted model, whose rejected versions are normalized again
+     * as a whole.
+     * <p>
+     * The contents recorded as validated by {@link ConstraintsValidation} in the project cache directory are read
+     * without being validated again.
+     *
+     * @param projectGradleDirectory The directory containing the constraints file.
+     * @param projectCacheDirectory The project cache directory (eg. {@code .gradle}), or {@code null} to disable caching.
+     */
+    public static LoadedConstraints loadConstraintsFromFile(File projectGradleDirectory, @Nullable File projectCacheDirectory) {
+        final File cacheDirectory = projectCacheDirectory == null ? null : new File(projectCacheDirectory, CACHE_DIRECTORY_NAME);
+        final File recordsDirectory = projectCacheDirectory == null ? null : ConstraintsValidation.recordsDirectory(projectCacheDirectory);
+        final List<File> shardFiles = ConstraintShards.listShards(new File(projectGradleDirectory, ConstraintShards.SHARDS_DIRECTORY_NAME));
+        final List<File> constraintsFiles = new ArrayList<>(1);
+        for (ConstraintsReader reader : ConstraintsReaders.all()) {
+            final File constraintsFile = new File(projectGradleDirectory, DEPENDENCY_CONSTRAINTS_BASE_NAME + reader.getFileExtension());
+            if (constraintsFile.isFile()) {
+                constraintsFiles.add(constraintsFile);
+            }
         }
+        if (shardFiles.isEmpty() && constraintsFiles.size() <= 1) {
+            if (constraintsFiles.isEmpty()) {
+                return LoadedConstraints.empty();
+            }
+            final File constraintsFile = constraintsFiles.get(0);
+            return loadConstraintsFile(constraintsFile, cacheFile(cacheDirectory, constraintsFileCacheName(constraintsFile)), recordsDirectory);
+        }
+
+        final List<File> files = new ArrayList<>(constraintsFiles.size() + shardFiles.size());
+        final List<ForkJoinTask<LoadedConstraints>> tasks = new ArrayList<>(constraintsFiles.size() + shardFiles.size());
+        for (File constraintsFile : constraintsFiles) {
+            files.add(constraintsFile);
+            tasks.add(ForkJoinTask.adapt(() ->
+                loadConstraintsFile(constraintsFile, cacheFile(cacheDirectory, constraintsFileCacheName(constraintsFile)), recordsDirectory)));
+        }
+        for (File shardFile : shardFiles) {
+            files.add(shardFile);
+            tasks.add(ForkJoinTask.adapt(() ->
+                loadConstraintsFile(
+                    shardFile,
+                    cacheFile(cacheDirectory, SHARDS_CACHE_DIRECTORY_NAME + "/" + shardFile.getName() + ".bin"),
+                    recordsDirectory
+                )));
+        }
+        tasks.forEach(ForkJoinTask::fork);
+        final List<LoadedConstraints> shards = joinShards(tasks);
+        final LoadedConstraints merged = ConstraintShards.merge(files, shards);
+        return normalize(merged, projectGradleDirectory.getPath());
+    }
+
+    /**
+     * Waits for the shards in order, so that the error reported for several broken shards doesn't depend on the
+     * scheduling. Unlike {@link ForkJoinTask#join()}, the wait is interrupted when the loading is cancelled, and the
+     * shards not loaded yet are then cancelled too.
+     */
+    private static List<LoadedConstraints> joinShards(List<ForkJoinTask<LoadedConstraints>> tasks) {
+        final List<LoadedConstraints> shards = new ArrayList<>(tasks.size());
         try {
-            return ConstraintsJsonReader.readFromJson(new FileInputStream(constraintsFile));
-        } catch (FileNotFoundException e) {
+            for (ForkJoinTask<LoadedConstraints> task : tasks) {
+                shards.add(task.get());
+            }
+        } catch (InterruptedException e) {
+            tasks.forEach(task -> task.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new DependencyConstrainException("Interrupted while loading the dependency constraints", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DependencyConstrainException("Failed to load the dependency constraints", cause);
+        }
+        return shards;
+    }
+
+    /**
+     * The JSON constraints file keeps the cache file name it always had.
+     */
+    private static String constraintsFileCacheName(File constraintsFile) {
+        return constraintsFile.getName().equals(DEPENDENCY_CONSTRAINTS_FILE_NAME)
+            ? ConstraintsBinaryCache.CACHE_FILE_NAME
+            : constraintsFile.getName() + ".bin";
+    }
+
+    @Nullable
+    private static File cacheFile(@Nullable File cacheDirectory, String cacheFileName) {
+        return cacheDirectory == null ? null : new File(cacheDirectory, cacheFileName);
+    }
+
+    private static LoadedConstraints loadConstraintsFile(
+        File constraintsFile,
+        @Nullable File cacheFile,
+        @Nullable File recordsDirectory
+    ) {
+        try (ConstrainMetrics.Phase phase = ConstrainMetrics.start(ConstrainPhase.READ, constraintsFile.getPath())) {
+            final long lastModified = constraintsFile.lastModified();
+            final ByteBuffer content = readContent(constraintsFile);
+            final byte[] digest = digest(content);
+            final InMemoryConstraintsCache.Key key =
+                new InMemoryConstraintsCache.Key(constraintsFile.getCanonicalPath(), content.remaining(), lastModified, digest);
+            final InMemoryConstraintsCache inMemoryCache = InMemoryConstraintsCache.getInstance();
+            LoadedConstraints loadedConstraints = inMemoryCache.get(key);
+            if (loadedConstraints == null) {
+                final boolean validated = ConstraintsValidation.isValidated(recordsDirectory, digest);
+                loadedConstraints = loadConstraints(constraintsFile, content, digest, cacheFile, validated);
+                inMemoryCache.put(key, loadedConstraints);
+            }
+            phase.count(loadedConstraints.getConstraints().size());
+            return loadedConstraints;
+        } catch (IOException e) {
             throw new UncheckedIOException(e);
         } catch (DependencyConstrainException e) {
             // Propagate the exception but add the file name to the message
@@ -52,4 +202,111 @@ public final class ConstrainFileLoader {
                 "Failed to load constraints from " + constraintsFile, e.getCause());
         }
     }
+
+    /**
+     * Reads the content of the constraints file. The binary files are mapped, so that their strings are decoded from
+     * the mapped pages without copying the file on the heap first.
+     */
+    private static ByteBuffer readContent(File constraintsFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(constraintsFile.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer head = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(head, 0);
+            head.flip();
+            if (ConstraintsBinaryFormat.hasMagic(head)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(constraintsFile.toPath()));
+    }
+
+    /**
+     * The binary cache stores the normalized constraints, so that they are only normalized when the file changes.
+     *
+     * @param validated whether the content was already validated, see {@link ConstraintsValidation}
+     */
+    private static LoadedConstraints loadConstraints(
+        File constraintsFile,
+        ByteBuffer content,
+        byte[] digest,
+        @Nullable File cacheFile,
+        boolean validated
+    ) {
+        if (cacheFile == null) {
+            return readAndNormalize(constraintsFile, content, validated);
+        }
+        final LoadedConstraints cachedConstraints;
+        try (ConstrainMetrics.Phase phase = ConstrainMetrics.start(ConstrainPhase.CACHE_READ, cacheFile.getPath())) {
+            cachedConstraints = ConstraintsBinaryCache.read(cacheFile, digest);
+            if (cachedConstraints != null) {
+                phase.count(cachedConstraints.getConstraints().size());
+            }
+        }
+        if (cachedConstraints != null) {
+            return cachedConstraints;
+        }
+        final LoadedConstraints loadedConstraints = readAndNormalize(constraintsFile, content, validated);
+        ConstraintsBinaryCache.write(cacheFile, digest, loadedConstraints);
+        return loadedConstraints;
+    }
+
+    private static LoadedConstraints readAndNormalize(File constraintsFile, ByteBuffer content, boolean validated) {
+        final ConstraintsReader reader = ConstraintsReaders.forContent(constraintsFile.getName(), content);
+        final LoadedConstraints loadedConstraints;
+        if (validated) {
+            LOGGER.info("The constraints of {} were already validated, skipping their validation", constraintsFile);
+            loadedConstraints = reader.readTrusted(content);
+        } else {
+            loadedConstraints = reader.read(content);
+        }
+        return normalize(loadedConstraints, constraintsFile.getPath());
+    }
+
+    /**
+     * Normalizes the constraints of a file, or the constraints merged from several files, so that the constraints of a
+     * module declared in several files are normalized together too. Normalized constraints are returned as they are.
+     * <p>
+     * The normalizer compares the versions with internal Gradle APIs. The constraints are returned without being
+     * normalized when the running Gradle version doesn't provide them, as the normalization doesn't change which
+     * versions are rejected.
+     */
+    private static LoadedConstraints normalize(LoadedConstraints loadedConstraints, String source) {
+        final RejectedVersionsNormalizer.Result normalized;
+        try (ConstrainMetrics.Phase phase = ConstrainMetrics.start(ConstrainPhase.NORMALIZATION, source)) {
+            normalized = RejectedVersionsNormalizer.normalize(loadedConstraints);
+            phase.count(loadedConstraints.getConstraints().size());
+        } catch (LinkageError e) {
+            LOGGER.debug(
+                "Not normalizing the constraints of {}, this Gradle version doesn't support the version comparison",
+                source,
+                e
+            );
+            return loadedConstraints;
+        }
+        if (normalized.getEliminatedSelectorCount() > 0 || normalized.getCollapsedConstraintCount() > 0) {
+            LOGGER.info(
+                "Normalized the constraints of {}: eliminated {} rejected version selectors and collapsed {} constraints",
+                source,
+                normalized.getEliminatedSelectorCount(),
+                normalized.getCollapsedConstraintCount()
+            );
+        }
+        return normalized.getConstraints();
+    }
+
+    /**
+     * Computes the digest of the constraints file content, used as the key of the caches.
+     */
+    static byte[] digest(byte[] content) {
+        return digest(ByteBuffer.wrap(content));
+    }
+
+    static byte[] digest(ByteBuffer content) {
+        try {
+            final MessageDigest messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            messageDigest.update(content.duplicate());
+            return messageDigest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Unable to create " + DIGEST_ALGORITHM + " digest", e);
+        }
+    }
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize;
+
+import org.gradle.dependency.constrain.lib.DependencyConstrainException;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraint;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Combines constraint files that were each loaded and verified on their own, like the shards of the
+ * {@code gradle/dependency-constraints.d} directory.
+ * <p>
+ * Every shard is already sorted, so they are combined with a k-way merge. The merged constraints are sorted globally,
+ * and a constraint declared by more than one shard is reported instead of being silently applied twice.
+ */
+final class ConstraintShards {
+    static final String SHARDS_DIRECTORY_NAME = "dependency-constraints.d";
+
+    private ConstraintShards() {
+        // Utility class
+    }
+
+    /**
+     * Lists the shards of the given directory, in any of the {@link ConstraintsReaders formats}, sorted by file name so
+     * that the result doesn't depend on the file system.
+     */
+    static List<File> listShards(File shardsDirectory) {
+        final File[] shards = shardsDirectory.listFiles(file -> file.isFile() && ConstraintsReaders.isConstraintsFileName(file.getName()));
+        if (shards == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(shards, Comparator.comparing(File::getName));
+        return Arrays.asList(shards);
+    }
+
+    /**
+     * Merges the constraints of the shards.
+     *
+     * @param shardFiles the files the shards were loaded from, used to report duplicates
+     * @param shards the constraints of each shard, in the same order as the files
+     */
+    static LoadedConstraints merge(List<File> shardFiles, List<LoadedConstraints> shards) {
+        final Comparator<LoadedConstraint> comparator = LoadedConstraint.GROUP_NAME_SUGGESTED_VERSION_COMPARATOR;
+        final PriorityQueue<ShardCursor> cursors = new PriorityQueue<>(Math.max(1, shards.size()));
+        int totalSize = 0;
+        for (int i = 0; i < shards.size(); i++) {
+            final List<LoadedConstraint> constraints = shards.get(i).getConstraints();
+            totalSize += constraints.size();
+            if (!constraints.isEmpty()) {
+                cursors.add(new ShardCursor(i, constraints));
+            }
+        }
+
+        final List<LoadedConstraint> merged = new ArrayList<>(totalSize);
+        LoadedConstraint previous = null;
+        int previousShard = -1;
+        while (!cursors.isEmpty()) {
+            final ShardCursor cursor = cursors.poll();
+            final LoadedConstraint current = cursor.current();
+            if (previous != null && previousShard != cursor.shard && comparator.compare(previous, current) == 0) {
+                throw new DependencyConstrainException(
+                    "Constraint " + current.getGroup() + ":" + current.getName() + ":" + current.getSuggestedVersion() +
+                        " is declared in both " + shardFiles.get(previousShard) + " and " + shardFiles.get(cursor.shard)
+                );
+            }
+            merged.add(current);
+            previous = current;
+            previousShard = cursor.shard;
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+
+        final LoadedConstraints.Builder builder = LoadedConstraints.builder();
+        merged.forEach(builder::addConstraint);
+        return builder.buildTrusted();
+    }
+
+    /**
+     * The position of the merge in one shard. Ties between shards are broken by the order of the shards, so that the
+     * merge is stable and duplicates from different shards end up next to each other.
+     */
+    private static final class ShardCursor implements Comparable<ShardCursor> {
+        private final int shard;
+        private final List<LoadedConstraint> constraints;
+        private int position;
+
+        ShardCursor(int shard, List<LoadedConstraint> constraints) {
+            this.shard = shard;
+            this.constraints = constraints;
+        }
+
+        LoadedConstraint current() {
+            return constraints.get(position);
+        }
+
+        boolean advance() {
+            return ++position < constraints.size();
+        }
+
+        @Override
+        public int compareTo(ShardCursor other) {
+            final int result = LoadedConstraint.GROUP_NAME_SUGGESTED_VERSION_COMPARATOR.compare(current(), other.current());
+            return result != 0 ? result : Integer.compare(shard, other.shard);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize;
+
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Persists {@link LoadedConstraints} in a compact binary form, keyed by the digest of the constraints file content.
+ * <p>
+ * The cache is only ever written for constraints that passed the full validation, so reading it back
+ * skips parsing, schema validation, format verification and the sort check.
+ * <p>
+ * Layout (big endian):
+ * <pre>
+ * int     magic
+ * int     cache format version
+ * string  dependency constraints file format version
+ * byte[]  digest of the constraints file content
+ * int     constraint count
+ * [constraint]*
+ *   string group, string name, string suggestedVersion, string because
+ *   int rejected count, [string rejected]*
+ * long    CRC32 of all the preceding bytes
+ * </pre>
+ * Strings are encoded as an {@code int} byte length followed by the UTF-8 bytes, the constraints are encoded like in
+ * the {@link ConstraintsBinaryFormat}.
+ * A cache that is stale, truncated or corrupted is treated as a miss.
+ */
+final class ConstraintsBinaryCache {
+    static final String CACHE_FILE_NAME = "dependency-constraints.bin";
+    private static final int MAGIC = 0x47444343; // GDCC
+    /**
+     * Bumped whenever the cached constraints change, including how they are normalized, so that the caches written by
+     * previous versions are missed instead of serving constraints they would no longer produce.
+     * <ul>
+     * <li>2: the rejected versions are normalized</li>
+     * <li>3: the ranges are not merged when pre-releases below an exclusive upper bound would be rejected</li>
+     * </ul>
+     */
+    private static final int FORMAT_VERSION = 3;
+
+    private ConstraintsBinaryCache() {
+        // Utility class
+    }
+
+    /**
+     * Reads the cached constraints.
+     *
+     * @return the constraints, or {@code null} if the cache does not exist or does not match the given digest
+     */
+    @Nullable
+    static LoadedConstraints read(File cacheFile, byte[] digest) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer, digest);
+        } catch (IOException | RuntimeException e) {
+            // A cache that can't be read is the same as no cache
+            return null;
+        }
+    }
+
+    @Nullable
+    private static LoadedConstraints decode(ByteBuffer buffer, byte[] digest) {
+        if (buffer.remaining() < Long.BYTES || !ConstraintsBinaryFormat.hasValidChecksum(buffer)) {
+            return null;
+        }
+        final ConstraintsBinaryFormat.Decoder decoder = new ConstraintsBinaryFormat.Decoder(buffer);
+        if (buffer.getInt() != MAGIC ||
+            buffer.getInt() != FORMAT_VERSION ||
+            !ConstraintsJsonReader.SUPPORTED_VERSION.equals(decoder.readString()) ||
+            !Arrays.equals(digest, decoder.readBytes())) {
+            return null;
+        }
+        final LoadedConstraints.Builder builder = decoder.readConstraints();
+        if (buffer.remaining() != Long.BYTES) {
+            return null;
+        }
+        return builder.buildTrusted();
+    }
+
+    /**
+     * Writes the constraints to the cache.
+     * Failing to write the cache is not an error, the constraints will just be loaded from the file again next time.
+     */
+    static void write(File cacheFile, byte[] digest, LoadedConstraints constraints) {
+        try {
+            final Path cachePath = cacheFile.toPath();
+            Files.createDirectories(cachePath.getParent());
+            final Path temporaryPath = Files.createTempFile(cachePath.getParent(), CACHE_FILE_NAME, ".tmp");
+            try {
+                Files.write(temporaryPath, encode(digest, constraints));
+                Files.move(temporaryPath, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaryPath);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Ignored, see above
+        }
+    }
+
+    static byte[] encode(byte[] digest, LoadedConstraints constraints) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        ConstraintsBinaryFormat.writeString(out, ConstraintsJsonReader.SUPPORTED_VERSION);
+        ConstraintsBinaryFormat.writeBytes(out, digest);
+        ConstraintsBinaryFormat.writeConstraints(out, constraints);
+        return ConstraintsBinaryFormat.withChecksum(bytes, out);
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.dependency.constrain.lib.DependencyConstrainException;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraint;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A compact binary form of the constraints, for large generated constraint sets that are read without parsing any
+ * text. Authored constraints stay in the JSON or XML files, which are human-editable.
+ * <p>
+ * Layout (big endian):
+ * <pre>
+ * int     magic
+ * int     binary format version
+ * string  dependency constraints file format version
+ * int     constraint count
+ * [constraint]*
+ *   string group, string name, string suggestedVersion, string because
+ *   int rejected count, [string rejected]*
+ * long    CRC32 of all the preceding bytes
+ * </pre>
+ * Strings are encoded as an {@code int} byte length followed by the UTF-8 bytes. The constraints are encoded like in
+ * the {@link ConstraintsBinaryCache}, but they are verified to be sorted when they are read, as the files are not
+ * necessarily written from validated constraints.
+ * <p>
+ * The loader maps the binary files in memory, and the strings are decoded straight from the mapped buffer: the strings
+ * already read, like the groups and the reasons repeated by many constraints, are found in the {@link StringPool}
+ * from their bytes without being copied.
+ */
+public final class ConstraintsBinaryFormat {
+    public static final String FILE_EXTENSION = ".bin";
+    private static final int MAGIC = 0x47444342; // GDCB
+    private static final int FORMAT_VERSION = 1;
+
+    private ConstraintsBinaryFormat() {
+        // Utility class
+    }
+
+    /**
+     * Writes the constraints in the binary form, eg. to generate a constraints file.
+     */
+    public static void write(LoadedConstraints constraints, File file) {
+        try {
+            Files.write(file.toPath(), encode(constraints));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static byte[] encode(LoadedConstraints constraints) {
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, ConstraintsJsonReader.SUPPORTED_VERSION);
+            writeConstraints(out, constraints);
+            return withChecksum(bytes, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Whether the content starts with the magic of the binary form.
+     */
+    static boolean hasMagic(ByteBuffer content) {
+        return content.remaining() >= Integer.BYTES && content.getInt(content.position()) == MAGIC;
+    }
+
+    /**
+     * Reads the constraints of the binary form.
+     *
+     * @param trusted whether the content was already validated, so that the sort check can be skipped
+     */
+    static LoadedConstraints decode(ByteBuffer content, boolean trusted) {
+        final ByteBuffer buffer = content.slice();
+        try {
+            if (buffer.remaining() < Long.BYTES || !hasValidChecksum(buffer)) {
+                throw corrupted();
+            }
+            final Decoder decoder = new Decoder(buffer);
+            if (buffer.getInt() != MAGIC) {
+                throw corrupted();
+            }
+            final int formatVersion = buffer.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new DependencyConstrainException("Unsupported binary dependency constraints version: " + formatVersion);
+            }
+            final String version = decoder.readString();
+            if (!ConstraintsJsonReader.SUPPORTED_VERSION.equals(version)) {
+                throw new DependencyConstrainException("Unsupported dependency constraints version: " + version);
+            }
+            final LoadedConstraints.Builder builder = decoder.readConstraints();
+            if (buffer.remaining() != Long.BYTES) {
+                throw corrupted();
+            }
+            return trusted ? builder.buildTrusted() : builder.build();
+        } catch (BufferUnderflowException e) {
+            throw corrupted();
+        }
+    }
+
+    private static DependencyConstrainException corrupted() {
+        return new DependencyConstrainException("The binary dependency constraints are truncated or corrupted");
+    }
+
+    static void writeConstraints(DataOutputStream out, LoadedConstraints constraints) throws IOException {
+        final List<LoadedConstraint> constraintList = constraints.getConstraints();
+        out.writeInt(constraintList.size());
+        for (LoadedConstraint constraint : constraintList) {
+            writeString(out, constraint.getGroup());
+            writeString(out, constraint.getName());
+            writeString(out, constraint.getSuggestedVersion());
+            writeString(out, constraint.getBecause());
+            out.writeInt(constraint.getRejected().size());
+            for (String rejected : constraint.getRejected()) {
+                writeString(out, rejected);
+            }
+        }
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    /**
+     * Appends the checksum of the bytes written so far.
+     */
+    static byte[] withChecksum(ByteArrayOutputStream bytes, DataOutputStream out) throws IOException {
+        out.flush();
+        final CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static boolean hasValidChecksum(ByteBuffer buffer) {
+        final int checksumPosition = buffer.limit() - Long.BYTES;
+        final ByteBuffer content = buffer.duplicate();
+        content.limit(checksumPosition);
+        final CRC32 crc = new CRC32();
+        // `CRC32.update(ByteBuffer)` is Java 9+ only
+        final byte[] chunk = new byte[8192];
+        while (content.hasRemaining()) {
+            final int length = Math.min(chunk.length, content.remaining());
+            content.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return crc.getValue() == buffer.getLong(checksumPosition);
+    }
+
+    /**
+     * Reads the values of the buffer from its current position.
+     */
+    static final class Decoder {
+        private final ByteBuffer buffer;
+        private final StringPool stringPool = new StringPool();
+
+        Decoder(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        LoadedConstraints.Builder readConstraints() {
+            final int count = buffer.getInt();
+            final LoadedConstraints.Builder builder = LoadedConstraints.builder();
+            for (int i = 0; i < count; i++) {
+                final LoadedConstraint.Builder constraintBuilder =
+                    LoadedConstraint
+                        .builder()
+                        .group(readString())
+                        .name(readString())
+                        .suggestedVersion(readString())
+                        .because(readString());
+                final int rejectedCount = buffer.getInt();
+                for (int j = 0; j < rejectedCount; j++) {
+                    constraintBuilder.addReject(readString());
+                }
+                builder.addConstraint(constraintBuilder.build());
+            }
+            return builder;
+        }
+
+        byte[] readBytes() {
+            final byte[] bytes = new byte[readLength()];
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        String readString() {
+            final int length = readLength();
+            final int position = buffer.position();
+            final String value = stringPool.intern(buffer, position, length);
+            buffer.position(position + length);
+            return value;
+        }
+
+        private int readLength() {
+            final int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            return length;
+        }
+    }
+}
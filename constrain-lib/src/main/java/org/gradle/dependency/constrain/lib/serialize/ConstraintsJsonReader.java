@@ -18,154 +18,165 @@ package org.gradle.dependency.constrain.lib.serialize;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.core.JsonFactory;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.StreamReadFeature;
 import com.fasterxml.jackson.core.util.DefaultIndenter;
 import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
-import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.MissingNode;
 import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
-import com.github.difflib.DiffUtils;
-import com.github.difflib.UnifiedDiffUtils;
-import com.github.difflib.patch.Patch;
-import com.networknt.schema.JsonSchema;
-import com.networknt.schema.JsonSchemaException;
-import com.networknt.schema.JsonSchemaFactory;
-import com.networknt.schema.SpecVersion;
-import com.networknt.schema.ValidationMessage;
 import org.gradle.dependency.constrain.lib.DependencyConstrainException;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainMetrics;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainPhase;
 import org.gradle.dependency.constrain.lib.model.LoadedConstraint;
 import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
 
 import javax.annotation.Nullable;
 import javax.annotation.WillClose;
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.lang.reflect.Field;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import java.util.stream.Collectors;
 
-import static org.gradle.dependency.constrain.lib.serialize.ConstrainFileLoader.DEPENDENCY_CONSTRAINTS_FILE_PATH_RELATIVE;
-
 /**
  * Loads the {@link LoadedConstraints} from an input stream of JSON.
  */
 public class ConstraintsJsonReader {
-    private static final String CONSTRAINTS_SPECIFICATION = "schema/dependency-constraints-schema.json";
+    /**
+     * The version of the dependency constraints file format supported by this reader.
+     */
+    static final String SUPPORTED_VERSION = "1.0.0";
 
     /**
      * Parses the JSON from the given input stream and returns the {@link LoadedConstraints}.
      */
     public static LoadedConstraints readFromJson(@WillClose InputStream in) {
+        final byte[] content;
+        try (InputStream useIn = in) {
+            content = readAllBytes(useIn);
+        } catch (IOException ex) {
+            throw new DependencyConstrainException("Unable to read dependency constraints", ex);
+        }
+        return readFromJson(content);
+    }
+
+    /**
+     * Parses the UTF-8 encoded JSON content and returns the {@link LoadedConstraints}.
+     */
+    public static LoadedConstraints readFromJson(byte[] content) {
         try {
-            return doReadFromJson(in);
+            return doReadFromJson(content);
         } catch (Exception ex) {
             throw new DependencyConstrainException("Unable to read dependency constraints", ex);
         }
     }
 
+    /**
+     * Parses UTF-8 encoded JSON content that already passed the validation, as recorded by {@link ConstraintsValidation},
+     * without verifying its formatting and its sort order again. Content that doesn't have the expected structure is
+     * still read with the full validation, to report why.
+     */
+    static LoadedConstraints readTrustedFromJson(byte[] content) {
+        final LoadedConstraints loadedConstraints;
+        try (ConstrainMetrics.Phase phase = ConstrainMetrics.start(ConstrainPhase.STREAMING_PARSE, null)) {
+            loadedConstraints = StreamingConstraintsJsonReader.tryReadTrusted(Jackson.MAPPER.getFactory(), content);
+            countConstraints(phase, loadedConstraints);
+        }
+        return loadedConstraints != null ? loadedConstraints : readFromJson(content);
+    }
+
+    /**
+     * Reads the JSON with the single pass {@link StreamingConstraintsJsonReader}, falling back to the full validation
+     * pipeline only when the input is not valid or not formatted correctly.
+     */
+    private static LoadedConstraints doReadFromJson(byte[] content) {
+        final ObjectMapper mapper = Jackson.MAPPER;
+        final LoadedConstraints loadedConstraints;
+        try (ConstrainMetrics.Phase phase = ConstrainMetrics.start(ConstrainPhase.STREAMING_PARSE, null)) {
+            loadedConstraints =
+                StreamingConstraintsJsonReader.tryRead(mapper.getFactory(), Jackson.PRETTY_PRINTER.createInstance(), content);
+            countConstraints(phase, loadedConstraints);
+        }
+        if (loadedConstraints != null) {
+            return loadedConstraints;
+        }
+        return doReadFromJsonWithFullValidation(mapper, content);
+    }
+
+    private static void countConstraints(ConstrainMetrics.Phase phase, @Nullable LoadedConstraints loadedConstraints) {
+        if (loadedConstraints != null) {
+            phase.count(loadedConstraints.getConstraints().size());
+        }
+    }
+
     /**
      * Performs the primary processing sequence for reading in and converting the JSON.
+     * This is only used to generate the detailed error messages when the input is not valid or not formatted correctly.
      */
-    private static LoadedConstraints doReadFromJson(@WillClose InputStream in) {
-        final JsonSchema schema = createSchemaValidator();
-        final ObjectMapper mapper = createObjectMapper();
-        // 1. Read the JSON input creating various intermediate object formats to be used later.
-        final InputStreamExtractedData extractedData = InputStreamExtractedData.create(mapper, in);
-        final JsonNode json = extractedData.json;
-        final List<String> inputLines = extractedData.inputLines;
+    private static LoadedConstraints doReadFromJsonWithFullValidation(ObjectMapper mapper, byte[] content) {
+        // 1. Read the JSON input, and a view of its lines to be used later.
+        final JsonNode json = readTree(mapper, content);
+        final List<String> inputLines = ContentLines.of(content);
+        if (inputLines.isEmpty()) {
+            throw new DependencyConstrainException("File is empty");
+        }
         // 2. Validate the JSON against the schema
-        validateAgainstJsonSchema(schema, json);
-        // 3. Convert the JSON to a JsonDependencyConstraints format.
-        final JsonDependencyConstraints constraints = readJsonDependencyConstraints(mapper, json);
-        // 4. Build the LoadedConstraints object, performing any additional validation.
-        final LoadedConstraints loadedConstraints = buildLoadedConstraints(constraints);
-        // 5. Generate a version of the input that is correctly formatted.
-        final List<String> formattedJson = generateFormattedJson(mapper, json);
-        // 6. Verify that the formatted JSON is the same as the input.
-        verifyNoFormattingDifferences(inputLines, formattedJson);
+        try (ConstrainMetrics.Phase ignored = ConstrainMetrics.start(ConstrainPhase.SCHEMA_VALIDATION, null)) {
+            validateAgainstJsonSchema(json);
+        }
+        final LoadedConstraints loadedConstraints;
+        try (ConstrainMetrics.Phase phase = ConstrainMetrics.start(ConstrainPhase.BINDING, null)) {
+            // 3. Convert the JSON to a JsonDependencyConstraints format.
+            final JsonDependencyConstraints constraints = readJsonDependencyConstraints(json);
+            // 4. Build the LoadedConstraints object, performing any additional validation.
+            loadedConstraints = buildLoadedConstraints(constraints);
+            phase.count(loadedConstraints.getConstraints().size());
+        }
+        // 5. Verify that the input is formatted correctly, by comparing it line by line with its canonical formatting.
+        try (ConstrainMetrics.Phase ignored = ConstrainMetrics.start(ConstrainPhase.FORMAT_CHECK, null)) {
+            CanonicalFormatChecker.verifyNoFormattingDifferences(
+                mapper.getFactory(),
+                Jackson.PRETTY_PRINTER.createInstance(),
+                content,
+                inputLines
+            );
+        }
         return loadedConstraints;
     }
 
-    private static class InputStreamExtractedData {
-        private final JsonNode json;
-        private final List<String> inputLines;
-
-        private InputStreamExtractedData(JsonNode json, List<String> inputLines) {
-            this.json = json;
-            this.inputLines = inputLines;
+    private static JsonNode readTree(ObjectMapper mapper, byte[] content) {
+        try {
+            final JsonNode json = mapper.readTree(content);
+            return json != null ? json : MissingNode.getInstance();
+        } catch (IOException ex) {
+            throw new DependencyConstrainException("Unable to read dependency constraints", ex);
         }
+    }
 
-        public static InputStreamExtractedData create(ObjectMapper mapper, @WillClose InputStream in) {
-            final JsonNode json;
-            final List<String> inputLines;
-            try (BufferedReader useIn = new BufferedReader(new InputStreamReader(in))) {
-                useIn.mark(1 << 24); // Mark the stream so we can reset it later
-                // StreamReadFeature.AUTO_CLOSE_SOURCE was disabled when creating the ObjectFactory
-                json = mapper.readTree(useIn);
-                useIn.reset();
-                inputLines = useIn.lines().collect(Collectors.toList());
-                if (inputLines.isEmpty()) {
-                    throw new DependencyConstrainException("File is empty");
-                }
-            } catch (IOException ex) {
-                throw new DependencyConstrainException("Unable to read dependency constraints", ex);
-            }
-            return new InputStreamExtractedData(json, inputLines);
+    static byte[] readAllBytes(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
         }
+        return out.toByteArray();
     }
 
-    private static List<String> generateFormattedJson(ObjectMapper objectMapper, JsonNode json) {
+    /**
+     * Creates the pretty printer producing the canonical formatting of the dependency constraints file.
+     */
+    private static DefaultPrettyPrinter createPrettyPrinter() {
         final DefaultPrettyPrinter prettyPrinter = new DefaultPrettyPrinter();
         monkeyPatchDefaultPrettyPrinter(prettyPrinter);
         final DefaultIndenter indenter = new DefaultIndenter();
         prettyPrinter.indentArraysWith(indenter);
         prettyPrinter.indentObjectsWith(indenter);
-        final ObjectWriter writer = objectMapper.writer(prettyPrinter);
-        final String output;
-        try {
-            output = writer.writeValueAsString(json);
-        } catch (JsonProcessingException e) {
-            throw new DependencyConstrainException(
-                "Unable to generate formatted JSON for dependency constraints",
-                e
-            );
-        }
-        return Arrays.asList(output.split(System.lineSeparator()));
-    }
-
-    /**
-     * Verifies that the input matches exactly the formatting that we expect.
-     * Will generate an exception containing the diff required to make the input match the expected format.
-     */
-    private static void verifyNoFormattingDifferences(List<String> input, List<String> formatted) {
-        final Patch<String> patch = DiffUtils.diff(input, formatted);
-        if (!patch.getDeltas().isEmpty()) {
-            final List<String> strings = UnifiedDiffUtils.generateUnifiedDiff(
-                DEPENDENCY_CONSTRAINTS_FILE_PATH_RELATIVE,
-                DEPENDENCY_CONSTRAINTS_FILE_PATH_RELATIVE,
-                input,
-                patch,
-                0
-            );
-            final String newline = System.lineSeparator();
-            final String fixDiffToApply =
-                strings
-                    .stream()
-                    .collect(Collectors.joining(newline + "  ", "  ", ""));
-            throw new DependencyConstrainException(
-                "The dependency constraints are not formatted correctly. Please apply this patch to fix the formatting:" +
-                    newline +
-                    fixDiffToApply
-            );
-        }
+        return prettyPrinter;
     }
 
     private static void monkeyPatchDefaultPrettyPrinter(DefaultPrettyPrinter prettyPrinter) {
@@ -187,33 +198,35 @@ public class ConstraintsJsonReader {
         }
     }
 
-    private static void validateAgainstJsonSchema(JsonSchema schema, JsonNode json) {
-        final Set<ValidationMessage> validationMessages = schema.validate(json);
+    /**
+     * Validates the JSON with the {@link ConstraintsSchemaValidator} generated from the schema at build time.
+     */
+    private static void validateAgainstJsonSchema(JsonNode json) {
+        final List<String> validationMessages = ConstraintsSchemaValidator.validate(json);
         if (!validationMessages.isEmpty()) {
             final String newline = System.lineSeparator();
             final String violationMessage =
                 validationMessages
                     .stream()
-                    .map(ValidationMessage::getMessage)
                     .collect(Collectors.joining(newline + "  - ", "  - ", ""));
             throw new DependencyConstrainException("Dependency constraints contains schema violations:" + newline + violationMessage);
         }
     }
 
-    private static JsonDependencyConstraints readJsonDependencyConstraints(ObjectMapper mapper, JsonNode json) {
-        final ObjectReader objectReader = mapper.readerFor(JsonDependencyConstraints.class);
+    private static JsonDependencyConstraints readJsonDependencyConstraints(JsonNode json) {
         try {
-            return objectReader.readValue(json);
+            return Jackson.CONSTRAINTS_READER.readValue(json);
         } catch (IOException ex) {
             throw new DependencyConstrainException("Unable to read dependency constraints", ex);
         }
     }
 
     private static LoadedConstraints buildLoadedConstraints(JsonDependencyConstraints constraints) {
-        if (!"1.0.0".equals(constraints.version)) {
+        if (!SUPPORTED_VERSION.equals(constraints.version)) {
             throw new DependencyConstrainException("Unsupported dependency constraints version: " + constraints.version);
         }
         final LoadedConstraints.Builder builder = LoadedConstraints.builder();
+        final StringPool stringPool = new StringPool();
         constraints.dependencyConstraints.forEach(constraint -> {
             final String because =
                 constraint
@@ -228,30 +241,17 @@ public class ConstraintsJsonReader {
             final LoadedConstraint.Builder constraintBuilder =
                 LoadedConstraint
                     .builder()
-                    .group(constraint.group)
-                    .name(constraint.name)
-                    .suggestedVersion(constraint.suggestedVersion)
-                    .because(because);
-            constraint.rejectedVersions.ifPresent(rejections -> rejections.forEach(constraintBuilder::addReject));
+                    .group(stringPool.intern(constraint.group))
+                    .name(stringPool.intern(constraint.name))
+                    .suggestedVersion(stringPool.intern(constraint.suggestedVersion))
+                    .because(stringPool.intern(because));
+            constraint.rejectedVersions.ifPresent(rejections ->
+                rejections.forEach(rejection -> constraintBuilder.addReject(stringPool.intern(rejection))));
             builder.addConstraint(constraintBuilder.build());
         });
         return builder.build();
     }
 
-    private static JsonSchema createSchemaValidator() {
-        final JsonSchemaFactory factory =
-            JsonSchemaFactory.builder(JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V201909)).build();
-        try {
-            return factory
-                .getSchema(
-                    ConstraintsJsonReader.class.getClassLoader().getResourceAsStream(CONSTRAINTS_SPECIFICATION)
-                );
-        } catch (JsonSchemaException ex) {
-            throw new DependencyConstrainException(
-                "Unable to load dependency constraints schema (resource: " + CONSTRAINTS_SPECIFICATION + ")", ex);
-        }
-    }
-
     static final class JsonDependencyConstraints {
         private final String version;
         private final List<JsonDependencyConstraint> dependencyConstraints;
@@ -308,6 +308,15 @@ public class ConstraintsJsonReader {
         }
     }
 
+    /**
+     * Holds the Jackson instances shared by all reads, which are thread-safe once configured.
+     * They are created when the first constraints are read.
+     */
+    private static final class Jackson {
+        static final ObjectMapper MAPPER = createObjectMapper();
+        static final DefaultPrettyPrinter PRETTY_PRINTER = createPrettyPrinter();
+        static final ObjectReader CONSTRAINTS_READER = MAPPER.readerFor(JsonDependencyConstraints.class);
+    }
 
     private static ObjectMapper createObjectMapper() {
         final JsonFactory factory =
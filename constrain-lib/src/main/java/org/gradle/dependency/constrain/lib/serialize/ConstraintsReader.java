@@ -0,0 +1,56 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize;
+
+import org.gradle.dependency.constrain.lib.DependencyConstrainException;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the {@link LoadedConstraints} of a format of constraints files. The reader of a content is selected by
+ * {@link ConstraintsReaders#forContent}.
+ * <p>
+ * The readers don't change the position of the content buffers, which may be read several times.
+ */
+public interface ConstraintsReader {
+
+    /**
+     * The extension of the files in this format, eg. {@code .json}.
+     */
+    String getFileExtension();
+
+    /**
+     * Whether the content is in this format, as far as its first bytes tell.
+     */
+    boolean accepts(ByteBuffer content);
+
+    /**
+     * Reads and fully validates the constraints.
+     *
+     * @throws DependencyConstrainException when the content is not valid, with the reason as the cause
+     */
+    LoadedConstraints read(ByteBuffer content);
+
+    /**
+     * Reads constraints already validated, as recorded by {@link ConstraintsValidation}, skipping the checks that
+     * passed before when the format allows it.
+     */
+    default LoadedConstraints readTrusted(ByteBuffer content) {
+        return read(content);
+    }
+}
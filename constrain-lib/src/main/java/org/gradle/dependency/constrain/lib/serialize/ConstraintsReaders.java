@@ -0,0 +1,203 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize;
+
+import org.gradle.dependency.constrain.lib.DependencyConstrainException;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainMetrics;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainPhase;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@link ConstraintsReader}s of the supported formats: the JSON and XML files authored by hand, and the
+ * {@link ConstraintsBinaryFormat binary files} generated for large constraint sets.
+ * <p>
+ * The format of a content is detected from its first bytes: the magic of the binary form, or the first character of
+ * the text formats after any byte order mark and whitespace, {@code '{'} for JSON and {@code '<'} for XML.
+ */
+public final class ConstraintsReaders {
+    private static final byte[] UTF_8_BYTE_ORDER_MARK = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final List<ConstraintsReader> READERS = Collections.unmodifiableList(Arrays.asList(
+        new BinaryReader(),
+        new JsonReader(),
+        new XmlReader()
+    ));
+
+    private ConstraintsReaders() {
+        // Utility class
+    }
+
+    public static List<ConstraintsReader> all() {
+        return READERS;
+    }
+
+    /**
+     * The reader of the content, detected from its first bytes. A content that isn't recognized, eg. an empty file, is
+     * read in the format of the file extension, to report why it can't be read.
+     *
+     * @throws DependencyConstrainException when neither the content nor the file extension match a format
+     */
+    public static ConstraintsReader forContent(String fileName, ByteBuffer content) {
+        for (ConstraintsReader reader : READERS) {
+            if (reader.accepts(content)) {
+                return reader;
+            }
+        }
+        for (ConstraintsReader reader : READERS) {
+            if (fileName.endsWith(reader.getFileExtension())) {
+                return reader;
+            }
+        }
+        throw new DependencyConstrainException(
+            "Unable to read dependency constraints",
+            new DependencyConstrainException("The format of " + fileName + " is not supported, expected JSON, XML or binary constraints")
+        );
+    }
+
+    /**
+     * Whether the file name has the extension of a supported format.
+     */
+    static boolean isConstraintsFileName(String fileName) {
+        for (ConstraintsReader reader : READERS) {
+            if (fileName.endsWith(reader.getFileExtension())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The first byte of the text, after the byte order mark and the whitespace, or {@code -1} if there is none.
+     */
+    private static int firstSignificantByte(ByteBuffer content) {
+        int position = content.position();
+        if (startsWith(content, UTF_8_BYTE_ORDER_MARK)) {
+            position += UTF_8_BYTE_ORDER_MARK.length;
+        }
+        for (; position < content.limit(); position++) {
+            final byte b = content.get(position);
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return b;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(ByteBuffer content, byte[] prefix) {
+        if (content.remaining() < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (content.get(content.position() + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The bytes of the content, without copying them when the content wraps a whole array.
+     */
+    private static byte[] bytes(ByteBuffer content) {
+        if (content.hasArray() && content.arrayOffset() == 0 && content.position() == 0 && content.remaining() == content.array().length) {
+            return content.array();
+        }
+        final byte[] bytes = new byte[content.remaining()];
+        content.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static final class JsonReader implements ConstraintsReader {
+        @Override
+        public String getFileExtension() {
+            return ".json";
+        }
+
+        @Override
+        public boolean accepts(ByteBuffer content) {
+            return firstSignificantByte(content) == '{';
+        }
+
+        @Override
+        public LoadedConstraints read(ByteBuffer content) {
+            return ConstraintsJsonReader.readFromJson(bytes(content));
+        }
+
+        @Override
+        public LoadedConstraints readTrusted(ByteBuffer content) {
+            return ConstraintsJsonReader.readTrustedFromJson(bytes(content));
+        }
+    }
+
+    private static final class XmlReader implements ConstraintsReader {
+        @Override
+        public String getFileExtension() {
+            return ".xml";
+        }
+
+        @Override
+        public boolean accepts(ByteBuffer content) {
+            return firstSignificantByte(content) == '<';
+        }
+
+        @Override
+        public LoadedConstraints read(ByteBuffer content) {
+            try (ConstrainMetrics.Phase phase = ConstrainMetrics.start(ConstrainPhase.STREAMING_PARSE, null)) {
+                final LoadedConstraints loadedConstraints = ConstraintsXmlReader.readFromXml(new ByteArrayInputStream(bytes(content)));
+                phase.count(loadedConstraints.getConstraints().size());
+                return loadedConstraints;
+            }
+        }
+    }
+
+    private static final class BinaryReader implements ConstraintsReader {
+        @Override
+        public String getFileExtension() {
+            return ConstraintsBinaryFormat.FILE_EXTENSION;
+        }
+
+        @Override
+        public boolean accepts(ByteBuffer content) {
+            return ConstraintsBinaryFormat.hasMagic(content);
+        }
+
+        @Override
+        public LoadedConstraints read(ByteBuffer content) {
+            return decode(content, false);
+        }
+
+        @Override
+        public LoadedConstraints readTrusted(ByteBuffer content) {
+            return decode(content, true);
+        }
+
+        private static LoadedConstraints decode(ByteBuffer content, boolean trusted) {
+            try (ConstrainMetrics.Phase phase = ConstrainMetrics.start(ConstrainPhase.STREAMING_PARSE, null)) {
+                final LoadedConstraints loadedConstraints = ConstraintsBinaryFormat.decode(content, trusted);
+                phase.count(loadedConstraints.getConstraints().size());
+                return loadedConstraints;
+            } catch (DependencyConstrainException e) {
+                throw new DependencyConstrainException("Unable to read dependency constraints", e);
+            }
+        }
+    }
+}
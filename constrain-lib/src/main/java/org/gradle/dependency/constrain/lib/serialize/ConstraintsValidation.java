@@ -0,0 +1,134 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.dependency.constrain.lib.DependencyConstrainException;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Validates constraints files ahead of loading them, eg. from a cacheable task, and records which contents were
+ * validated, so that loading a validated content only needs a trusted parse, without the schema validation, the format
+ * verification and the sort check.
+ * <p>
+ * A record is an empty file named after the digest of the validated content, in a directory named after the
+ * {@link #schemaDigest() digest of the schema and of the validation rules} it was validated with. A changed file has
+ * another digest, and the records of earlier contents are still valid when a file is reverted, but the records written
+ * by a plugin validating with another schema or other rules are ignored, so that their contents are validated again.
+ */
+public final class ConstraintsValidation {
+    static final String RECORDS_DIRECTORY_NAME = "validated";
+    private static final String SCHEMA_RESOURCE = "schema/dependency-constraints-schema.json";
+    /**
+     * Bumped whenever the validation besides the schema gets stricter, eg. the format verification or the sort check,
+     * so that the contents validated with the previous rules are validated again.
+     */
+    private static final int VALIDATION_RULES_VERSION = 1;
+
+    private ConstraintsValidation() {
+        // Utility class
+    }
+
+    /**
+     * The directory of the records, in the given project cache directory (eg. {@code .gradle}).
+     */
+    public static File recordsDirectory(File projectCacheDirectory) {
+        return new File(new File(projectCacheDirectory, ConstrainFileLoader.CACHE_DIRECTORY_NAME), RECORDS_DIRECTORY_NAME);
+    }
+
+    /**
+     * Fully validates the constraints file, and records its content as validated.
+     *
+     * @throws DependencyConstrainException when the constraints file is not valid
+     */
+    public static void validate(File constraintsFile, File recordsDirectory) {
+        try {
+            final byte[] content = Files.readAllBytes(constraintsFile.toPath());
+            final ByteBuffer buffer = ByteBuffer.wrap(content);
+            ConstraintsReaders.forContent(constraintsFile.getName(), buffer).read(buffer);
+            Files.createDirectories(recordsDirectory.toPath());
+            final File record = recordFile(recordsDirectory, ConstrainFileLoader.digest(content));
+            Files.createDirectories(record.getParentFile().toPath());
+            if (!record.isFile()) {
+                Files.createFile(record.toPath());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (DependencyConstrainException e) {
+            throw new DependencyConstrainException("Failed to validate constraints from " + constraintsFile, e.getCause());
+        }
+    }
+
+    /**
+     * Whether the content with the given digest was validated with the current schema and validation rules.
+     */
+    static boolean isValidated(@Nullable File recordsDirectory, byte[] digest) {
+        return recordsDirectory != null && recordFile(recordsDirectory, digest).isFile();
+    }
+
+    static File recordFile(File recordsDirectory, byte[] digest) {
+        return recordFile(recordsDirectory, schemaDigest(), digest);
+    }
+
+    static File recordFile(File recordsDirectory, String schemaDigest, byte[] digest) {
+        return new File(new File(recordsDirectory, schemaDigest), toHex(digest));
+    }
+
+    private static String toHex(byte[] digest) {
+        final StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * The digest of the schema the constraints are validated against and of the version of the other validation rules,
+     * so that the contents are validated again when either changes, eg. as an input of the validation task.
+     */
+    public static String schemaDigest() {
+        return SchemaDigestHolder.SCHEMA_DIGEST;
+    }
+
+    /**
+     * Computes the digest once, as every load of the constraints checks the records.
+     */
+    private static final class SchemaDigestHolder {
+        private static final String SCHEMA_DIGEST = computeSchemaDigest();
+
+        private static String computeSchemaDigest() {
+            try (InputStream schema = ConstraintsValidation.class.getClassLoader().getResourceAsStream(SCHEMA_RESOURCE)) {
+                if (schema == null) {
+                    throw new IllegalStateException("Unable to find the dependency constraints schema " + SCHEMA_RESOURCE);
+                }
+                final byte[] schemaContent = ConstraintsJsonReader.readAllBytes(schema);
+                final byte[] content = Arrays.copyOf(schemaContent, schemaContent.length + Integer.BYTES);
+                ByteBuffer.wrap(content).putInt(schemaContent.length, VALIDATION_RULES_VERSION);
+                return toHex(ConstrainFileLoader.digest(content));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -19,31 +19,24 @@ package org.gradle.dependency.constrain.lib.serialize;
 import org.gradle.dependency.constrain.lib.DependencyConstrainException;
 import org.gradle.dependency.constrain.lib.model.LoadedConstraint;
 import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
-import org.xml.sax.Attributes;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
-import org.xml.sax.ext.DefaultHandler2;
 
-import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.WillClose;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
 
-import static org.gradle.dependency.constrain.lib.serialize.ConstraintsXmlTags.ADVISORY;
-import static org.gradle.dependency.constrain.lib.serialize.ConstraintsXmlTags.BECAUSE;
-import static org.gradle.dependency.constrain.lib.serialize.ConstraintsXmlTags.CONSTRAINT;
-import static org.gradle.dependency.constrain.lib.serialize.ConstraintsXmlTags.CONSTRAINTS;
-import static org.gradle.dependency.constrain.lib.serialize.ConstraintsXmlTags.GROUP;
-import static org.gradle.dependency.constrain.lib.serialize.ConstraintsXmlTags.NAME;
-import static org.gradle.dependency.constrain.lib.serialize.ConstraintsXmlTags.REJECT;
-import static org.gradle.dependency.constrain.lib.serialize.ConstraintsXmlTags.REJECTED;
-import static org.gradle.dependency.constrain.lib.serialize.ConstraintsXmlTags.SUGGESTED_VERSION;
-
+/**
+ * Loads the {@link LoadedConstraints} from an input stream of XML, with a StAX pull parser.
+ */
 public final class ConstraintsXmlReader {
 
     /**
@@ -59,56 +52,134 @@ public final class ConstraintsXmlReader {
         @WillClose InputStream in, LoadedConstraints.Builder constraintsBuilder
     ) {
         try (InputStream inputStream = in) {
-            SAXParser saxParser = createSecureParser();
-            XMLReader xmlReader = saxParser.getXMLReader();
-            ConstraintsHandler handler = new ConstraintsHandler(constraintsBuilder);
-            xmlReader.setProperty("http://xml.org/sax/properties/lexical-handler", handler);
-            xmlReader.setContentHandler(handler);
-            xmlReader.parse(new InputSource(inputStream));
+            XMLStreamReader reader = Stax.INPUT_FACTORY.createXMLStreamReader(inputStream);
+            try {
+                new ConstraintsParser(reader, constraintsBuilder).parse();
+            } finally {
+                reader.close();
+            }
         } catch (IOException
-            | SAXException
-            | ParserConfigurationException
+            | XMLStreamException
             | DependencyConstrainException e) {
             throw new DependencyConstrainException("Unable to read dependency constraints", e);
         }
     }
 
-    private static SAXParser createSecureParser() throws ParserConfigurationException, SAXException {
-        SAXParserFactory spf = SAXParserFactory.newInstance();
-        spf.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-        spf.setFeature("http://xml.org/sax/features/namespaces", false);
-        spf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-        return spf.newSAXParser();
+    /**
+     * Holds the factory shared by all reads, which is thread-safe once configured.
+     * It is created when the first constraints are read.
+     */
+    private static final class Stax {
+        static final XMLInputFactory INPUT_FACTORY = createSecureInputFactory();
+
+        private static XMLInputFactory createSecureInputFactory() {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+            // The text is accumulated by the parser, there is no need to coalesce it first
+            factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+            try {
+                factory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            } catch (IllegalArgumentException e) {
+                // Not supported by this StAX implementation, external DTDs are already disabled
+            }
+            return factory;
+        }
+    }
+
+    /**
+     * The elements of the constraints file, with the element they must be found under.
+     */
+    private enum Element {
+        CONSTRAINTS(ConstraintsXmlTags.CONSTRAINTS, null, false),
+        CONSTRAINT(ConstraintsXmlTags.CONSTRAINT, CONSTRAINTS, false),
+        GROUP(ConstraintsXmlTags.GROUP, CONSTRAINT, true),
+        NAME(ConstraintsXmlTags.NAME, CONSTRAINT, true),
+        SUGGESTED_VERSION(ConstraintsXmlTags.SUGGESTED_VERSION, CONSTRAINT, true),
+        REJECTED(ConstraintsXmlTags.REJECTED, CONSTRAINT, false),
+        REJECT(ConstraintsXmlTags.REJECT, REJECTED, true),
+        BECAUSE(ConstraintsXmlTags.BECAUSE, CONSTRAINT, true);
+
+        private static final Map<String, Element> BY_TAG = new HashMap<>();
+
+        static {
+            for (Element element : values()) {
+                BY_TAG.put(element.tag, element);
+            }
+        }
+
+        final String tag;
+        @Nullable
+        final Element parent;
+        final boolean hasText;
+
+        Element(String tag, @Nullable Element parent, boolean hasText) {
+            this.tag = tag;
+            this.parent = parent;
+            this.hasText = hasText;
+        }
+
+        /**
+         * The element of the tag, or {@code null} for the tags that are not part of the constraints file, which are
+         * ignored.
+         */
+        @Nullable
+        static Element of(String tag) {
+            return BY_TAG.get(tag);
+        }
     }
 
     /**
-     * Handler that parses the constraints.xml file building the {@link LoadedConstraints} via the
+     * Pulls the events of the constraints.xml file building the {@link LoadedConstraints} via the
      * {@link LoadedConstraints.Builder}.
+     * <p>
+     * The text of an element can be reported in several chunks. They are accumulated in a buffer reused for every
+     * element, whose characters are looked up in the {@link StringPool} without creating a string for the values
+     * already read.
      */
-    private static class ConstraintsHandler extends DefaultHandler2 {
+    private static final class ConstraintsParser {
+        private static final int INITIAL_TEXT_CAPACITY = 256;
+
+        private final XMLStreamReader reader;
         private final LoadedConstraints.Builder constraintsBuilder;
+        private final StringPool stringPool = new StringPool();
+        /**
+         * The elements being read, ignoring the unknown elements around them.
+         */
+        private final EnumSet<Element> openElements = EnumSet.noneOf(Element.class);
+        private int openTextElements;
+        private char[] text = new char[INITIAL_TEXT_CAPACITY];
+        private int textLength;
         private LoadedConstraint.Builder currentConstraintBuilder;
-        private boolean inConstraints;
-        private boolean inConstraint;
-        private boolean inGroup;
-        private boolean inName;
-        private boolean inSuggestedVersion;
-        private boolean inRejected;
-        private boolean inReject;
-        private boolean inBecause;
-        private String currentGroup;
-        private String currentName;
-        private String currentSuggestedVersion;
-        private String currentReject;
-        private String currentBecause;
 
-        ConstraintsHandler(LoadedConstraints.Builder constraintsBuilder) {
+        ConstraintsParser(XMLStreamReader reader, LoadedConstraints.Builder constraintsBuilder) {
+            this.reader = reader;
             this.constraintsBuilder = constraintsBuilder;
         }
 
-        @Nonnull
-        private static String createOrAppend(@Nullable String current, @Nonnull String append) {
-            return current == null ? append : current + append;
+        void parse() throws XMLStreamException {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        startElement();
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        endElement();
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if (openTextElements > 0) {
+                            appendText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                        break;
+                    case XMLStreamConstants.DTD:
+                        throw new XMLStreamException("DOCTYPE is not allowed", reader.getLocation());
+                    default:
+                        break;
+                }
+            }
         }
 
         private static void assertContext(boolean test, String innerTag, String outerTag) {
@@ -121,110 +192,98 @@ public final class ConstraintsXmlReader {
             }
         }
 
-        @Override
-        public void startElement(String uri, String localName, String qName, Attributes attributes) {
-            switch (qName) {
-                case CONSTRAINTS:
-                    inConstraints = true;
-                    break;
+        private void startElement() {
+            Element element = Element.of(reader.getLocalName());
+            if (element == null) {
+                return;
+            }
+            if (element.parent != null) {
+                assertContext(openElements.contains(element.parent), element.tag, element.parent.tag);
+            }
+            openElements.add(element);
+            if (element.hasText) {
+                openTextElements++;
+                textLength = 0;
+            }
+            switch (element) {
                 case CONSTRAINT:
-                    assertContext(inConstraints, CONSTRAINT, CONSTRAINTS);
-                    inConstraint = true;
                     assert currentConstraintBuilder == null : "`currentConstraintBuilder` already defined";
                     currentConstraintBuilder = LoadedConstraint.builder();
                     break;
-                case GROUP:
-                    assertContext(inConstraint, GROUP, CONSTRAINT);
-                    inGroup = true;
-                    break;
-                case NAME:
-                    assertContext(inConstraint, NAME, CONSTRAINT);
-                    inName = true;
-                    break;
-                case SUGGESTED_VERSION:
-                    assertContext(inConstraint, SUGGESTED_VERSION, CONSTRAINT);
-                    inSuggestedVersion = true;
-                    break;
-                case REJECTED:
-                    assertContext(inConstraint, REJECTED, CONSTRAINT);
-                    inRejected = true;
-                    break;
-                case REJECT:
-                    assertContext(inRejected, REJECT, REJECTED);
-                    inReject = true;
-                    break;
                 case BECAUSE:
-                    assertContext(inConstraint, BECAUSE, CONSTRAINT);
-                    maybeExtractAdvisory(attributes);
-                    inBecause = true;
+                    maybeExtractAdvisory();
+                    break;
+                default:
                     break;
             }
         }
 
-        @Override
-        public void endElement(String uri, String localName, String qName) {
-            switch (qName) {
-                case CONSTRAINTS:
-                    inConstraints = false;
-                    break;
+        private void endElement() {
+            Element element = Element.of(reader.getLocalName());
+            if (element == null) {
+                return;
+            }
+            openElements.remove(element);
+            if (element.hasText) {
+                openTextElements--;
+            }
+            switch (element) {
                 case CONSTRAINT:
-                    inConstraint = false;
                     assertConstraintValid();
                     constraintsBuilder.addConstraint(currentConstraintBuilder.build());
                     currentConstraintBuilder = null;
                     break;
                 case GROUP:
-                    currentConstraintBuilder.group(currentGroup);
-                    currentGroup = null;
-                    inGroup = false;
+                    currentConstraintBuilder.group(pooledText());
                     break;
                 case NAME:
-                    currentConstraintBuilder.name(currentName);
-                    currentName = null;
-                    inName = false;
+                    currentConstraintBuilder.name(pooledText());
                     break;
                 case SUGGESTED_VERSION:
-                    currentConstraintBuilder.suggestedVersion(currentSuggestedVersion);
-                    currentSuggestedVersion = null;
-                    inSuggestedVersion = false;
-                    break;
-                case REJECTED:
-                    inRejected = false;
+                    currentConstraintBuilder.suggestedVersion(pooledText());
                     break;
                 case REJECT:
-                    currentConstraintBuilder.addReject(currentReject);
-                    inReject = false;
-                    currentReject = null;
+                    currentConstraintBuilder.addReject(pooledText());
                     break;
                 case BECAUSE:
-                    currentConstraintBuilder.because(currentBecause);
-                    inBecause = false;
-                    currentBecause = null;
+                    currentConstraintBuilder.because(pooledText());
+                    break;
+                default:
                     break;
             }
         }
 
-        @Override
-        public void characters(char[] ch, int start, int length) {
-            // This method could be called multiple times for the same subset of a string
-            if (inGroup) {
-                currentGroup = createOrAppend(currentGroup, new String(ch, start, length));
-            }
-            if (inName) {
-                currentName = createOrAppend(currentName, new String(ch, start, length));
-            }
-            if (inSuggestedVersion) {
-                currentSuggestedVersion =
-                    createOrAppend(currentSuggestedVersion, new String(ch, start, length));
-            }
-            if (inReject) {
-                currentReject = createOrAppend(currentReject, new String(ch, start, length));
-            }
-            if (inBecause) {
-                currentBecause = createOrAppend(currentBecause, new String(ch, start, length));
+        private void appendText(char[] characters, int start, int length) {
+            ensureTextCapacity(length);
+            System.arraycopy(characters, start, text, textLength, length);
+            textLength += length;
+        }
+
+        private void appendText(String value) {
+            ensureTextCapacity(value.length());
+            value.getChars(0, value.length(), text, textLength);
+            textLength += value.length();
+        }
+
+        /**
+         * Grows the buffer geometrically, so that accumulating a long text split in many chunks stays linear.
+         */
+        private void ensureTextCapacity(int additionalLength) {
+            if (textLength + additionalLength > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + additionalLength));
             }
         }
 
+        /**
+         * The text of the element that just ended, or {@code null} if it had none.
+         */
+        @Nullable
+        private String pooledText() {
+            String value = textLength == 0 ? null : stringPool.intern(text, 0, textLength);
+            textLength = 0;
+            return value;
+        }
+
         /**
          * Asserts that the {@code <constraint>...</constraint>} element is well-formed.
          */
@@ -232,32 +291,24 @@ public final class ConstraintsXmlReader {
             assert currentConstraintBuilder != null : "`currentConstraintBuilder` not defined";
             assertContext(
                 currentConstraintBuilder.isGroupSet(),
-                String.format("<%s> tag must appear under the <%s> tag", GROUP, CONSTRAINT));
+                String.format("<%s> tag must appear under the <%s> tag", ConstraintsXmlTags.GROUP, ConstraintsXmlTags.CONSTRAINT));
             assertContext(
                 currentConstraintBuilder.isNameSet(),
-                String.format("<%s> tag must appear under the <%s> tag", NAME, CONSTRAINT));
+                String.format("<%s> tag must appear under the <%s> tag", ConstraintsXmlTags.NAME, ConstraintsXmlTags.CONSTRAINT));
             assertContext(
                 currentConstraintBuilder.isSuggestedVersionSet(),
-                String.format("<%s> tag must appear under the <%s> tag", SUGGESTED_VERSION, CONSTRAINT));
+                String.format("<%s> tag must appear under the <%s> tag", ConstraintsXmlTags.SUGGESTED_VERSION, ConstraintsXmlTags.CONSTRAINT));
             assertContext(
                 currentConstraintBuilder.isBecauseSet(),
-                String.format("<%s> tag must appear under the <%s> tag", BECAUSE, CONSTRAINT));
+                String.format("<%s> tag must appear under the <%s> tag", ConstraintsXmlTags.BECAUSE, ConstraintsXmlTags.CONSTRAINT));
         }
 
-        private void maybeExtractAdvisory(Attributes attributes) {
-            String advisory = getNullableAttribute(attributes, ADVISORY);
+        private void maybeExtractAdvisory() {
+            String advisory = reader.getAttributeValue(null, ConstraintsXmlTags.ADVISORY);
             if (advisory != null) {
-                if (currentBecause == null) {
-                    currentBecause = advisory + ": ";
-                } else {
-                    currentBecause = advisory + ": " + currentBecause;
-                }
+                appendText(advisory);
+                appendText(": ");
             }
         }
-
-        @Nullable
-        private String getNullableAttribute(Attributes attributes, String name) {
-            return attributes.getValue(name);
-        }
     }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A view of the lines of UTF-8 encoded content, without copying the content.
+ * <p>
+ * Only the offsets of the lines are computed up front, a line is decoded when it is requested.
+ * Lines are split the same way as {@link java.io.BufferedReader#readLine()} does, on {@code \n}, {@code \r\n}
+ * or {@code \r}, and a line terminator at the end of the content doesn't start an additional empty line.
+ */
+final class ContentLines extends AbstractList<String> implements RandomAccess {
+    private final byte[] content;
+    private final int[] lineStarts;
+    private final int[] lineEnds;
+    private final int size;
+
+    private ContentLines(byte[] content, int[] lineStarts, int[] lineEnds, int size) {
+        this.content = content;
+        this.lineStarts = lineStarts;
+        this.lineEnds = lineEnds;
+        this.size = size;
+    }
+
+    static ContentLines of(byte[] content) {
+        int[] lineStarts = new int[16];
+        int[] lineEnds = new int[16];
+        int size = 0;
+        int lineStart = 0;
+        int position = 0;
+        while (position < content.length) {
+            final byte b = content[position];
+            if (b != '\n' && b != '\r') {
+                position++;
+                continue;
+            }
+            if (size == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, size * 2);
+                lineEnds = Arrays.copyOf(lineEnds, size * 2);
+            }
+            lineStarts[size] = lineStart;
+            lineEnds[size] = position;
+            size++;
+            position += b == '\r' && position + 1 < content.length && content[position + 1] == '\n' ? 2 : 1;
+            lineStart = position;
+        }
+        if (lineStart < content.length) {
+            if (size == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, size + 1);
+                lineEnds = Arrays.copyOf(lineEnds, size + 1);
+            }
+            lineStarts[size] = lineStart;
+            lineEnds[size] = content.length;
+            size++;
+        }
+        return new ContentLines(content, lineStarts, lineEnds, size);
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return new String(content, lineStarts[index], lineEnds[index] - lineStarts[index], StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
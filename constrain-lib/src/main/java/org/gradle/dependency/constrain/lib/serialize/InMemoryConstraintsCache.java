@@ -0,0 +1,147 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize;
+
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
+
+import javax.annotation.Nullable;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process wide cache of the {@link LoadedConstraints}, so that a long-lived daemon running many builds against the
+ * same checkout only loads each constraints file once.
+ * <p>
+ * Entries are keyed by the canonical path of the constraints file, its size, its last modified time and the digest
+ * of its content. The cache holds at most {@link #DEFAULT_MAXIMUM_SIZE} entries, evicting the least recently used one,
+ * and only references the constraints softly so that they can be reclaimed under memory pressure.
+ */
+public final class InMemoryConstraintsCache {
+    static final int DEFAULT_MAXIMUM_SIZE = 16;
+    private static final InMemoryConstraintsCache INSTANCE = new InMemoryConstraintsCache(DEFAULT_MAXIMUM_SIZE);
+
+    private final Map<String, CachedConstraints> entries;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    InMemoryConstraintsCache(int maximumSize) {
+        this.entries = new LinkedHashMap<String, CachedConstraints>(maximumSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedConstraints> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cache shared by the whole process.
+     */
+    public static InMemoryConstraintsCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the cached constraints for the given key, or {@code null} if they aren't cached.
+     */
+    @Nullable
+    LoadedConstraints get(Key key) {
+        final LoadedConstraints constraints;
+        synchronized (entries) {
+            final CachedConstraints entry = entries.get(key.canonicalPath);
+            constraints = entry != null && entry.key.equals(key) ? entry.constraints.get() : null;
+            if (entry != null && constraints == null) {
+                // Either stale or reclaimed by the garbage collector
+                entries.remove(key.canonicalPath);
+            }
+        }
+        (constraints != null ? hitCount : missCount).incrementAndGet();
+        return constraints;
+    }
+
+    void put(Key key, LoadedConstraints constraints) {
+        synchronized (entries) {
+            entries.put(key.canonicalPath, new CachedConstraints(key, constraints));
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    static final class Key {
+        private final String canonicalPath;
+        private final long size;
+        private final long lastModified;
+        private final byte[] digest;
+
+        Key(String canonicalPath, long size, long lastModified, byte[] digest) {
+            this.canonicalPath = canonicalPath;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return size == key.size &&
+                lastModified == key.lastModified &&
+                canonicalPath.equals(key.canonicalPath) &&
+                Arrays.equals(digest, key.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return canonicalPath.hashCode() * 31 + Arrays.hashCode(digest);
+        }
+    }
+
+    private static final class CachedConstraints {
+        private final Key key;
+        private final SoftReference<LoadedConstraints> constraints;
+
+        CachedConstraints(Key key, LoadedConstraints constraints) {
+            this.key = key;
+            this.constraints = new SoftReference<>(constraints);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.PrettyPrinter;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraint;
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the {@link LoadedConstraints} in a single forward pass over the JSON token stream.
+ * <p>
+ * While the tokens are being consumed, the structure is checked against the rules of the schema and every
+ * token is re-emitted through the canonical pretty printer, with the UTF-8 output being compared against the raw input bytes.
+ * This reader only accepts input that is valid, correctly formatted and of a supported version.
+ * As soon as any deviation is found, it gives up and the caller is expected to fall back to the full validation
+ * pipeline which produces the detailed error messages.
+ * <p>
+ * Content that already passed the validation, as recorded by {@link ConstraintsValidation}, is read without the
+ * comparison with the canonical formatting and without the sort check.
+ */
+final class StreamingConstraintsJsonReader {
+    private final JsonParser parser;
+    @Nullable
+    private final JsonGenerator generator;
+    @Nullable
+    private final ComparingOutputStream comparingOutput;
+    private final StringPool stringPool = new StringPool();
+
+    private StreamingConstraintsJsonReader(
+        JsonParser parser,
+        @Nullable JsonGenerator generator,
+        @Nullable ComparingOutputStream comparingOutput
+    ) {
+        this.parser = parser;
+        this.generator = generator;
+        this.comparingOutput = comparingOutput;
+    }
+
+    /**
+     * Attempts to read the constraints from the given UTF-8 encoded content.
+     *
+     * @return the constraints, or {@code null} when the input is not valid or not formatted correctly
+     */
+    @Nullable
+    static LoadedConstraints tryRead(JsonFactory factory, PrettyPrinter prettyPrinter, byte[] content) {
+        final ComparingOutputStream comparingOutput = new ComparingOutputStream(content);
+        final LoadedConstraints.Builder builder = LoadedConstraints.builder();
+        try (
+            JsonParser parser = factory.createParser(content);
+            JsonGenerator generator = factory.createGenerator(comparingOutput, JsonEncoding.UTF8)
+        ) {
+            generator.setPrettyPrinter(prettyPrinter);
+            // Nothing must be written to the comparing output once the reader gave up
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            new StreamingConstraintsJsonReader(parser, generator, comparingOutput).readDocument(builder);
+        } catch (CanonicalFormViolation | IOException ex) {
+            return null;
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reads the constraints from content that already passed the validation. The structure is still checked, as
+     * reading the constraints relies on it, but not the formatting nor the sort order.
+     *
+     * @return the constraints, or {@code null} when the input doesn't have the expected structure
+     */
+    @Nullable
+    static LoadedConstraints tryReadTrusted(JsonFactory factory, byte[] content) {
+        final LoadedConstraints.Builder builder = LoadedConstraints.builder();
+        try (JsonParser parser = factory.createParser(content)) {
+            new StreamingConstraintsJsonReader(parser, null, null).readDocument(builder);
+        } catch (CanonicalFormViolation | IOException ex) {
+            return null;
+        }
+        return builder.buildTrusted();
+    }
+
+    private void readDocument(LoadedConstraints.Builder builder) throws IOException {
+        expect(next(), JsonToken.START_OBJECT);
+        String version = null;
+        boolean hasDependencyConstraints = false;
+        while (next() == JsonToken.FIELD_NAME) {
+            switch (parser.getCurrentName()) {
+                case "version":
+                    check(version == null);
+                    version = readString();
+                    break;
+                case "dependencyConstraints":
+                    check(!hasDependencyConstraints);
+                    hasDependencyConstraints = true;
+                    expect(next(), JsonToken.START_ARRAY);
+                    while (next() != JsonToken.END_ARRAY) {
+                        builder.addConstraint(readConstraint());
+                    }
+                    break;
+                default:
+                    throw new CanonicalFormViolation();
+            }
+        }
+        expect(parser.currentToken(), JsonToken.END_OBJECT);
+        check(ConstraintsJsonReader.SUPPORTED_VERSION.equals(version) && hasDependencyConstraints);
+        check(next() == null);
+        if (generator != null && comparingOutput != null) {
+            generator.flush();
+            comparingOutput.finish();
+        }
+    }
+
+    private LoadedConstraint readConstraint() throws IOException {
+        expect(parser.currentToken(), JsonToken.START_OBJECT);
+        final LoadedConstraint.Builder constraintBuilder = LoadedConstraint.builder();
+        boolean hasRejectedVersions = false;
+        while (next() == JsonToken.FIELD_NAME) {
+            switch (parser.getCurrentName()) {
+                case "group":
+                    check(!constraintBuilder.isGroupSet());
+                    constraintBuilder.group(readString());
+                    break;
+                case "name":
+                    check(!constraintBuilder.isNameSet());
+                    constraintBuilder.name(readString());
+                    break;
+                case "suggestedVersion":
+                    check(!constraintBuilder.isSuggestedVersionSet());
+                    constraintBuilder.suggestedVersion(readString());
+                    break;
+                case "rejectedVersions":
+                    check(!hasRejectedVersions);
+                    hasRejectedVersions = true;
+                    readStringArray().forEach(constraintBuilder::addReject);
+                    break;
+                case "because":
+                    check(!constraintBuilder.isBecauseSet());
+                    constraintBuilder.because(readBecause());
+                    break;
+                default:
+                    throw new CanonicalFormViolation();
+            }
+        }
+        check(
+            constraintBuilder.isGroupSet() &&
+                constraintBuilder.isNameSet() &&
+                constraintBuilder.isSuggestedVersionSet() &&
+                constraintBuilder.isBecauseSet()
+        );
+        return constraintBuilder.build();
+    }
+
+    private String readBecause() throws IOException {
+        expect(next(), JsonToken.START_OBJECT);
+        String reason = null;
+        List<String> advisoryIdentifiers = null;
+        boolean hasMoreInformationUrls = false;
+        while (next() == JsonToken.FIELD_NAME) {
+            switch (parser.getCurrentName()) {
+                case "reason":
+                    check(reason == null);
+                    reason = readString();
+                    break;
+                case "advisoryIdentifiers":
+                    check(advisoryIdentifiers == null);
+                    advisoryIdentifiers = readStringArray();
+                    break;
+                case "moreInformationUrls":
+                    check(!hasMoreInformationUrls);
+                    hasMoreInformationUrls = true;
+                    readStringArray();
+                    break;
+                default:
+                    throw new CanonicalFormViolation();
+            }
+        }
+        check(reason != null);
+        if (advisoryIdentifiers == null) {
+            return reason;
+        }
+        return stringPool.intern("[" + String.join(", ", advisoryIdentifiers) + "]: " + reason);
+    }
+
+    private List<String> readStringArray() throws IOException {
+        expect(next(), JsonToken.START_ARRAY);
+        final List<String> values = new ArrayList<>();
+        while (next() == JsonToken.VALUE_STRING) {
+            values.add(pooledText());
+        }
+        expect(parser.currentToken(), JsonToken.END_ARRAY);
+        return values;
+    }
+
+    private String readString() throws IOException {
+        expect(next(), JsonToken.VALUE_STRING);
+        return pooledText();
+    }
+
+    /**
+     * Returns the text of the current token from the {@link StringPool}, without creating a string when it is already pooled.
+     */
+    private String pooledText() throws IOException {
+        return stringPool.intern(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+    }
+
+    /**
+     * Advances to the next token, re-emitting it through the canonical pretty printer unless the content is trusted.
+     */
+    @Nullable
+    private JsonToken next() throws IOException {
+        final JsonToken token = parser.nextToken();
+        if (token != null && generator != null) {
+            generator.copyCurrentEvent(parser);
+        }
+        return token;
+    }
+
+    private static void expect(@Nullable JsonToken actual, JsonToken expected) {
+        check(actual == expected);
+    }
+
+    private static void check(boolean condition) {
+        if (!condition) {
+            throw new CanonicalFormViolation();
+        }
+    }
+
+    /**
+     * Signals that the input can not be accepted by the streaming reader.
+     */
+    private static final class CanonicalFormViolation extends RuntimeException {
+        CanonicalFormViolation() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Compares the canonical output written by the generator with the input.
+     * Line terminators are normalized on both sides, so that {@code \n}, {@code \r\n} and {@code \r} are considered equal.
+     */
+    private static final class ComparingOutputStream extends OutputStream {
+        private final byte[] content;
+        private int position;
+        private boolean expectedLastWasCarriageReturn;
+        private boolean actualLastWasCarriageReturn;
+
+        ComparingOutputStream(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        public void write(int b) {
+            compare((byte) b);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                compare(buffer[i]);
+            }
+        }
+
+        private void compare(byte b) {
+            if (b == '\n' && expectedLastWasCarriageReturn) {
+                expectedLastWasCarriageReturn = false;
+                return;
+            }
+            expectedLastWasCarriageReturn = b == '\r';
+            check(nextActual() == (expectedLastWasCarriageReturn ? '\n' : b & 0xFF));
+        }
+
+        /**
+         * Verifies that the input contains nothing but an optional line terminator after the canonical output.
+         */
+        void finish() {
+            int b = nextActual();
+            if (b == '\n') {
+                b = nextActual();
+            }
+            check(b == -1);
+        }
+
+        private int nextActual() {
+            while (true) {
+                if (position == content.length) {
+                    return -1;
+                }
+                final byte b = content[position++];
+                if (b == '\n' && actualLastWasCarriageReturn) {
+                    actualLastWasCarriageReturn = false;
+                    continue;
+                }
+                actualLastWasCarriageReturn = b == '\r';
+                return actualLastWasCarriageReturn ? '\n' : b & 0xFF;
+            }
+        }
+
+        @Override
+        public void flush() {
+            // no-op
+        }
+
+        @Override
+        public void close() {
+            // no-op
+        }
+    }
+}
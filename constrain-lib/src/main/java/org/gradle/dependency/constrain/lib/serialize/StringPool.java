@@ -0,0 +1,161 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Deduplicates the strings of the constraints while they are read.
+ * <p>
+ * Constraints derived from advisories repeat the same groups, version ranges and reasons many times, so the model
+ * only keeps one instance of each of them. A pool is only used for a single read, it is not thread-safe and
+ * unlike {@link String#intern()} it doesn't retain the strings once the read is done.
+ * <p>
+ * The strings are kept in an open addressing table, which allows looking up the characters of a parser buffer
+ * without creating a string when it is already in the pool.
+ */
+final class StringPool {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private String[] table = new String[INITIAL_CAPACITY];
+    private int size;
+
+    String intern(String value) {
+        final int hash = value.hashCode();
+        int index = slot(hash);
+        String candidate;
+        while ((candidate = table[index]) != null) {
+            if (candidate.hashCode() == hash && candidate.equals(value)) {
+                return candidate;
+            }
+            index = (index + 1) & (table.length - 1);
+        }
+        return add(index, value);
+    }
+
+    String intern(char[] buffer, int offset, int length) {
+        // Same hash as String#hashCode, so that pooled strings can be compared by their cached hash
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int index = slot(hash);
+        String candidate;
+        while ((candidate = table[index]) != null) {
+            if (candidate.hashCode() == hash && contentEquals(candidate, buffer, offset, length)) {
+                return candidate;
+            }
+            index = (index + 1) & (table.length - 1);
+        }
+        return add(index, new String(buffer, offset, length));
+    }
+
+    /**
+     * Interns the UTF-8 encoded string at the given position of the buffer, eg. of a file mapped in memory. An ASCII
+     * string already in the pool is found from the bytes of the buffer, without copying or decoding them.
+     */
+    String intern(ByteBuffer buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            final byte b = buffer.get(i);
+            if (b < 0) {
+                // Not ASCII, the characters are only known once decoded
+                return intern(decode(buffer, offset, length));
+            }
+            hash = 31 * hash + b;
+        }
+        int index = slot(hash);
+        String candidate;
+        while ((candidate = table[index]) != null) {
+            if (candidate.hashCode() == hash && contentEquals(candidate, buffer, offset, length)) {
+                return candidate;
+            }
+            index = (index + 1) & (table.length - 1);
+        }
+        return add(index, decode(buffer, offset, length));
+    }
+
+    int size() {
+        return size;
+    }
+
+    private String add(int index, String value) {
+        table[index] = value;
+        size++;
+        if (size * 2 > table.length) {
+            resize();
+        }
+        return value;
+    }
+
+    private void resize() {
+        final String[] oldTable = table;
+        table = new String[oldTable.length * 2];
+        for (String value : oldTable) {
+            if (value != null) {
+                int index = slot(value.hashCode());
+                while (table[index] != null) {
+                    index = (index + 1) & (table.length - 1);
+                }
+                table[index] = value;
+            }
+        }
+    }
+
+    private int slot(int hash) {
+        return (hash ^ (hash >>> 16)) & (table.length - 1);
+    }
+
+    private static String decode(ByteBuffer buffer, int offset, int length) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + offset, length, StandardCharsets.UTF_8);
+        }
+        final byte[] bytes = new byte[length];
+        final ByteBuffer source = buffer.duplicate();
+        source.position(offset);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares an ASCII encoded value.
+     */
+    private static boolean contentEquals(String value, ByteBuffer buffer, int offset, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != buffer.get(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contentEquals(String value, char[] buffer, int offset, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -21,11 +21,15 @@ import spock.lang.Shared
 import spock.lang.Specification
 import spock.lang.TempDir
 
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
 import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
 import java.util.function.Supplier
 
 class AsyncConstrainServiceTest extends Specification {
     private static Executor inThreadExecutor = { Runnable runnable -> runnable.run() }
+    private static Executor neverRunningExecutor = { Runnable runnable -> }
 
     @TempDir
     @Shared
@@ -94,4 +98,77 @@ class AsyncConstrainServiceTest extends Specification {
         "first empty, second async" | { DefaultConstrainService.Factory.empty() }     | { createFailingAsyncConstrainServiceFactory() }
         "first async, second empty" | { createFailingAsyncConstrainServiceFactory() } | { DefaultConstrainService.Factory.empty() }
     }
+
+    void "waiting for the constraints times out and cancels the loading"() {
+        given:
+        def factory = ConstrainService.Factory.loadAndCreateAsync(
+            tempDirectory, null, neverRunningExecutor, Duration.ofMillis(10)
+        )
+        def constrainService = factory.create { Mock(DependencyConstraint) }
+
+        when:
+        constrainService.constraints
+        then:
+        def timeout = thrown(DependencyConstrainException)
+        timeout.message == "Timed out after 10 ms waiting for the dependency constraints to be loaded"
+
+        when:
+        constrainService.constraints
+        then:
+        def cancelled = thrown(DependencyConstrainException)
+        cancelled.message == "The loading of the dependency constraints was cancelled"
+    }
+
+    void "waiting for the constraints uses the given timeout"() {
+        given:
+        def constrainService = ConstrainService.Factory.loadAndCreateAsync(tempDirectory, neverRunningExecutor)
+            .create { Mock(DependencyConstraint) }
+
+        when:
+        constrainService.awaitLoaded(Duration.ofMillis(10))
+        then:
+        def ex = thrown(DependencyConstrainException)
+        ex.message == "Timed out after 10 ms waiting for the dependency constraints to be loaded"
+    }
+
+    void "cancelling the loading interrupts the loading thread"() {
+        given:
+        def loadingStarted = new CountDownLatch(1)
+        def loadingInterrupted = new CountDownLatch(1)
+        def factory = AsyncConstrainService.Factory.load({
+            loadingStarted.countDown()
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1))
+            } catch (InterruptedException ignored) {
+                loadingInterrupted.countDown()
+            }
+            DefaultConstrainService.Factory.empty()
+        }, ConstraintsLoadExecutors.sharedBoundedPool(), null)
+        def constrainService = factory.create { Mock(DependencyConstraint) }
+        loadingStarted.await()
+
+        when:
+        factory.cancelLoading()
+        constrainService.constraints
+        then:
+        def ex = thrown(DependencyConstrainException)
+        ex.message == "The loading of the dependency constraints was cancelled"
+        loadingInterrupted.await(10, TimeUnit.SECONDS)
+    }
+
+    void "loading with the default executor loads the constraints in the background"() {
+        given:
+        def loadingThread = null
+        def factory = AsyncConstrainService.Factory.load({
+            loadingThread = Thread.currentThread()
+            DefaultConstrainService.Factory.empty()
+        }, ConstraintsLoadExecutors.defaultExecutor(), Duration.ofSeconds(10))
+
+        when:
+        def constraints = factory.create { Mock(DependencyConstraint) }.constraints
+        then:
+        constraints.empty
+        loadingThread != Thread.currentThread()
+        loadingThread.daemon
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib
+
+import org.gradle.api.Action
+import org.gradle.api.artifacts.DependencyConstraint
+import org.gradle.api.artifacts.MutableVersionConstraint
+import org.gradle.dependency.constrain.lib.model.LoadedConstraint
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints
+import spock.lang.Specification
+
+class DefaultConstrainServiceTest extends Specification {
+
+    DefaultConstrainService.Factory factory = new DefaultConstrainService.Factory(
+        LoadedConstraints.builder().with {
+            addConstraint(
+                LoadedConstraint.builder()
+                    .group("org.eclipse.jetty")
+                    .name("jetty-webapp")
+                    .suggestedVersion("9.4.33.v20201020")
+                    .addReject("(,9.4.32.v20200930]")
+                    .addReject("[10.0.0.a,10.0.0.beta2]")
+                    .because("Local Temp Directory Hijacking Vulnerability")
+                    .build()
+            )
+            build()
+        }
+    )
+
+    def "constraints are created from their module notation and configured with their versions"() {
+        given:
+        def notations = []
+        def actions = []
+        def constraint = Mock(DependencyConstraint)
+        def version = Mock(MutableVersionConstraint)
+
+        when:
+        def constrainService = factory.create { notation, action ->
+            notations << notation
+            actions << action
+            constraint
+        }
+        actions[0].execute(constraint)
+
+        then:
+        constrainService.constraints == [constraint]
+        notations == [[group: "org.eclipse.jetty", name: "jetty-webapp"]]
+        1 * constraint.version(_) >> { Action<? super MutableVersionConstraint> versionAction -> versionAction.execute(version) }
+        1 * version.strictly("9.4.33.v20201020")
+        1 * version.reject("(,9.4.32.v20200930]", "[10.0.0.a,10.0.0.beta2]")
+        1 * constraint.because("Local Temp Directory Hijacking Vulnerability")
+    }
+
+    def "constraints are only prepared once"() {
+        given:
+        def prepared = []
+        def constraint = Mock(DependencyConstraint)
+        def constraintFactory = new DependencyConstraintFactory() {
+            @Override
+            DependencyConstraint create(Object dependencyNotation, Action<? super DependencyConstraint> configureAction) {
+                throw new UnsupportedOperationException()
+            }
+
+            @Override
+            DependencyConstraint create(PreparedConstraint preparedConstraint) {
+                prepared << preparedConstraint
+                constraint
+            }
+        }
+
+        when:
+        factory.create(constraintFactory)
+        factory.create(constraintFactory)
+
+        then:
+        prepared.size() == 2
+        prepared[0].is(prepared[1])
+        prepared[0].rejectedVersions == ["(,9.4.32.v20200930]", "[10.0.0.a,10.0.0.beta2]"] as String[]
+    }
+}
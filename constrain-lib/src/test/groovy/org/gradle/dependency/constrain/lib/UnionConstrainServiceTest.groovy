@@ -0,0 +1,135 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib
+
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.artifacts.DependencyConstraint
+import org.gradle.api.artifacts.DependencyConstraintSet
+import org.gradle.api.artifacts.VersionConstraint
+import org.gradle.dependency.constrain.lib.model.LoadedConstraint
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints
+import spock.lang.Specification
+
+class UnionConstrainServiceTest extends Specification {
+
+    def "identical constraints are only kept once"() {
+        given:
+        def webapp = constraint("org.eclipse.jetty", "jetty-webapp", "9.4.33.v20201020", "(,9.4.32.v20200930]")
+        def sameWebapp = constraint("org.eclipse.jetty", "jetty-webapp", "9.4.33.v20201020", "(,9.4.32.v20200930]")
+        def http = constraint("org.eclipse.jetty", "jetty-http", "9.4.33.v20201020", "(,9.4.32.v20200930]")
+
+        when:
+        def union = service(webapp, http).union(service(sameWebapp))
+
+        then:
+        union.constraints == [webapp, http]
+    }
+
+    def "constraints of the same service targeting the same module are kept"() {
+        given:
+        def first = constraint("org.eclipse.jetty", "jetty-webapp", "9.4.33.v20201020", "(,9.4.32.v20200930]")
+        def second = constraint("org.eclipse.jetty", "jetty-webapp", "9.4.35.v20201120", "(,9.4.34.v20201102]")
+
+        when:
+        def union = service(first, second).union(ConstrainService.empty())
+
+        then:
+        union.constraints == [first, second]
+    }
+
+    def "constraints of different services targeting the same module differently are all kept"() {
+        given:
+        def first = constraint("org.eclipse.jetty", "jetty-webapp", "9.4.33.v20201020", "(,9.4.32.v20200930]")
+        def second = constraint("org.eclipse.jetty", "jetty-webapp", "9.4.35.v20201120", "(,9.4.34.v20201102]")
+
+        when:
+        def union = service(first).union(service(second))
+
+        then:
+        union.constraints == [first, second]
+    }
+
+    def "constraints only differing by their reason are only kept once"() {
+        given:
+        def webapp = constraint("org.eclipse.jetty", "jetty-webapp", "9.4.33.v20201020", "(,9.4.32.v20200930]")
+        def otherReason = constraint("org.eclipse.jetty", "jetty-webapp", "9.4.33.v20201020", "(,9.4.32.v20200930]", "CVE-2020-27216")
+
+        when:
+        def union = service(webapp).union(service(otherReason))
+
+        then:
+        union.constraints == [webapp]
+    }
+
+    def "lazy services of a union are applied lazily"() {
+        given:
+        def http = constraint("org.eclipse.jetty", "jetty-http", "9.4.33.v20201020", "(,9.4.32.v20200930]")
+        def loadedConstraints = LoadedConstraints.builder()
+        loadedConstraints.addConstraint(LoadedConstraint.builder()
+            .group("org.eclipse.jetty")
+            .name("jetty-webapp")
+            .suggestedVersion("9.4.33.v20201020")
+            .because("vulnerable")
+            .build())
+        def lazy = new DefaultConstrainService.Factory(loadedConstraints.build()).createLazy({ notation, action -> Stub(DependencyConstraint) })
+        def dependencyConstraints = Mock(DependencyConstraintSet)
+        def configuration = Mock(Configuration) {
+            getName() >> "runtimeClasspath"
+            getDependencyConstraints() >> dependencyConstraints
+        }
+
+        when:
+        service(http).union(lazy).doConstrain(configuration)
+
+        then:
+        1 * dependencyConstraints.addAll([http])
+        1 * configuration.withDependencies(_)
+        0 * dependencyConstraints._
+    }
+
+    def "long chains of unions are flattened in order"() {
+        given:
+        def constraints = (0..<10_000).collect { constraint("org.example", "module-$it", "1.0", "(,1.0)") }
+
+        when:
+        def union = constraints.inject(ConstrainService.empty()) { ConstrainService chain, constraint ->
+            chain.union(service(constraint))
+        }
+
+        then:
+        union.constraints == constraints
+    }
+
+    private static ConstrainService service(DependencyConstraint... constraints) {
+        new DefaultConstrainService(constraints as List)
+    }
+
+    private DependencyConstraint constraint(String group, String name, String strictVersion, String rejectedVersion, String reason = "vulnerable") {
+        def version = Stub(VersionConstraint) {
+            getStrictVersion() >> strictVersion
+            getRequiredVersion() >> strictVersion
+            getPreferredVersion() >> ""
+            getRejectedVersions() >> [rejectedVersion]
+        }
+        Stub(DependencyConstraint) {
+            getGroup() >> group
+            getName() >> name
+            getVersionConstraint() >> version
+            getReason() >> reason
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.audit
+
+import groovy.json.JsonSlurper
+import org.gradle.dependency.constrain.lib.model.LoadedConstraint
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class ConstraintsAuditTest extends Specification {
+
+    @TempDir
+    File tempDirectory
+
+    LoadedConstraints constraints = LoadedConstraints.builder().with {
+        addConstraint(
+            LoadedConstraint.builder()
+                .group("org.eclipse.jetty")
+                .name("jetty-webapp")
+                .suggestedVersion("9.4.33.v20201020")
+                .addReject("(,9.4.32.v20200930]")
+                .addReject("[10.0.0.a,10.0.0.beta2]")
+                .because("Local Temp Directory Hijacking Vulnerability")
+                .build()
+        )
+        build()
+    }
+
+    def "resolved components rejected by the constraints are violations"() {
+        when:
+        def violations = ConstraintsAudit.of(constraints).audit([
+            "junit:junit:4.12",
+            "org.eclipse.jetty:jetty-webapp:9.4.20.v20190813",
+            "org.eclipse.jetty:jetty-webapp:9.4.33.v20201020",
+            "org.eclipse.jetty:jetty-webapp:10.0.0.beta1",
+        ])
+
+        then:
+        violations*.toString() == ["org.eclipse.jetty:jetty-webapp:9.4.20.v20190813", "org.eclipse.jetty:jetty-webapp:10.0.0.beta1"]
+        violations[0].constraints == constraints.constraints
+    }
+
+    def "the configurations of a project are audited into the report of the project"() {
+        given:
+        def projectReport = new File(tempDirectory, "reports/audit.json")
+
+        when:
+        ConstraintViolationsReport.writeProject(projectReport, ":app", [
+            compileClasspath: ["junit:junit:4.12"],
+            runtimeClasspath: ["org.eclipse.jetty:jetty-webapp:9.4.20.v20190813"],
+        ], ConstraintsAudit.of(constraints))
+
+        then:
+        new JsonSlurper().parse(projectReport) == [
+            project       : ":app",
+            configurations: [
+                [configuration: "compileClasspath", components: 1, violations: []],
+                [configuration: "runtimeClasspath", components: 1, violations: [
+                    [
+                        group      : "org.eclipse.jetty",
+                        name       : "jetty-webapp",
+                        version    : "9.4.20.v20190813",
+                        constraints: [
+                            [
+                                suggestedVersion: "9.4.33.v20201020",
+                                rejectedVersions: ["(,9.4.32.v20200930]", "[10.0.0.a,10.0.0.beta2]"],
+                                because         : "Local Temp Directory Hijacking Vulnerability",
+                            ]
+                        ]
+                    ]
+                ]],
+            ]
+        ]
+    }
+}
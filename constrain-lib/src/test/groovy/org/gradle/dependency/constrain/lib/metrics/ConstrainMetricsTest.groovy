@@ -0,0 +1,176 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.metrics
+
+import groovy.json.JsonSlurper
+import org.gradle.api.Action
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.artifacts.DependencyConstraint
+import org.gradle.api.artifacts.DependencyConstraintSet
+import org.gradle.api.artifacts.DependencySet
+import org.gradle.dependency.constrain.lib.ConstrainService
+import org.gradle.dependency.constrain.lib.DependencyConstrainException
+import org.gradle.dependency.constrain.lib.serialize.ConstraintsJsonReader
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class ConstrainMetricsTest extends Specification {
+
+    @TempDir
+    File tempDirectory
+
+    List<String> events = []
+    List<PhaseMetrics> finished = []
+    ConstrainMetricsListener listener = new ConstrainMetricsListener() {
+        @Override
+        void phaseStarted(ConstrainPhase phase, String subject) {
+            events << "started " + phase
+        }
+
+        @Override
+        void phaseFinished(PhaseMetrics metrics) {
+            events << "finished " + metrics.phase
+            finished << metrics
+        }
+    }
+
+    def setup() {
+        ConstrainMetrics.addListener(listener)
+    }
+
+    def cleanup() {
+        ConstrainMetrics.removeListener(listener)
+    }
+
+    def "the nested phases of a read are recorded"() {
+        when:
+        readExample()
+
+        then:
+        events == [
+            "started STREAMING_PARSE",
+            "started SORT_CHECK",
+            "finished SORT_CHECK",
+            "finished STREAMING_PARSE",
+        ]
+        finished*.count == [1, 1]
+        finished.every { it.durationNanos >= 0 }
+    }
+
+    def "the validation phases are recorded when the content is rejected by the streaming pass"() {
+        when:
+        ConstraintsJsonReader.readFromJson('{"version": "1.0.0", "dependencyConstraints": []}'.getBytes("UTF-8"))
+
+        then:
+        thrown(DependencyConstrainException)
+        finished*.phase == [
+            ConstrainPhase.STREAMING_PARSE,
+            ConstrainPhase.SCHEMA_VALIDATION,
+            ConstrainPhase.SORT_CHECK,
+            ConstrainPhase.BINDING,
+            ConstrainPhase.FORMAT_CHECK,
+        ]
+    }
+
+    def "nothing is recorded once the listener is removed"() {
+        given:
+        ConstrainMetrics.removeListener(listener)
+
+        when:
+        readExample()
+
+        then:
+        events.isEmpty()
+    }
+
+    def "the report sums the metrics of each phase"() {
+        given:
+        def report = new ConstrainMetricsReport()
+        def reportFile = new File(tempDirectory, "reports/metrics.json")
+
+        when:
+        report.phaseFinished(new PhaseMetrics(ConstrainPhase.READ, "a.json", 100, 1000, 2))
+        report.phaseFinished(new PhaseMetrics(ConstrainPhase.READ, "b.json", 50, 500, 3))
+        report.phaseFinished(new PhaseMetrics(ConstrainPhase.DO_CONSTRAIN, "compileClasspath", 10, PhaseMetrics.UNKNOWN_ALLOCATED_BYTES, 5))
+        report.phaseFinished(new PhaseMetrics(ConstrainPhase.DO_CONSTRAIN, "runtimeClasspath", 20, 200, 5))
+        report.writeTo(reportFile)
+
+        then:
+        new JsonSlurper().parse(reportFile) == [
+            constraintsLoaded        : 5,
+            configurationsConstrained: 2,
+            phases                   : [
+                [phase: "READ", displayName: "Read dependency constraints", invocations: 2, durationNanos: 150, allocatedBytes: 1500, count: 5],
+                [phase: "DO_CONSTRAIN", displayName: "Constrain configuration", invocations: 2, durationNanos: 30, allocatedBytes: -1, count: 10],
+            ],
+        ]
+    }
+
+    def "only the configurations the constraints are added to are counted when they are applied #description"() {
+        given:
+        def report = new ConstrainMetricsReport()
+        ConstrainMetrics.addListener(report)
+        def gradleDirectory = new File(tempDirectory, "gradle")
+        gradleDirectory.mkdirs()
+        new File(gradleDirectory, "dependency-constraints.json").bytes =
+            getClass().getClassLoader().getResourceAsStream("examples/example-junit-CVE-2020-15250.json").bytes
+        def lazy = ConstrainService.Factory.loadAndCreate(gradleDirectory).createLazy({ notation, action -> Stub(DependencyConstraint) })
+        def service = createService(lazy)
+        def resolved = configuration("testRuntimeClasspath")
+        def neverResolved = configuration("runtimeClasspath")
+
+        when:
+        service.doConstrain(resolved.configuration)
+        service.doConstrain(neverResolved.configuration)
+        // Run once for the resolved configuration and once more as the parent of another resolved configuration
+        resolved.dependencyActions*.execute(null)
+        resolved.dependencyActions*.execute(null)
+
+        then:
+        report.configurationsConstrained == 1
+
+        cleanup:
+        ConstrainMetrics.removeListener(report)
+
+        where:
+        description  | createService
+        "lazily"     | { ConstrainService lazy -> lazy }
+        "in a union" | { ConstrainService lazy -> ConstrainService.empty().union(lazy) }
+    }
+
+    private Map configuration(String name) {
+        List<Action<DependencySet>> dependencyActions = []
+        def dependencies = Stub(DependencySet) {
+            isEmpty() >> false
+        }
+        def configuration = Stub(Configuration) {
+            getName() >> name
+            isCanBeResolved() >> true
+            getAllDependencies() >> dependencies
+            getDependencyConstraints() >> Stub(DependencyConstraintSet)
+            withDependencies(_) >> { Action<DependencySet> action ->
+                dependencyActions << action
+                null
+            }
+        }
+        [configuration: configuration, dependencyActions: dependencyActions]
+    }
+
+    private void readExample() {
+        ConstraintsJsonReader.readFromJson(getClass().getClassLoader().getResourceAsStream("examples/example-junit-CVE-2020-15250.json"))
+    }
+}
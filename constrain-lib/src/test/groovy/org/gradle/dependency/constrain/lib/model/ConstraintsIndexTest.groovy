@@ -0,0 +1,101 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.model
+
+import spock.lang.Specification
+
+class ConstraintsIndexTest extends Specification {
+
+    static LoadedConstraint constraint(String group, String name, String suggestedVersion = "1.0.0") {
+        LoadedConstraint.builder()
+            .group(group)
+            .name(name)
+            .suggestedVersion(suggestedVersion)
+            .because("Reason")
+            .build()
+    }
+
+    static ConstraintsIndex index(List<LoadedConstraint> constraints) {
+        def builder = LoadedConstraints.builder()
+        constraints.each { builder.addConstraint(it) }
+        builder.build().index
+    }
+
+    static List<String> coordinates(List<LoadedConstraint> constraints) {
+        constraints.collect { "$it.group:$it.name:$it.suggestedVersion".toString() }
+    }
+
+    ConstraintsIndex exampleIndex = index([
+        constraint("org.eclipse.jetty.http2", "http2-server"),
+        constraint("org.eclipse.jetty", "jetty-server"),
+        constraint("org.eclipse.jetty", "jetty-webapp", "9.4.33"),
+        constraint("org.eclipse.jetty", "jetty-webapp", "9.4.34"),
+        constraint("org.eclipse", "core"),
+        constraint("org.eclipsefoundation", "api"),
+        constraint("org.mortbay.jetty", "jetty-webapp"),
+    ])
+
+    def "constraints are looked up by module"() {
+        expect:
+        coordinates(exampleIndex.getConstraintsForModule(group, name)) == expected
+
+        where:
+        group               | name           | expected
+        "org.eclipse.jetty" | "jetty-webapp" | ["org.eclipse.jetty:jetty-webapp:9.4.33", "org.eclipse.jetty:jetty-webapp:9.4.34"]
+        "org.mortbay.jetty" | "jetty-webapp" | ["org.mortbay.jetty:jetty-webapp:1.0.0"]
+        "org.eclipse.jetty" | "http2-server" | []
+        "org.example"       | "jetty-webapp" | []
+    }
+
+    def "constraints are looked up by group"() {
+        expect:
+        coordinates(exampleIndex.getConstraintsForGroup(group)) == expected
+
+        where:
+        group               | expected
+        "org.eclipse.jetty" | ["org.eclipse.jetty:jetty-server:1.0.0", "org.eclipse.jetty:jetty-webapp:9.4.33", "org.eclipse.jetty:jetty-webapp:9.4.34"]
+        "org.eclipse"       | ["org.eclipse:core:1.0.0"]
+        "org"               | []
+    }
+
+    def "constraints are looked up by group namespace"() {
+        expect:
+        coordinates(exampleIndex.getConstraintsForGroupNamespace(namespace)) == expected
+
+        where:
+        namespace           | expected
+        "org.eclipse"       | ["org.eclipse.jetty.http2:http2-server:1.0.0", "org.eclipse.jetty:jetty-server:1.0.0", "org.eclipse.jetty:jetty-webapp:9.4.33", "org.eclipse.jetty:jetty-webapp:9.4.34", "org.eclipse:core:1.0.0"]
+        "org.eclipse.jetty" | ["org.eclipse.jetty.http2:http2-server:1.0.0", "org.eclipse.jetty:jetty-server:1.0.0", "org.eclipse.jetty:jetty-webapp:9.4.33", "org.eclipse.jetty:jetty-webapp:9.4.34"]
+        "org.mortbay"       | ["org.mortbay.jetty:jetty-webapp:1.0.0"]
+        "org.ecl"           | []
+        "com"               | []
+    }
+
+    def "looked up constraints can not be modified"() {
+        when:
+        exampleIndex.getConstraintsForModule("org.eclipse.jetty", "jetty-webapp").clear()
+
+        then:
+        thrown(UnsupportedOperationException)
+    }
+
+    def "empty constraints have an empty index"() {
+        expect:
+        LoadedConstraints.empty().index.getConstraintsForGroup("org.eclipse").isEmpty()
+        LoadedConstraints.empty().index.getConstraintsForGroupNamespace("org").isEmpty()
+    }
+}
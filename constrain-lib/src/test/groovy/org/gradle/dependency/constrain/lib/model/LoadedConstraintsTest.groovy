@@ -0,0 +1,139 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.model
+
+import org.gradle.dependency.constrain.lib.DependencyConstrainException
+import spock.lang.Specification
+import spock.lang.Timeout
+
+class LoadedConstraintsTest extends Specification {
+
+    static LoadedConstraint constraint(String group, String name = "aaa", String suggestedVersion = "1.0.0") {
+        LoadedConstraint.builder()
+            .group(group)
+            .name(name)
+            .suggestedVersion(suggestedVersion)
+            .because("Reason")
+            .build()
+    }
+
+    static LoadedConstraints build(List<LoadedConstraint> constraints, Integer maximumReportedMoves = null) {
+        def builder = LoadedConstraints.builder()
+        if (maximumReportedMoves != null) {
+            builder.maximumReportedMoves(maximumReportedMoves)
+        }
+        constraints.each { builder.addConstraint(it) }
+        builder.build()
+    }
+
+    def "sorted constraints are accepted"() {
+        when:
+        def loadedConstraints = build([constraint("com.a"), constraint("com.a", "bbb"), constraint("com.a.b"), constraint("com.b")])
+
+        then:
+        loadedConstraints.constraints.size() == 4
+    }
+
+    def "built constraints cannot be modified by consumers nor by reusing the builder"() {
+        given:
+        def builder = LoadedConstraints.builder()
+        builder.addConstraint(constraint("com.a"))
+        def loadedConstraints = builder.build()
+
+        when:
+        loadedConstraints.constraints.add(constraint("com.b"))
+
+        then:
+        thrown(UnsupportedOperationException)
+
+        when:
+        builder.addConstraint(constraint("com.b"))
+
+        then:
+        loadedConstraints.constraints.size() == 1
+        loadedConstraints.index.getConstraintsForModule("com.a", "aaa").size() == 1
+    }
+
+    def "the index is built once, on first use"() {
+        given:
+        def loadedConstraints = build([constraint("com.a"), constraint("com.b")])
+
+        when:
+        def index = loadedConstraints.index
+
+        then:
+        index.getConstraintsForGroup("com.b").size() == 1
+        loadedConstraints.index.is(index)
+    }
+
+    def "only the constraints out of order are reported to be moved"() {
+        when:
+        build([constraint("com.a"), constraint("com.e"), constraint("com.b"), constraint("com.c"), constraint("com.d")])
+
+        then:
+        def ex = thrown(DependencyConstrainException)
+        ex.message == """
+Constrains were not sorted by group:name:suggestedVersion in lexicographical order:
+  - Move constraint at position 1 to position 4:
+    - {"group":"com.e", "name":"aaa", "suggestedVersion":"1.0.0"}
+""".trim()
+    }
+
+    def "reported moves are limited"() {
+        when:
+        build((0..<5).collect { constraint("com.b.$it") } + (0..<3).collect { constraint("com.a.$it") }, 4)
+
+        then:
+        def ex = thrown(DependencyConstrainException)
+        ex.message == """
+Constrains were not sorted by group:name:suggestedVersion in lexicographical order:
+  - Move constraints at position 5 through 7 to position 0 through 2:
+    - {"group":"com.a.0", "name":"aaa", "suggestedVersion":"1.0.0"}
+    - {"group":"com.a.1", "name":"aaa", "suggestedVersion":"1.0.0"}
+    - {"group":"com.a.2", "name":"aaa", "suggestedVersion":"1.0.0"}
+""".trim()
+
+        when:
+        build((0..<3).collect { constraint("com.b.$it") } + (0..<5).collect { constraint("com.a.$it") }, 2)
+
+        then:
+        ex = thrown(DependencyConstrainException)
+        ex.message == """
+Constrains were not sorted by group:name:suggestedVersion in lexicographical order:
+  - Move constraints at position 0 through 1 to position 5 through 6:
+    - {"group":"com.b.0", "name":"aaa", "suggestedVersion":"1.0.0"}
+    - {"group":"com.b.1", "name":"aaa", "suggestedVersion":"1.0.0"}
+  - ... and 1 more constraint to move
+""".trim()
+    }
+
+    @Timeout(10)
+    def "heavily reordered constraints are reported quickly"() {
+        given:
+        def random = new Random(42)
+        def constraints = (0..<50_000).collect { constraint(String.format("com.example%05d", it)) }
+        Collections.shuffle(constraints, random)
+
+        when:
+        build(constraints)
+
+        then:
+        def ex = thrown(DependencyConstrainException)
+        ex.message.readLines().count { it.startsWith("    - ") } == LoadedConstraints.DEFAULT_MAXIMUM_REPORTED_MOVES
+        ex.message.readLines().last() ==~ /  - \.\.\. and \d+ more constraints to move/
+    }
+}
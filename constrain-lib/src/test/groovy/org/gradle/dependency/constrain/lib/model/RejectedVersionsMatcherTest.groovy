@@ -0,0 +1,110 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.model
+
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionParser
+import spock.lang.Specification
+
+class RejectedVersionsMatcherTest extends Specification {
+
+    static RejectedVersionsMatcher compile(Map<String, List<String>> rejectedByName) {
+        def builder = LoadedConstraints.builder()
+        rejectedByName.each { name, rejected ->
+            def constraint = LoadedConstraint.builder()
+                .group("org.eclipse.jetty")
+                .name(name)
+                .suggestedVersion("9.4.33.v20201020")
+                .because("vulnerable")
+            rejected.each { constraint.addReject(it) }
+            builder.addConstraint(constraint.build())
+        }
+        RejectedVersionsMatcher.compile(builder.build())
+    }
+
+    def "#version is rejected by #rejected like gradle rejects it"(List<String> rejected, String version) {
+        given:
+        def matcher = compile("jetty-webapp": rejected)
+        def scheme = new DefaultVersionSelectorScheme(new DefaultVersionComparator(), new VersionParser())
+
+        expect:
+        matcher.isRejected("org.eclipse.jetty", "jetty-webapp", version) == rejected.any { scheme.parseSelector(it).accept(version) }
+
+        where:
+        [rejected, version] << [
+            [
+                ["(,9.4.32.v20200930]", "[10.0.0.a,10.0.0.beta2]"],
+                ["[1.0,2.0)", "[2.0,3.0)", "[2.5,4.0]"],
+                ["[1.0,2.0)", "[2.0-rc1,2.0-rc2]"],
+                ["]1.0,2.0[", "[1.5]", "3.0", "4.+", "latest.release"],
+            ],
+            ["0.9", "1.0", "1.5", "2.0-rc1", "2.0-rc3", "2.0", "2.7", "3.0", "4.0", "4.1", "9.4.32.v20200930", "9.4.33", "10.0.0.beta1", "10.0.0"],
+        ].combinations()
+    }
+
+    def "modules without constraints are not rejected"() {
+        given:
+        def matcher = compile("jetty-webapp": ["(,9.4.32.v20200930]"])
+
+        expect:
+        !matcher.isRejected("org.eclipse.jetty", "jetty-http", "9.4.0")
+        !matcher.isRejected("org.example", "jetty-webapp", "9.4.0")
+    }
+
+    def "the rejected versions of all the constraints of a module are matched"() {
+        given:
+        def builder = LoadedConstraints.builder()
+        builder.addConstraint(LoadedConstraint.builder()
+            .group("org.eclipse.jetty").name("jetty-webapp").suggestedVersion("9.4.33.v20201020")
+            .addReject("(,9.4.32.v20200930]").because("CVE-2020-27216").build())
+        builder.addConstraint(LoadedConstraint.builder()
+            .group("org.eclipse.jetty").name("jetty-webapp").suggestedVersion("9.4.35.v20201120")
+            .addReject("[9.4.33,9.4.34.v20201102]").because("CVE-2020-27218").build())
+        def matcher = RejectedVersionsMatcher.compile(builder.build())
+
+        expect:
+        matcher.isRejected("org.eclipse.jetty", "jetty-webapp", "9.4.20")
+        matcher.isRejected("org.eclipse.jetty", "jetty-webapp", "9.4.33.v20201020")
+        !matcher.isRejected("org.eclipse.jetty", "jetty-webapp", "9.4.35.v20201120")
+    }
+
+    def "coordinates are matched in batch"() {
+        given:
+        def matcher = compile("jetty-http": ["[9.4.0,9.4.30)"], "jetty-webapp": ["(,9.4.32.v20200930]"])
+
+        expect:
+        matcher.areRejected([
+            "org.eclipse.jetty:jetty-webapp:9.4.20",
+            "org.eclipse.jetty:jetty-http:9.4.20",
+            "org.eclipse.jetty:jetty-http:9.4.31",
+            "org.eclipse.jetty:jetty-server:9.4.20",
+        ]) == [true, true, false, false] as boolean[]
+    }
+
+    def "invalid coordinates are reported"() {
+        given:
+        def matcher = compile("jetty-webapp": ["(,9.4.32.v20200930]"])
+
+        when:
+        matcher.areRejected(["org.eclipse.jetty:jetty-webapp"])
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Expected a group:name:version coordinate, but was 'org.eclipse.jetty:jetty-webapp'"
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.model
+
+import spock.lang.Specification
+
+class RejectedVersionsNormalizerTest extends Specification {
+
+    static LoadedConstraint constraint(String name, String suggestedVersion, String because, List<String> rejected) {
+        def builder = LoadedConstraint.builder()
+            .group("org.eclipse.jetty")
+            .name(name)
+            .suggestedVersion(suggestedVersion)
+            .because(because)
+        rejected.each { builder.addReject(it) }
+        builder.build()
+    }
+
+    static RejectedVersionsNormalizer.Result normalize(List<LoadedConstraint> constraints) {
+        def builder = LoadedConstraints.builder()
+        constraints.each { builder.addConstraint(it) }
+        RejectedVersionsNormalizer.normalize(builder.build())
+    }
+
+    def "constraints of the same module and suggested version are collapsed"() {
+        when:
+        def result = normalize([
+            constraint("jetty-webapp", "9.4.33.v20201020", "CVE-2020-27216", ["(,9.4.32.v20200930]", "[10.0.0.a,10.0.0.beta2]"]),
+            constraint("jetty-webapp", "9.4.33.v20201020", "CVE-2021-28164", ["[9.4.30,9.4.33.v20201020)", "]10.0.0.beta1,10.0.0["]),
+        ])
+
+        then:
+        result.constraints.constraints.size() == 1
+        with(result.constraints.constraints[0]) {
+            rejected == ["(,9.4.33.v20201020)", "[10.0.0.a,10.0.0.beta2]", "(10.0.0.beta1,10.0.0)"]
+            because == "CVE-2020-27216; CVE-2021-28164"
+        }
+        result.eliminatedSelectorCount == 1
+        result.collapsedConstraintCount == 1
+    }
+
+    def "ranges are merged when #description"(List<String> rejected, List<String> normalized) {
+        when:
+        def result = normalize([constraint("jetty-webapp", "9.4.33.v20201020", "vulnerable", rejected)])
+
+        then:
+        result.constraints.constraints[0].rejected == normalized
+        result.eliminatedSelectorCount == rejected.size() - normalized.size()
+
+        where:
+        description                         | rejected                                    | normalized
+        "they overlap"                      | ["[2.0,3.0]", "[1.0,2.5]"]                  | ["[1.0,3.0]"]
+        "they are adjacent"                 | ["[1.0,2.0]", "(2.0,3.0)"]                  | ["[1.0,3.0)"]
+        "one is unbounded"                  | ["[2.0,)", "[1.0,2.0]"]                     | ["[1.0,)"]
+        "they are in the ivy notation"      | ["]1.0,2.0[", "]1.5,3.0]"]                  | ["(1.0,3.0]"]
+        "an exact version is within"        | ["[1.0,2.0]", "1.5", "3.0"]                 | ["[1.0,2.0]", "3.0"]
+        "versions are ordered like gradle"  | ["[1.0-rc2,1.1)", "[1.0-beta1,1.0-rc2]"]    | ["[1.0-beta1,1.1)"]
+        "selectors are duplicated"          | ["1.+", "(,1.0]", "1.+", "(,1.0]"]          | ["1.+", "(,1.0]"]
+    }
+
+    def "disjoint ranges are kept as they are"() {
+        given:
+        def constraints = [
+            constraint("jetty-http", "9.4.33.v20201020", "vulnerable", ["[2.0,3.0)", "(3.0,4.0]", "1.0"]),
+            constraint("jetty-webapp", "9.4.33.v20201020", "vulnerable", ["(,9.4.32.v20200930]"]),
+        ]
+
+        when:
+        def result = normalize(constraints)
+
+        then:
+        result.constraints.constraints == constraints
+        result.eliminatedSelectorCount == 0
+        result.collapsedConstraintCount == 0
+    }
+
+    def "ranges are not merged when the pre-releases below an exclusive upper bound would be rejected"(List<String> rejected) {
+        when:
+        def result = normalize([constraint("jetty-webapp", "9.4.33.v20201020", "vulnerable", rejected)])
+
+        then:
+        result.constraints.constraints[0].rejected == rejected
+        result.eliminatedSelectorCount == 0
+
+        where:
+        rejected << [
+            ["[1.0,2.0)", "[2.0,3.0)"],
+            ["[1.0,2.0)", "[2.0-rc1,2.0-rc2]"],
+            ["[1.0-rc1,1.0)", "[1.0-beta1,1.0-rc2]"],
+            ["[1.0,2.0)", "[1.5,2.0-rc1]"],
+        ]
+    }
+
+    def "constraints with different suggested versions are kept"() {
+        when:
+        def result = normalize([
+            constraint("jetty-webapp", "9.4.33.v20201020", "CVE-2020-27216", ["(,9.4.32.v20200930]"]),
+            constraint("jetty-webapp", "9.4.35.v20201120", "CVE-2020-27218", ["(,9.4.34.v20201102]"]),
+        ])
+
+        then:
+        result.constraints.constraints*.suggestedVersion == ["9.4.33.v20201020", "9.4.35.v20201120"]
+        result.collapsedConstraintCount == 0
+    }
+}
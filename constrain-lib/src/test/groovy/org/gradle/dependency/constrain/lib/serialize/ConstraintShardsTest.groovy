@@ -0,0 +1,237 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize
+
+import org.gradle.dependency.constrain.lib.DependencyConstrainException
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class ConstraintShardsTest extends Specification {
+
+    @TempDir
+    File tempDirectory
+
+    File getGradleDirectory() { new File(tempDirectory, "gradle") }
+
+    File getShardsDirectory() { new File(gradleDirectory, ConstraintShards.SHARDS_DIRECTORY_NAME) }
+
+    def setup() {
+        InMemoryConstraintsCache.getInstance().clear()
+        shardsDirectory.mkdirs()
+    }
+
+    def "shards are merged in global order"() {
+        given:
+        shard("advisories.json", ["com.a", "com.d", "com.f"])
+        shard("dependabot.json", ["com.b", "com.e"])
+        shard("renovate.json", ["com.c", "com.g"])
+
+        when:
+        def loadedConstraints = ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory)
+
+        then:
+        loadedConstraints.constraints*.group == ["com.a", "com.b", "com.c", "com.d", "com.e", "com.f", "com.g"]
+    }
+
+    def "constraints file is merged with the shards"() {
+        given:
+        new File(gradleDirectory, ConstrainFileLoader.DEPENDENCY_CONSTRAINTS_FILE_NAME).setText(constraintsJson(["com.b"]), "UTF-8")
+        shard("advisories.json", ["com.a", "com.c"])
+
+        when:
+        def loadedConstraints = ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory)
+
+        then:
+        loadedConstraints.constraints*.group == ["com.a", "com.b", "com.c"]
+    }
+
+    def "files without a constraints file extension are ignored"() {
+        given:
+        shard("advisories.json", ["com.a"])
+        new File(shardsDirectory, "README.md").text = "Constraints managed by the security team"
+
+        when:
+        def loadedConstraints = ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory)
+
+        then:
+        loadedConstraints.constraints*.group == ["com.a"]
+    }
+
+    def "shards in different formats are merged"() {
+        given:
+        shard("advisories.json", ["com.a", "com.d"])
+        new File(shardsDirectory, "dependabot.xml").setText(constraintsXml(["com.b", "com.e"]), "UTF-8")
+        ConstraintsBinaryFormat.write(ConstraintsJsonReader.readFromJson(constraintsJson(["com.c", "com.f"]).getBytes("UTF-8")),
+            new File(shardsDirectory, "generated.bin"))
+
+        when:
+        def loadedConstraints = ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory)
+
+        then:
+        loadedConstraints.constraints*.group == ["com.a", "com.b", "com.c", "com.d", "com.e", "com.f"]
+    }
+
+    def "constraints file is read in the #format format"() {
+        given:
+        new File(gradleDirectory, ConstrainFileLoader.DEPENDENCY_CONSTRAINTS_BASE_NAME + extension).bytes = content()
+
+        when:
+        def loadedConstraints = ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory, new File(tempDirectory, ".gradle"))
+
+        then:
+        loadedConstraints.constraints*.group == ["com.a", "com.b"]
+
+        where:
+        format   | extension | content
+        "XML"    | ".xml"    | { constraintsXml(["com.a", "com.b"]).getBytes("UTF-8") }
+        "binary" | ".bin"    | { ConstraintsBinaryFormat.encode(ConstraintsJsonReader.readFromJson(constraintsJson(["com.a", "com.b"]).getBytes("UTF-8"))) }
+    }
+
+    def "empty shards directory loads no constraints"() {
+        expect:
+        ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory).constraints.isEmpty()
+    }
+
+    def "constraint declared in several shards is reported"() {
+        given:
+        shard("advisories.json", ["com.a", "com.b"])
+        shard("renovate.json", ["com.b", "com.c"])
+
+        when:
+        ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory)
+
+        then:
+        def ex = thrown(DependencyConstrainException)
+        ex.message == "Constraint com.b:module:1.0.0 is declared in both " +
+            new File(shardsDirectory, "advisories.json") + " and " + new File(shardsDirectory, "renovate.json")
+    }
+
+    def "interrupting a sharded load cancels it"() {
+        given:
+        (0..<20).each { shard("shard-${it}.json", (0..<100).collect { i -> String.format("com.s%02d.%03d", it, i) }) }
+        Thread.currentThread().interrupt()
+
+        when:
+        ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory)
+
+        then:
+        def ex = thrown(DependencyConstrainException)
+        ex.message == "Interrupted while loading the dependency constraints"
+        // The interrupt is kept for the caller
+        Thread.interrupted()
+    }
+
+    def "unsorted shard is reported with its file name"() {
+        given:
+        shard("advisories.json", ["com.a"])
+        shard("renovate.json", ["com.c", "com.b"])
+
+        when:
+        ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory)
+
+        then:
+        def ex = thrown(DependencyConstrainException)
+        ex.message == "Failed to load constraints from " + new File(shardsDirectory, "renovate.json")
+        ex.cause.message.startsWith("Constrains were not sorted by group:name:suggestedVersion in lexicographical order:")
+    }
+
+    def "first broken shard is reported"() {
+        given:
+        shard("advisories.json", ["com.a"])
+        shard("dependabot.json", ["com.c", "com.b"])
+        shard("renovate.json", ["com.e", "com.d"])
+
+        when:
+        ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory)
+
+        then:
+        def ex = thrown(DependencyConstrainException)
+        ex.message == "Failed to load constraints from " + new File(shardsDirectory, "dependabot.json")
+    }
+
+    def "shards are cached independently"() {
+        given:
+        def projectCacheDirectory = new File(tempDirectory, ".gradle")
+        shard("advisories.json", ["com.a"])
+        shard("renovate.json", ["com.b"])
+
+        when:
+        def loadedConstraints = ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory, projectCacheDirectory)
+        def shardsCacheDirectory = new File(projectCacheDirectory, ConstrainFileLoader.CACHE_DIRECTORY_NAME + "/" + ConstrainFileLoader.SHARDS_CACHE_DIRECTORY_NAME)
+
+        then:
+        loadedConstraints.constraints*.group == ["com.a", "com.b"]
+        new File(shardsCacheDirectory, "advisories.json.bin").isFile()
+        new File(shardsCacheDirectory, "renovate.json.bin").isFile()
+
+        when:
+        InMemoryConstraintsCache.getInstance().clear()
+        def reloadedConstraints = ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory, projectCacheDirectory)
+
+        then:
+        reloadedConstraints.constraints*.group == ["com.a", "com.b"]
+    }
+
+    def "many shards are merged in global order"() {
+        given:
+        16.times { shardIndex ->
+            shard(String.format("shard-%02d.json", shardIndex), (0..<500).collect { String.format("org.example.group%06d", it * 16 + shardIndex) })
+        }
+
+        when:
+        def loadedConstraints = ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory)
+
+        then:
+        loadedConstraints.constraints*.group == (0..<8000).collect { String.format("org.example.group%06d", it) }
+    }
+
+    private void shard(String fileName, List<String> groups) {
+        new File(shardsDirectory, fileName).setText(constraintsJson(groups), "UTF-8")
+    }
+
+    private static String constraintsXml(List<String> groups) {
+        def xml = new StringBuilder("<constraints>\n")
+        groups.each { group ->
+            xml.append("""    <constraint>
+        <group>$group</group>
+        <name>module</name>
+        <suggested-version>1.0.0</suggested-version>
+        <because>Reason</because>
+    </constraint>
+""")
+        }
+        xml.append("</constraints>\n")
+        xml.toString()
+    }
+
+    private static String constraintsJson(List<String> groups) {
+        def json = new StringBuilder("{\n  \"version\": \"1.0.0\",\n  \"dependencyConstraints\": [\n")
+        groups.eachWithIndex { group, i ->
+            json.append("""    {
+      "group": "$group",
+      "name": "module",
+      "suggestedVersion": "1.0.0",
+      "because": {
+        "reason": "Reason"
+      }
+    }${i == groups.size() - 1 ? "" : ","}
+""")
+        }
+        json.append("  ]\n}\n")
+        json.toString()
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize
+
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.ByteBuffer
+import java.util.zip.CRC32
+
+class ConstraintsBinaryCacheTest extends Specification {
+
+    @TempDir
+    File tempDirectory
+
+    File getCacheFile() { new File(tempDirectory, "cache/" + ConstraintsBinaryCache.CACHE_FILE_NAME) }
+
+    LoadedConstraints exampleConstraints() {
+        ConstraintsJsonReader.readFromJson(getClass().getClassLoader().getResourceAsStream("examples/example-jetty-CVE-2020-27216.json"))
+    }
+
+    def "cached constraints can be read back"() {
+        given:
+        def digest = ConstrainFileLoader.digest("content".getBytes("utf-8"))
+        def constraints = exampleConstraints()
+
+        when:
+        ConstraintsBinaryCache.write(cacheFile, digest, constraints)
+        def cachedConstraints = ConstraintsBinaryCache.read(cacheFile, digest)
+
+        then:
+        cachedConstraints.constraints.size() == 2
+        [cachedConstraints.constraints, constraints.constraints].transpose().every { cached, loaded ->
+            cached.group == loaded.group &&
+                cached.name == loaded.name &&
+                cached.suggestedVersion == loaded.suggestedVersion &&
+                cached.rejected == loaded.rejected &&
+                cached.because == loaded.because
+        }
+    }
+
+    def "cache is not used when the digest does not match"() {
+        given:
+        ConstraintsBinaryCache.write(cacheFile, ConstrainFileLoader.digest("content".getBytes("utf-8")), exampleConstraints())
+
+        expect:
+        ConstraintsBinaryCache.read(cacheFile, ConstrainFileLoader.digest("changed content".getBytes("utf-8"))) == null
+    }
+
+    def "cache is not used when the cache file is #description"() {
+        given:
+        def digest = ConstrainFileLoader.digest("content".getBytes("utf-8"))
+        ConstraintsBinaryCache.write(cacheFile, digest, exampleConstraints())
+        byte[] bytes = cacheFile.bytes
+        cacheFile.bytes = corrupt(bytes)
+
+        expect:
+        ConstraintsBinaryCache.read(cacheFile, digest) == null
+
+        where:
+        description | corrupt
+        "corrupted" | { byte[] bytes -> bytes[bytes.length.intdiv(2)]++; bytes }
+        "truncated" | { byte[] bytes -> Arrays.copyOf(bytes, bytes.length - 9) }
+        "empty"     | { byte[] bytes -> new byte[0] }
+    }
+
+    def "cache written by a previous format version is not used"() {
+        given:
+        def digest = ConstrainFileLoader.digest("content".getBytes("utf-8"))
+        ConstraintsBinaryCache.write(cacheFile, digest, exampleConstraints())
+        def buffer = ByteBuffer.wrap(cacheFile.bytes)
+        buffer.putInt(Integer.BYTES, 1)
+        def crc = new CRC32()
+        crc.update(buffer.array(), 0, buffer.limit() - Long.BYTES)
+        buffer.putLong(buffer.limit() - Long.BYTES, crc.value)
+        cacheFile.bytes = buffer.array()
+
+        expect:
+        ConstraintsBinaryCache.read(cacheFile, digest) == null
+    }
+
+    def "constraints file is loaded from the cache when unchanged"() {
+        given:
+        def gradleDirectory = new File(tempDirectory, "gradle")
+        def projectCacheDirectory = new File(tempDirectory, ".gradle")
+        gradleDirectory.mkdirs()
+        new File(gradleDirectory, ConstrainFileLoader.DEPENDENCY_CONSTRAINTS_FILE_NAME).bytes =
+            getClass().getClassLoader().getResourceAsStream("examples/example-junit-CVE-2020-15250.json").bytes
+
+        when:
+        def loadedConstraints = ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory, projectCacheDirectory)
+        def cacheFile = new File(projectCacheDirectory, ConstrainFileLoader.CACHE_DIRECTORY_NAME + "/" + ConstraintsBinaryCache.CACHE_FILE_NAME)
+
+        then:
+        loadedConstraints.constraints.size() == 1
+        cacheFile.isFile()
+
+        when:
+        def lastModified = cacheFile.lastModified()
+        def reloadedConstraints = ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory, projectCacheDirectory)
+
+        then:
+        reloadedConstraints.constraints.size() == 1
+        reloadedConstraints.constraints[0].because == loadedConstraints.constraints[0].because
+        cacheFile.lastModified() == lastModified
+    }
+}
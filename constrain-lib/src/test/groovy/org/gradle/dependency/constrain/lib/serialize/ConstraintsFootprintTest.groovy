@@ -0,0 +1,107 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize
+
+import org.gradle.dependency.constrain.lib.model.LoadedConstraint
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints
+import org.openjdk.jol.info.GraphLayout
+import spock.lang.Shared
+import spock.lang.Specification
+
+/**
+ * Measures the heap retained by the constraints read from advisories, where every advisory constrains all the
+ * modules of a group.
+ */
+class ConstraintsFootprintTest extends Specification {
+    static final int SIZE = 100_000
+    static final int MODULES_PER_ADVISORY = 10
+
+    @Shared
+    LoadedConstraints loadedConstraints = ConstraintsJsonReader.readFromJson(advisoryConstraintsJson(SIZE).getBytes("UTF-8"))
+
+    def "repeated strings are shared between the constraints"() {
+        given:
+        def constraints = loadedConstraints.constraints
+
+        expect:
+        constraints.size() == SIZE
+        constraints[0].group.is(constraints[1].group)
+        constraints[0].because.is(constraints[1].because)
+        constraints[0].name.is(constraints[MODULES_PER_ADVISORY].name)
+        constraints[0].suggestedVersion.is(constraints[7 * MODULES_PER_ADVISORY].suggestedVersion)
+        constraints[0].rejected[0].is(constraints[7 * MODULES_PER_ADVISORY].rejected[0])
+    }
+
+    def "pooled constraints retain less than half of the heap of unpooled constraints"() {
+        given:
+        def unpooledConstraints = copyWithoutSharing(loadedConstraints)
+
+        when:
+        def pooledSize = GraphLayout.parseInstance(loadedConstraints.constraints).totalSize()
+        def unpooledSize = GraphLayout.parseInstance(unpooledConstraints.constraints).totalSize()
+        println "Retained size of $SIZE constraints: ${pooledSize.intdiv(1024)} KiB pooled, ${unpooledSize.intdiv(1024)} KiB unpooled"
+
+        then:
+        pooledSize < unpooledSize / 2
+    }
+
+    /**
+     * Copies the constraints with a distinct instance of every string, like they were before being pooled.
+     */
+    private static LoadedConstraints copyWithoutSharing(LoadedConstraints constraints) {
+        def builder = LoadedConstraints.builder()
+        constraints.constraints.each { constraint ->
+            def constraintBuilder = LoadedConstraint.builder()
+                .group(copy(constraint.group))
+                .name(copy(constraint.name))
+                .suggestedVersion(copy(constraint.suggestedVersion))
+                .because(copy(constraint.because))
+            constraint.rejected.each { constraintBuilder.addReject(copy(it)) }
+            builder.addConstraint(constraintBuilder.build())
+        }
+        builder.buildTrusted()
+    }
+
+    private static String copy(String value) {
+        // `new String(String)` would share the characters of the original
+        new String(value.toCharArray())
+    }
+
+    private static String advisoryConstraintsJson(int size) {
+        def json = new StringBuilder("{\n  \"version\": \"1.0.0\",\n  \"dependencyConstraints\": [\n")
+        size.times { i ->
+            def advisory = i.intdiv(MODULES_PER_ADVISORY)
+            json.append("""    {
+      "group": "org.example.group${String.format("%05d", advisory)}",
+      "name": "module-${i % MODULES_PER_ADVISORY}",
+      "suggestedVersion": "1.${advisory % 7}.1",
+      "rejectedVersions": [
+        "[1.0,1.${advisory % 7}.0]"
+      ],
+      "because": {
+        "advisoryIdentifiers": [
+          "CVE-2021-${String.format("%05d", advisory)}"
+        ],
+        "reason": "Remote code execution in the modules of group $advisory"
+      }
+    }${i == size - 1 ? "" : ","}
+""")
+        }
+        json.append("  ]\n}\n")
+        json.toString()
+    }
+}
@@ -21,9 +21,13 @@ import org.gradle.dependency.constrain.lib.model.LoadedConstraint
 import org.gradle.dependency.constrain.lib.model.LoadedConstraints
 import org.intellij.lang.annotations.Language
 import spock.lang.Specification
+import spock.lang.TempDir
 
 class ConstraintsJsonReaderTest extends Specification {
 
+    @TempDir
+    File tempDirectory
+
     LoadedConstraints loadedConstraints;
 
     List<LoadedConstraint> getConstraints() { loadedConstraints.constraints }
@@ -162,9 +166,7 @@ Dependency constraints contains schema violations:
             cause instanceof DependencyConstrainException
             cause.getMessage() == """
 Constrains were not sorted by group:name:suggestedVersion in lexicographical order:
-  - Remove constraint at position 0:
-    - {"group":"com.b", "name":"aaa", "suggestedVersion":"1.0.0"}
-  - Insert constraint at position 2:
+  - Move constraint at position 0 to position 1:
     - {"group":"com.b", "name":"aaa", "suggestedVersion":"1.0.0"}
 """.trim()
         }
@@ -202,9 +204,7 @@ Constrains were not sorted by group:name:suggestedVersion in lexicographical ord
             cause instanceof DependencyConstrainException
             cause.getMessage() == """
 Constrains were not sorted by group:name:suggestedVersion in lexicographical order:
-  - Remove constraint at position 0:
-    - {"group":"com.a", "name":"aaa", "suggestedVersion":"1.0.1"}
-  - Insert constraint at position 2:
+  - Move constraint at position 0 to position 1:
     - {"group":"com.a", "name":"aaa", "suggestedVersion":"1.0.1"}
 """.trim()
         }
@@ -258,10 +258,7 @@ Constrains were not sorted by group:name:suggestedVersion in lexicographical ord
             cause instanceof DependencyConstrainException
             cause.getMessage() == """
 Constrains were not sorted by group:name:suggestedVersion in lexicographical order:
-  - Remove constraints at position 0 through 1:
-    - {"group":"com.c", "name":"aaa", "suggestedVersion":"1.0.0"}
-    - {"group":"com.d", "name":"aaa", "suggestedVersion":"1.0.0"}
-  - Insert constraints at position 4 through 5:
+  - Move constraints at position 0 through 1 to position 2 through 3:
     - {"group":"com.c", "name":"aaa", "suggestedVersion":"1.0.0"}
     - {"group":"com.d", "name":"aaa", "suggestedVersion":"1.0.0"}
 """.trim()
@@ -337,9 +334,7 @@ The dependency constraints are not formatted correctly. Please apply this patch
             cause instanceof DependencyConstrainException
             cause.getMessage() == """
 Constrains were not sorted by group:name:suggestedVersion in lexicographical order:
-  - Remove constraint at position 0:
-    - {"group":"com.b", "name":"aaa", "suggestedVersion":"1.0.0"}
-  - Insert constraint at position 2:
+  - Move constraint at position 0 to position 1:
     - {"group":"com.b", "name":"aaa", "suggestedVersion":"1.0.0"}
 """.trim()
         }
@@ -359,6 +354,91 @@ Constrains were not sorted by group:name:suggestedVersion in lexicographical ord
         constraints.isEmpty()
     }
 
+    def "parsing succeeds with windows line endings"() {
+        when:
+        def fileContents = [
+                "{",
+                "  \"version\": \"1.0.0\",",
+                "  \"dependencyConstraints\": [",
+                "    {",
+                "      \"group\": \"com.a\",",
+                "      \"name\": \"aaa\",",
+                "      \"suggestedVersion\": \"1.0.0\",",
+                "      \"because\": {",
+                "        \"reason\": \"Reason\"",
+                "      }",
+                "    }",
+                "  ]",
+                "}",
+                ""
+        ]
+        parseNoTrim(fileContents.join("\r\n"))
+        then:
+        constraints.size() == 1
+        verifyAll(constraints.get(0)) {
+            group == "com.a"
+            name == "aaa"
+            suggestedVersion == "1.0.0"
+            because == "Reason"
+        }
+    }
+
+    def "formatting errors are reported for the deviating lines only with windows line endings"() {
+        when:
+        def fileContents = [
+                "{",
+                "  \"version\" : \"1.0.0\",",
+                "  \"dependencyConstraints\": [",
+                "    {",
+                "      \"group\": \"com.a\",",
+                "      \"name\": \"aaa\",",
+                "      \"suggestedVersion\": \"1.0.0\",",
+                "      \"because\": {",
+                "         \"reason\": \"Reason\"",
+                "      }",
+                "    }",
+                "  ]",
+                "}",
+                ""
+        ]
+        parseNoTrim(fileContents.join("\r\n"))
+        then:
+        def ex = thrown(DependencyConstrainException)
+        verifyAll(ex) {
+            getMessage() == "Unable to read dependency constraints"
+            cause instanceof DependencyConstrainException
+            cause.getMessage() == """
+The dependency constraints are not formatted correctly. Please apply this patch to fix the formatting:
+  --- gradle/dependency-constraints.json
+  +++ gradle/dependency-constraints.json
+  @@ -2,1 +2,1 @@
+  -  "version" : "1.0.0",
+  +  "version": "1.0.0",
+  @@ -9,1 +9,1 @@
+  -         "reason": "Reason"
+  +        "reason": "Reason"
+""".trim()
+        }
+    }
+
+    def "parsing input with duplicate keys throws an error"() {
+        when:
+        parse """
+{
+  "version": "1.0.0",
+  "version": "1.0.0",
+  "dependencyConstraints": [ ]
+}
+"""
+        then:
+        def ex = thrown(DependencyConstrainException)
+        verifyAll(ex) {
+            getMessage() == "Unable to read dependency constraints"
+            cause instanceof DependencyConstrainException
+            cause.getMessage().startsWith("The dependency constraints are not formatted correctly.")
+        }
+    }
+
     def "parse example-junit-CVE-2020-15250.json"() {
         when:
         parseExampleFile("examples/example-junit-CVE-2020-15250.json")
@@ -406,6 +486,62 @@ Constrains were not sorted by group:name:suggestedVersion in lexicographical ord
         }
     }
 
+    def "parsing succeeds for files larger than 16 MiB"() {
+        given:
+        def gradleDirectory = new File(tempDirectory, "gradle")
+        gradleDirectory.mkdirs()
+        def constraintsFile = new File(gradleDirectory, ConstrainFileLoader.DEPENDENCY_CONSTRAINTS_FILE_NAME)
+        constraintsFile.setText(largeConstraintsJson(80_000), "UTF-8")
+
+        expect:
+        constraintsFile.length() > 16 * 1024 * 1024
+
+        when:
+        loadedConstraints = ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory)
+
+        then:
+        constraints.size() == 80_000
+        constraints.last().group == "org.example.group079999"
+        constraints.last().because == "R\u00e9ason 79999 with enough padding to make each constraint larger than 200 bytes"
+    }
+
+    def "formatting errors are reported for files larger than 16 MiB"() {
+        when:
+        parseNoTrim(largeConstraintsJson(80_000).replace("  ]\n}\n", "   ]\n}\n"))
+
+        then:
+        def ex = thrown(DependencyConstrainException)
+        verifyAll(ex) {
+            getMessage() == "Unable to read dependency constraints"
+            cause instanceof DependencyConstrainException
+            cause.getMessage() == """
+The dependency constraints are not formatted correctly. Please apply this patch to fix the formatting:
+  --- gradle/dependency-constraints.json
+  +++ gradle/dependency-constraints.json
+  @@ -640004,1 +640004,1 @@
+  -   ]
+  +  ]
+""".trim()
+        }
+    }
+
+    private static String largeConstraintsJson(int size) {
+        def json = new StringBuilder("{\n  \"version\": \"1.0.0\",\n  \"dependencyConstraints\": [\n")
+        size.times { i ->
+            json.append("""    {
+      "group": "org.example.group${String.format("%06d", i)}",
+      "name": "module",
+      "suggestedVersion": "1.0.0",
+      "because": {
+        "reason": "R\u00e9ason $i with enough padding to make each constraint larger than 200 bytes"
+      }
+    }${i == size - 1 ? "" : ","}
+""")
+        }
+        json.append("  ]\n}\n")
+        json.toString()
+    }
+
     private void parseExampleFile(String filePath) {
         loadedConstraints = ConstraintsJsonReader.readFromJson(getClass().getClassLoader().getResourceAsStream(filePath))
     }
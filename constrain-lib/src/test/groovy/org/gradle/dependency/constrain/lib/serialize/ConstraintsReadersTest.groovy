@@ -0,0 +1,143 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize
+
+import org.gradle.dependency.constrain.lib.DependencyConstrainException
+import org.gradle.dependency.constrain.lib.model.LoadedConstraint
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+
+class ConstraintsReadersTest extends Specification {
+
+    LoadedConstraints exampleConstraints() {
+        ConstraintsJsonReader.readFromJson(getClass().getClassLoader().getResourceAsStream("examples/example-jetty-CVE-2020-27216.json"))
+    }
+
+    def "#description is read as #extension"() {
+        expect:
+        ConstraintsReaders.forContent("constraints", ByteBuffer.wrap(content.getBytes("UTF-8"))).fileExtension == extension
+
+        where:
+        description                     | content                                  | extension
+        "a JSON object"                 | '{"version": "1.0.0"}'                   | ".json"
+        "a JSON object after blanks"    | '\n  \t{"version": "1.0.0"}'             | ".json"
+        "an XML document"               | '<?xml version="1.0"?><constraints/>'    | ".xml"
+        "an XML document after a BOM"   | "\uFEFF<constraints/>"                 | ".xml"
+    }
+
+    def "binary content is detected by its magic"() {
+        given:
+        def content = ByteBuffer.wrap(ConstraintsBinaryFormat.encode(exampleConstraints()))
+
+        expect:
+        ConstraintsReaders.forContent("dependency-constraints.json", content).fileExtension == ConstraintsBinaryFormat.FILE_EXTENSION
+        content.position() == 0
+    }
+
+    def "unrecognized content is read in the format of its file extension"() {
+        when:
+        ConstraintsReaders.forContent("dependency-constraints.json", ByteBuffer.allocate(0)).read(ByteBuffer.allocate(0))
+
+        then:
+        def ex = thrown(DependencyConstrainException)
+        ex.message == "Unable to read dependency constraints"
+    }
+
+    def "unrecognized content without a constraints file extension is reported"() {
+        when:
+        ConstraintsReaders.forContent("constraints.txt", ByteBuffer.wrap("constraints".getBytes("UTF-8")))
+
+        then:
+        def ex = thrown(DependencyConstrainException)
+        ex.message == "Unable to read dependency constraints"
+        ex.cause.message == "The format of constraints.txt is not supported, expected JSON, XML or binary constraints"
+    }
+
+    def "binary constraints can be read back"() {
+        given:
+        def constraints = exampleConstraints()
+        def content = ByteBuffer.wrap(ConstraintsBinaryFormat.encode(constraints))
+
+        when:
+        def readConstraints = ConstraintsReaders.forContent("constraints.bin", content).read(content)
+
+        then:
+        readConstraints.constraints.size() == 2
+        [readConstraints.constraints, constraints.constraints].transpose().every { read, loaded ->
+            read.group == loaded.group &&
+                read.name == loaded.name &&
+                read.suggestedVersion == loaded.suggestedVersion &&
+                read.rejected == loaded.rejected &&
+                read.because == loaded.because
+        }
+    }
+
+    def "binary constraints are read from a direct buffer sharing the repeated strings"() {
+        given:
+        def bytes = ConstraintsBinaryFormat.encode(exampleConstraints())
+        def content = ByteBuffer.allocateDirect(bytes.length).put(bytes)
+        content.flip()
+
+        when:
+        def readConstraints = ConstraintsReaders.forContent("constraints.bin", content).read(content)
+
+        then:
+        readConstraints.constraints[0].name.is(readConstraints.constraints[1].name)
+        content.position() == 0
+    }
+
+    def "binary constraints that are #description are reported"() {
+        given:
+        def content = ByteBuffer.wrap(corrupt(ConstraintsBinaryFormat.encode(exampleConstraints())))
+
+        when:
+        ConstraintsReaders.forContent("constraints.bin", content).read(content)
+
+        then:
+        def ex = thrown(DependencyConstrainException)
+        ex.message == "Unable to read dependency constraints"
+        ex.cause.message == "The binary dependency constraints are truncated or corrupted"
+
+        where:
+        description | corrupt
+        "corrupted" | { byte[] bytes -> bytes[bytes.length.intdiv(2)]++; bytes }
+        "truncated" | { byte[] bytes -> Arrays.copyOf(bytes, bytes.length - 9) }
+    }
+
+    def "unsorted binary constraints are only accepted when trusted"() {
+        given:
+        def builder = LoadedConstraints.builder()
+        ["com.b", "com.a"].each { group ->
+            builder.addConstraint(LoadedConstraint.builder().group(group).name("module").suggestedVersion("1.0.0").because("Reason").build())
+        }
+        def content = ByteBuffer.wrap(ConstraintsBinaryFormat.encode(builder.buildTrusted()))
+        def reader = ConstraintsReaders.forContent("constraints.bin", content)
+
+        expect:
+        reader.readTrusted(content).constraints*.group == ["com.b", "com.a"]
+
+        when:
+        reader.read(content)
+
+        then:
+        def ex = thrown(DependencyConstrainException)
+        ex.message == "Unable to read dependency constraints"
+        ex.cause.message.startsWith("Constrains were not sorted by group:name:suggestedVersion in lexicographical order:")
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.networknt.schema.JsonSchema
+import com.networknt.schema.JsonSchemaFactory
+import com.networknt.schema.SpecVersion
+import spock.lang.Shared
+import spock.lang.Specification
+
+/**
+ * Verifies that the validator generated at build time reports the same violations as the networknt validator.
+ */
+class ConstraintsSchemaValidatorTest extends Specification {
+
+    @Shared
+    ObjectMapper mapper = new ObjectMapper()
+
+    @Shared
+    JsonSchema schema = JsonSchemaFactory
+        .builder(JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V201909))
+        .build()
+        .getSchema(getClass().getClassLoader().getResourceAsStream("schema/dependency-constraints-schema.json"))
+
+    static final String VALID_CONSTRAINT = """
+{
+  "group": "com.example",
+  "name": "example",
+  "suggestedVersion": "1.0.0",
+  "rejectedVersions": ["[1.0,1.0.0)"],
+  "because": {
+    "advisoryIdentifiers": ["CVE-2021-1234"],
+    "moreInformationUrls": ["https://example.com"],
+    "reason": "Reason"
+  }
+}
+"""
+
+    void conformsToSchema(String json) {
+        JsonNode node = mapper.readTree(json)
+        def expected = schema.validate(node)*.message as Set
+        def actual = ConstraintsSchemaValidator.validate(node)
+        assert actual as Set == expected
+        assert actual.size() == expected.size()
+    }
+
+    def "valid #description conforms to the schema"() {
+        expect:
+        conformsToSchema(json)
+        ConstraintsSchemaValidator.validate(mapper.readTree(json)).isEmpty()
+
+        where:
+        description            | json
+        "empty constraints"    | """{"version": "1.0.0", "dependencyConstraints": []}"""
+        "constraint"           | """{"version": "1.0.0", "dependencyConstraints": [$VALID_CONSTRAINT]}"""
+        "minimal constraint"   | """{"version": "1.0.0", "dependencyConstraints": [{"group": "g", "name": "n", "suggestedVersion": "1", "because": {"reason": "r"}}]}"""
+        "unknown version"      | """{"version": "2.0.0", "dependencyConstraints": []}"""
+        "additional attribute" | """{"version": "1.0.0", "dependencyConstraints": [{"group": "g", "name": "n", "suggestedVersion": "1", "because": {"reason": "r"}, "extra": 1}]}"""
+    }
+
+    def "invalid #description conforms to the schema"() {
+        expect:
+        conformsToSchema(json)
+        !ConstraintsSchemaValidator.validate(mapper.readTree(json)).isEmpty()
+
+        where:
+        description                      | json
+        "empty object"                   | """{}"""
+        "array root"                     | """[]"""
+        "string root"                    | """ "1.0.0" """
+        "missing version"                | """{"dependencyConstraints": []}"""
+        "integer version"                | """{"version": 1, "dependencyConstraints": []}"""
+        "number version"                 | """{"version": 1.5, "dependencyConstraints": []}"""
+        "null version"                   | """{"version": null, "dependencyConstraints": []}"""
+        "boolean version"                | """{"version": true, "dependencyConstraints": []}"""
+        "object constraints"             | """{"version": "1.0.0", "dependencyConstraints": {}}"""
+        "unknown root property"          | """{"version": "1.0.0", "dependencyConstraints": [], "extra": [], "other": 1}"""
+        "constraint of the wrong type"   | """{"version": "1.0.0", "dependencyConstraints": [1, "a", null]}"""
+        "empty constraint"               | """{"version": "1.0.0", "dependencyConstraints": [$VALID_CONSTRAINT, {}]}"""
+        "constraint of wrong types"      | """{"version": "1.0.0", "dependencyConstraints": [{"group": 1, "name": [], "suggestedVersion": {}, "rejectedVersions": "1.0", "because": "r"}]}"""
+        "rejected version of wrong type" | """{"version": "1.0.0", "dependencyConstraints": [{"group": "g", "name": "n", "suggestedVersion": "1", "rejectedVersions": ["1", 2, null], "because": {"reason": "r"}}]}"""
+        "because without reason"         | """{"version": "1.0.0", "dependencyConstraints": [{"group": "g", "name": "n", "suggestedVersion": "1", "because": {}}]}"""
+        "because with unknown property"  | """{"version": "1.0.0", "dependencyConstraints": [{"group": "g", "name": "n", "suggestedVersion": "1", "because": {"reason": "r", "cve": "CVE"}}]}"""
+        "because of wrong types"         | """{"version": "1.0.0", "dependencyConstraints": [{"group": "g", "name": "n", "suggestedVersion": "1", "because": {"reason": 1, "advisoryIdentifiers": "CVE", "moreInformationUrls": [1]}}]}"""
+    }
+
+    def "messages match the reported schema violations"() {
+        expect:
+        ConstraintsSchemaValidator.validate(mapper.readTree("""{"version": 1, "extra": true}""")) == [
+            '$.version: integer found, string expected',
+            '$.extra: is not defined in the schema and the schema does not allow additional properties',
+            '$.dependencyConstraints: is missing but it is required'
+        ]
+    }
+}
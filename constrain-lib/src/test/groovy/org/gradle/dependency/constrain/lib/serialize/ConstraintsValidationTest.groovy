@@ -0,0 +1,144 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize
+
+import org.gradle.dependency.constrain.lib.DependencyConstrainException
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class ConstraintsValidationTest extends Specification {
+
+    @TempDir
+    File tempDirectory
+
+    File getGradleDirectory() { new File(tempDirectory, "gradle") }
+
+    File getConstraintsFile() { new File(gradleDirectory, ConstrainFileLoader.DEPENDENCY_CONSTRAINTS_FILE_NAME) }
+
+    File getProjectCacheDirectory() { new File(tempDirectory, ".gradle") }
+
+    File getRecordsDirectory() { ConstraintsValidation.recordsDirectory(projectCacheDirectory) }
+
+    def setup() {
+        InMemoryConstraintsCache.getInstance().clear()
+        gradleDirectory.mkdirs()
+    }
+
+    def "validated contents are recorded by their digest"() {
+        given:
+        constraintsFile.setText(constraintsJson(["com.a", "com.b"]), "UTF-8")
+        def digest = ConstrainFileLoader.digest(constraintsFile.bytes)
+
+        expect:
+        !ConstraintsValidation.isValidated(recordsDirectory, digest)
+
+        when:
+        ConstraintsValidation.validate(constraintsFile, recordsDirectory)
+
+        then:
+        ConstraintsValidation.isValidated(recordsDirectory, digest)
+        !ConstraintsValidation.isValidated(recordsDirectory, ConstrainFileLoader.digest("changed".getBytes("UTF-8")))
+        !ConstraintsValidation.isValidated(null, digest)
+    }
+
+    def "invalid contents are reported and not recorded"() {
+        given:
+        constraintsFile.setText(constraintsJson(["com.b", "com.a"]), "UTF-8")
+
+        when:
+        ConstraintsValidation.validate(constraintsFile, recordsDirectory)
+
+        then:
+        def ex = thrown(DependencyConstrainException)
+        ex.message == "Failed to validate constraints from " + constraintsFile
+        ex.cause.message.startsWith("Constrains were not sorted by group:name:suggestedVersion in lexicographical order:")
+        !ConstraintsValidation.isValidated(recordsDirectory, ConstrainFileLoader.digest(constraintsFile.bytes))
+    }
+
+    def "validated contents are loaded without being validated again"() {
+        given:
+        // Not sorted, so that it would be rejected if it was validated
+        constraintsFile.setText(constraintsJson(["com.b", "com.a"]), "UTF-8")
+        def record = ConstraintsValidation.recordFile(recordsDirectory, ConstrainFileLoader.digest(constraintsFile.bytes))
+        record.parentFile.mkdirs()
+        record.createNewFile()
+
+        when:
+        def loadedConstraints = ConstrainFileLoader.loadConstraintsFromFile(gradleDirectory, projectCacheDirectory)
+
+        then:
+        loadedConstraints.constraints*.group == ["com.b", "com.a"]
+    }
+
+    def "contents validated with another schema are validated again"() {
+        given:
+        constraintsFile.setText(constraintsJson(["com.a"]), "UTF-8")
+        def digest = ConstrainFileLoader.digest(constraintsFile.bytes)
+        def otherSchemaRecord = ConstraintsValidation.recordFile(recordsDirectory, "0" * 64, digest)
+        otherSchemaRecord.parentFile.mkdirs()
+        otherSchemaRecord.createNewFile()
+        new File(recordsDirectory, otherSchemaRecord.name).createNewFile()
+
+        expect:
+        !ConstraintsValidation.isValidated(recordsDirectory, digest)
+    }
+
+    def "trusted reads are the same as validated reads"() {
+        given:
+        def content = getClass().getClassLoader().getResourceAsStream("examples/example-jetty-CVE-2020-27216.json").bytes
+
+        when:
+        def validated = ConstraintsJsonReader.readFromJson(content)
+        def trusted = ConstraintsJsonReader.readTrustedFromJson(content)
+
+        then:
+        trusted.constraints.collect { [it.group, it.name, it.suggestedVersion, it.rejected, it.because] } ==
+            validated.constraints.collect { [it.group, it.name, it.suggestedVersion, it.rejected, it.because] }
+    }
+
+    def "trusted contents without the expected structure are still reported"() {
+        when:
+        ConstraintsJsonReader.readTrustedFromJson('{"version": "1.0.0"}'.getBytes("UTF-8"))
+
+        then:
+        def ex = thrown(DependencyConstrainException)
+        ex.cause.message.startsWith("Dependency constraints contains schema violations:")
+    }
+
+    def "the schema digest is stable"() {
+        expect:
+        ConstraintsValidation.schemaDigest() ==~ /[0-9a-f]{64}/
+        ConstraintsValidation.schemaDigest() == ConstraintsValidation.schemaDigest()
+    }
+
+    private static String constraintsJson(List<String> groups) {
+        def json = new StringBuilder("{\n  \"version\": \"1.0.0\",\n  \"dependencyConstraints\": [\n")
+        groups.eachWithIndex { group, i ->
+            json.append("""    {
+      "group": "$group",
+      "name": "module",
+      "suggestedVersion": "1.0.0",
+      "because": {
+        "reason": "Reason"
+      }
+    }${i == groups.size() - 1 ? "" : ","}
+""")
+        }
+        json.append("  ]\n}\n")
+        json.toString()
+    }
+}
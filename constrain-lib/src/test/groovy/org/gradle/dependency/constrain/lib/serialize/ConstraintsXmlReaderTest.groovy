@@ -236,6 +236,53 @@ class ConstraintsXmlReaderTest extends Specification {
         REJECT            | REJECTED         | "<constraints><constraint><reject/><constraint/><constraints/>"
     }
 
+    def "reads long texts reported in several chunks"() {
+        given:
+        def reason = (1..20000).collect { "reason $it" }.join(", ")
+
+        when:
+        parse """<?xml version="1.0" encoding="UTF-8"?>
+<constraints>
+    <constraint>
+        <group>org.gradle</group>
+        <name>gradle-core</name>
+        <suggested-version>1.0</suggested-version>
+        <because advisory="CVE-2020-15250">$reason</because>
+    </constraint>
+</constraints>
+"""
+        then:
+        constraints.size() == 1
+        constraints[0].because == "CVE-2020-15250: " + reason
+    }
+
+    def "reads escaped texts"() {
+        when:
+        parse """<?xml version="1.0" encoding="UTF-8"?>
+<constraints>
+    <constraint>
+        <group>org.gradle</group>
+        <name>gradle-core</name>
+        <suggested-version>1.0</suggested-version>
+        <because>Rejects &lt;1.0 &amp; <![CDATA[<0.5>]]></because>
+    </constraint>
+</constraints>
+"""
+        then:
+        constraints[0].because == "Rejects <1.0 & <0.5>"
+    }
+
+    def "does not read files declaring a DOCTYPE"() {
+        when:
+        parse """<?xml version="1.0" encoding="UTF-8"?>
+<!DOCTYPE constraints [<!ENTITY secret SYSTEM "file:///etc/passwd">]>
+<constraints>&secret;</constraints>
+"""
+        then:
+        def ex = thrown(DependencyConstrainException)
+        ex.message == "Unable to read dependency constraints"
+    }
+
     void parse(@Language("XML") String xml) {
         loadedConstraints = ConstraintsXmlReader.readFromXml(new ByteArrayInputStream(xml.getBytes("utf-8")))
     }
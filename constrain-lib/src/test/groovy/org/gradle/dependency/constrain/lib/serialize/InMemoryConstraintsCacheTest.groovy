@@ -0,0 +1,73 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain.lib.serialize
+
+import org.gradle.dependency.constrain.lib.model.LoadedConstraints
+import spock.lang.Specification
+
+class InMemoryConstraintsCacheTest extends Specification {
+
+    InMemoryConstraintsCache cache = new InMemoryConstraintsCache(2)
+
+    static InMemoryConstraintsCache.Key key(String path, String content = "content", long lastModified = 1) {
+        byte[] bytes = content.getBytes("utf-8")
+        new InMemoryConstraintsCache.Key(path, bytes.length, lastModified, ConstrainFileLoader.digest(bytes))
+    }
+
+    def "counts hits and misses"() {
+        given:
+        def constraints = LoadedConstraints.builder().build()
+
+        expect:
+        cache.get(key("/a")) == null
+        cache.put(key("/a"), constraints)
+        cache.get(key("/a")).is(constraints)
+        cache.get(key("/a")).is(constraints)
+        cache.hitCount == 2
+        cache.missCount == 1
+    }
+
+    def "entry is stale when the #description changes"() {
+        given:
+        cache.put(key("/a"), LoadedConstraints.builder().build())
+
+        expect:
+        cache.get(changedKey) == null
+        cache.size() == 0
+
+        where:
+        description     | changedKey
+        "content"       | key("/a", "other")
+        "last modified" | key("/a", "content", 2)
+    }
+
+    def "least recently used entry is evicted"() {
+        given:
+        cache.put(key("/a"), LoadedConstraints.builder().build())
+        cache.put(key("/b"), LoadedConstraints.builder().build())
+        cache.get(key("/a"))
+
+        when:
+        cache.put(key("/c"), LoadedConstraints.builder().build())
+
+        then:
+        cache.size() == 2
+        cache.get(key("/a")) != null
+        cache.get(key("/b")) == null
+        cache.get(key("/c")) != null
+    }
+}
@@ -3,7 +3,9 @@
  */
 package org.gradle.dependency.constrain
 
+import groovy.json.JsonSlurper
 import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.TaskOutcome
 import org.intellij.lang.annotations.Language
 
 import java.nio.file.Files
@@ -117,4 +119,291 @@ class GradleDependencyConstrainPluginFunctionalTest extends BaseFunctionalTest {
         result.getOutput().contains("junit-4.13.1.jar")
     }
 
+    void "can constrain project dependencies lazily"() {
+        given:
+        // Setup the test build
+        applyConstraintsFile()
+        applyConstraintPlugin()
+        writeString(new File(projectDir, "settings.gradle"), """
+        dependencyConstrain {
+            applyLazily = true
+        }
+""".stripMargin())
+        writeString(new File(projectDir, "build.gradle"), """
+        plugins {
+            id 'java-library'
+        }
+
+        repositories {
+            // Use Maven Central for resolving dependencies.
+            mavenCentral()
+        }
+
+        dependencies {
+            testImplementation("junit:junit:4.12")
+        }
+
+        task resolve {
+            inputs.files(configurations.testRuntimeClasspath)
+            doLast {
+                configurations.testRuntimeClasspath.files.name.each {
+                    println(it)
+                }
+            }
+        }
+""".stripMargin())
+
+        when:
+        // Run the build
+        BuildResult result = succeed("resolve")
+
+        then:
+        result.getOutput().contains("junit-4.13.1.jar")
+        !result.getOutput().contains("junit-4.12.jar")
+    }
+
+    void "resolves the same dependencies lazily and eagerly when #description"() {
+        given:
+        applyConstraintsFile()
+        applyConstraintPlugin()
+        writeString(new File(projectDir, "settings.gradle"), """
+        dependencyConstrain {
+            applyLazily = providers.gradleProperty("applyLazily").forUseAtConfigurationTime().map { Boolean.parseBoolean(it) }.orElse(false)
+        }
+""".stripMargin())
+        writeString(new File(projectDir, "build.gradle"), """
+        plugins {
+            id 'java-library'
+        }
+
+        repositories {
+            mavenCentral()
+        }
+
+        dependencies {
+            ${dependencies}
+        }
+
+        task resolve {
+            doLast {
+                def result = configurations.testRuntimeClasspath.incoming.resolutionResult
+                result.allDependencies.each {
+                    if (it instanceof UnresolvedDependencyResult) {
+                        println("Failed to resolve " + it.requested + ": " + it.failure.message.readLines().first())
+                    } else {
+                        println("Resolved " + it.requested + " to " + it.selected.id)
+                    }
+                }
+            }
+        }
+""".stripMargin())
+
+        when:
+        def eagerOutput = resolutionOutput(succeed("resolve", "-PapplyLazily=false"))
+        def lazyOutput = resolutionOutput(succeed("resolve", "-PapplyLazily=true"))
+
+        then:
+        lazyOutput == eagerOutput
+        eagerOutput.any { it.contains(expected) }
+
+        where:
+        description                        | dependencies                                                           | expected
+        "a rejected version is requested"  | 'testImplementation("junit:junit:4.12")'                               | "Resolved junit:junit:4.12 to junit:junit:4.13.1"
+        "a rejected version is transitive" | 'testImplementation("org.junit.vintage:junit-vintage-engine:5.4.0")'   | "Resolved junit:junit:4.12 to junit:junit:4.13.1"
+        "a strict version conflicts"       | 'testImplementation("junit:junit") { version { strictly("4.12") } }'   | "Failed to resolve junit:junit"
+    }
+
+    void "publishes the same metadata lazily and eagerly"() {
+        given:
+        applyConstraintsFile()
+        applyConstraintPlugin()
+        writeString(new File(projectDir, "settings.gradle"), """
+        dependencyConstrain {
+            applyLazily = providers.gradleProperty("applyLazily").forUseAtConfigurationTime().map { Boolean.parseBoolean(it) }.orElse(false)
+        }
+        rootProject.name = "published"
+""".stripMargin())
+        writeString(new File(projectDir, "build.gradle"), """
+        plugins {
+            id 'java-library'
+            id 'maven-publish'
+        }
+
+        group = "org.example"
+        version = "1.0"
+
+        repositories {
+            mavenCentral()
+        }
+
+        dependencies {
+            implementation("junit:junit:4.12")
+        }
+
+        publishing {
+            publications {
+                maven(MavenPublication) {
+                    from components.java
+                }
+            }
+        }
+""".stripMargin())
+        def moduleFile = new File(projectDir, "build/publications/maven/module.json")
+        def pomFile = new File(projectDir, "build/publications/maven/pom-default.xml")
+        def tasks = ["generateMetadataFileForMavenPublication", "generatePomFileForMavenPublication"]
+
+        when:
+        succeed((tasks + "-PapplyLazily=false") as String[])
+        def eagerVariants = new JsonSlurper().parse(moduleFile).variants
+        def eagerPom = pomFile.text
+
+        and:
+        succeed((tasks + "-PapplyLazily=true") as String[])
+        def lazyVariants = new JsonSlurper().parse(moduleFile).variants
+        def lazyPom = pomFile.text
+
+        then:
+        lazyVariants == eagerVariants
+        lazyPom == eagerPom
+        eagerVariants.find { it.name == "runtimeElements" }.dependencyConstraints*.module.contains("junit")
+    }
+
+    private static List<String> resolutionOutput(BuildResult result) {
+        result.output.readLines().findAll { it.startsWith("Resolved ") || it.startsWith("Failed to resolve ") }
+    }
+
+    void "reports the time the constraints were loaded in the background"() {
+        given:
+        applyConstraintsFile()
+        applyConstraintPlugin()
+        writeString(new File(projectDir, "build.gradle"), RESOLVE_JUNIT_BUILD)
+
+        when:
+        BuildResult result = succeed("resolve", "--info")
+
+        then:
+        result.getOutput().contains("junit-4.13.1.jar")
+        result.getOutput() =~ /Dependency constraints loaded in \d+ ms, of which \d+ ms were hidden behind the evaluation of the settings/
+    }
+
+    void "can load the constraints synchronously #description"() {
+        given:
+        applyConstraintsFile()
+        applyConstraintPlugin()
+        writeString(new File(projectDir, "settings.gradle"), settingsScript)
+        writeString(new File(projectDir, "build.gradle"), RESOLVE_JUNIT_BUILD)
+
+        when:
+        BuildResult result = succeed((["resolve", "--info"] + arguments) as String[])
+
+        then:
+        result.getOutput().contains("junit-4.13.1.jar")
+        result.getOutput().contains("Dependency constraints loaded in") == loadedInBackground
+
+        where:
+        description                | settingsScript                                                 | arguments                                          | loadedInBackground
+        "from the settings"        | "\ndependencyConstrain {\n    loadAsynchronously = false\n}\n" | []                                                 | true
+        "with the Gradle property" | ""                                                             | ["-PdependencyConstrain.loadAsynchronously=false"] | false
+    }
+
+    void "reports the resolved dependencies rejected by the constraints"() {
+        given:
+        applyConstraintsFile()
+        applyConstraintPlugin()
+        writeString(new File(projectDir, "build.gradle"), """
+        plugins {
+            id 'java-library'
+        }
+
+        repositories {
+            mavenCentral()
+        }
+
+        dependencies {
+            testImplementation("junit:junit:4.12")
+        }
+
+        configurations.testRuntimeClasspath.resolutionStrategy.dependencySubstitution {
+            substitute module("junit:junit") using module("junit:junit:4.12")
+        }
+""".stripMargin())
+
+        when:
+        BuildResult result = succeed("auditDependencyConstraints")
+        def report = new JsonSlurper().parse(new File(projectDir, "build/reports/dependency-constraints/audit.json"))
+
+        then:
+        result.task(":auditDependencyConstraints").outcome == TaskOutcome.SUCCESS
+        report.project == ":"
+        with(report.configurations.find { it.configuration == "testRuntimeClasspath" }) {
+            violations*.version == ["4.12"]
+            violations[0].constraints[0].rejectedVersions == ["[4.7,4.13]"]
+        }
+        report.configurations.find { it.configuration == "testCompileClasspath" }.violations == []
+        !report.configurations*.configuration.contains("default")
+
+        when:
+        result = succeed("auditDependencyConstraints")
+
+        then:
+        result.task(":auditDependencyConstraints").outcome == TaskOutcome.UP_TO_DATE
+    }
+
+    void "validates the constraints files once per content"() {
+        given:
+        applyConstraintsFile()
+        applyConstraintPlugin()
+
+        when:
+        BuildResult result = succeed("validateDependencyConstraints")
+
+        then:
+        result.task(":validateDependencyConstraints").outcome == TaskOutcome.SUCCESS
+        new File(projectDir, ".gradle/dependency-constraints/validated").list().length == 1
+
+        when:
+        result = succeed("validateDependencyConstraints")
+
+        then:
+        result.task(":validateDependencyConstraints").outcome == TaskOutcome.UP_TO_DATE
+    }
+
+    void "writes the metrics of the constraints when enabled"() {
+        given:
+        applyConstraintsFile()
+        applyConstraintPlugin()
+        writeString(new File(projectDir, "build.gradle"), RESOLVE_JUNIT_BUILD)
+
+        when:
+        succeed("help", "-P" + DependencyConstrainExtension.METRICS_REPORT_PROPERTY + "=true")
+        def report = new JsonSlurper().parse(new File(projectDir, "build/reports/dependency-constraints/metrics.json"))
+
+        then:
+        report.constraintsLoaded == 1
+        report.configurationsConstrained > 0
+        report.phases*.phase.containsAll(["READ", "CONSTRAINT_CREATION", "DO_CONSTRAIN"])
+    }
+
+    private static final String RESOLVE_JUNIT_BUILD = """
+        plugins {
+            id 'java-library'
+        }
+
+        repositories {
+            mavenCentral()
+        }
+
+        dependencies {
+            testImplementation("junit:junit:4.12")
+        }
+
+        task resolve {
+            inputs.files(configurations.testRuntimeClasspath)
+            doLast {
+                configurations.testRuntimeClasspath.files.name.each {
+                    println(it)
+                }
+            }
+        }
+"""
 }
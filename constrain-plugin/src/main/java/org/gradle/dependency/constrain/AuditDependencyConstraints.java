@@ -0,0 +1,132 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.dependency.constrain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.artifacts.ResolvableDependencies;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.dependency.constrain.lib.audit.ConstraintViolationsReport;
+import org.gradle.dependency.constrain.lib.audit.ConstraintsAudit;
+
+/**
+ * Audits the resolved dependency graphs of the configurations of a project, and reports the components whose
+ * versions are rejected by the dependency constraints, eg. because a configuration was resolved before the
+ * constraints were applied, or because a substitution replaced a constrained module.
+ * <p>
+ * The resolved graphs are inputs of the task, so the task is up-to-date, or its report is loaded from the build cache,
+ * when neither the constraints files nor the resolved graphs changed. Note that the configurations are therefore
+ * resolved, one after the other, whenever Gradle snapshots the inputs of the task, ie. on every build running the task,
+ * including the builds where it is up-to-date. Auditing the resolved components is cheap in comparison, so the
+ * configurations are audited in the task action itself.
+ */
+@CacheableTask
+public abstract class AuditDependencyConstraints extends DefaultTask {
+  static final String NAME = "auditDependencyConstraints";
+
+  /**
+   * The files the constraints are loaded from, so that the configurations are audited again when they change.
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public abstract ConfigurableFileCollection getConstraintsFiles();
+
+  /**
+   * The directory containing the constraints file.
+   */
+  @Internal
+  public abstract DirectoryProperty getConstraintsDirectory();
+
+  /**
+   * The project cache directory, where the binary cache of the constraints is stored, if any.
+   */
+  @Internal
+  public abstract DirectoryProperty getProjectCacheDirectory();
+
+  /**
+   * The constraints of all the audited configurations, loaded once per build.
+   */
+  @Internal
+  public abstract Property<ConstraintsAuditService> getAuditService();
+
+  /**
+   * The {@code group:name:version} coordinates of the resolved module components of each audited configuration. The
+   * plugin audits the configurations of the project which can only be resolved, eg. the classpath configurations, but
+   * not the legacy configurations which can also be consumed.
+   */
+  @Input
+  public abstract MapProperty<String, List<String>> getResolvedComponents();
+
+  @Input
+  public abstract Property<String> getProjectPath();
+
+  /**
+   * The JSON report of the violations, see {@link ConstraintViolationsReport}.
+   */
+  @OutputFile
+  public abstract RegularFileProperty getReportFile();
+
+  @TaskAction
+  void audit() {
+    ConstraintsAudit audit =
+        getAuditService()
+            .get()
+            .audit(
+                getConstraintsDirectory().get().getAsFile(),
+                getProjectCacheDirectory().getAsFile().getOrNull());
+    ConstraintViolationsReport.writeProject(
+        getReportFile().get().getAsFile(),
+        getProjectPath().get(),
+        new TreeMap<>(getResolvedComponents().get()),
+        audit);
+  }
+
+  /**
+   * Resolves a configuration and collects the coordinates of its module components, sorted so that the input of the
+   * task only changes when the resolved graph changes.
+   */
+  static List<String> resolvedComponents(ResolvableDependencies incoming) {
+    List<String> coordinates = new ArrayList<>();
+    for (ResolvedComponentResult component : incoming.getResolutionResult().getAllComponents()) {
+      ComponentIdentifier id = component.getId();
+      if (id instanceof ModuleComponentIdentifier) {
+        ModuleComponentIdentifier moduleId = (ModuleComponentIdentifier) id;
+        coordinates.add(
+            moduleId.getGroup() + ":" + moduleId.getModule() + ":" + moduleId.getVersion());
+      }
+    }
+    Collections.sort(coordinates);
+    return coordinates;
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.dependency.constrain.lib.audit.ConstraintsAudit;
+import org.gradle.dependency.constrain.lib.serialize.ConstrainFileLoader;
+
+/**
+ * Holds the {@link ConstraintsAudit} of the constraints files for as long as the build runs, so that the constraints
+ * and their matcher are loaded and compiled once, and shared by the {@link AuditDependencyConstraints} tasks of all the
+ * projects.
+ * <p>
+ * Public so that Gradle can instantiate it, it isn't meant to be used by builds.
+ */
+public abstract class ConstraintsAuditService
+    implements BuildService<BuildServiceParameters.None> {
+  static final String NAME = "dependencyConstraintsAudit";
+
+  private final Map<List<File>, ConstraintsAudit> audits = new ConcurrentHashMap<>();
+
+  ConstraintsAudit audit(File constraintsDirectory, @Nullable File projectCacheDirectory) {
+    return audits.computeIfAbsent(
+        Arrays.asList(constraintsDirectory, projectCacheDirectory),
+        directories ->
+            ConstraintsAudit.of(
+                ConstrainFileLoader.loadConstraintsFromFile(
+                    constraintsDirectory, projectCacheDirectory)));
+  }
+}
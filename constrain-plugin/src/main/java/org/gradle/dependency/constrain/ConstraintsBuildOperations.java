@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainMetricsListener;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainPhase;
+import org.gradle.dependency.constrain.lib.metrics.PhaseMetrics;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+
+/**
+ * Surfaces the phases of loading and applying the constraints as build operations, eg. in build scans.
+ * <p>
+ * Only the phases running as part of a build operation are surfaced, as a build operation can't outlive its parent:
+ * the phases loading the constraints in the background may still run when the operation applying the plugin completed,
+ * they are only recorded by the metrics report. Build operations are an internal Gradle API, so none are emitted anymore
+ * once the running Gradle version turns out to not support the methods used here.
+ */
+final class ConstraintsBuildOperations implements ConstrainMetricsListener {
+  private static final Logger LOGGER = Logging.getLogger(ConstraintsBuildOperations.class);
+
+  private final BuildOperationExecutor buildOperationExecutor;
+  /** The operations of the phases running on each thread, {@code null} for the phases not surfaced. */
+  private final ThreadLocal<List<BuildOperationContext>> runningOperations =
+      ThreadLocal.withInitial(ArrayList::new);
+
+  private volatile boolean unsupported;
+
+  ConstraintsBuildOperations(BuildOperationExecutor buildOperationExecutor) {
+    this.buildOperationExecutor = buildOperationExecutor;
+  }
+
+  /**
+   * Looks up the build operation executor of the build, an internal service.
+   *
+   * @throws LinkageError or RuntimeException when this Gradle version doesn't provide it
+   */
+  static ConstraintsBuildOperations of(Gradle gradle) {
+    return new ConstraintsBuildOperations(
+        ((GradleInternal) gradle).getServices().get(BuildOperationExecutor.class));
+  }
+
+  @Override
+  public void phaseStarted(ConstrainPhase phase, @Nullable String subject) {
+    runningOperations.get().add(start(phase, subject));
+  }
+
+  @Nullable
+  private BuildOperationContext start(ConstrainPhase phase, @Nullable String subject) {
+    if (unsupported) {
+      return null;
+    }
+    try {
+      if (!isRunningBuildOperation()) {
+        return null;
+      }
+      String displayName =
+          subject == null ? phase.getDisplayName() : phase.getDisplayName() + " " + subject;
+      return buildOperationExecutor.start(BuildOperationDescriptor.displayName(displayName));
+    } catch (LinkageError e) {
+      disable(e);
+      return null;
+    }
+  }
+
+  private boolean isRunningBuildOperation() {
+    try {
+      return buildOperationExecutor.getCurrentOperation() != null;
+    } catch (IllegalStateException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public void phaseFinished(PhaseMetrics metrics) {
+    List<BuildOperationContext> operations = runningOperations.get();
+    BuildOperationContext operation = operations.remove(operations.size() - 1);
+    if (operation == null) {
+      return;
+    }
+    try {
+      operation.setStatus(metrics.getCount() + " constraints");
+      operation.setResult(null);
+    } catch (LinkageError e) {
+      disable(e);
+    }
+  }
+
+  private void disable(LinkageError e) {
+    if (!unsupported) {
+      unsupported = true;
+      LOGGER.debug(
+          "Not emitting build operations for the dependency constraints, this Gradle version"
+              + " doesn't support them",
+          e);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.dependency.constrain.lib.ConstrainService;
+
+/**
+ * Cancels the loadings of constraints still in progress when the build finishes, so that an aborted or failed build
+ * doesn't leave a loading running in the daemon.
+ * <p>
+ * Public so that Gradle can instantiate it, it isn't meant to be used by builds.
+ */
+public abstract class ConstraintsLoadCancellation
+    implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+  static final String NAME = "dependencyConstraintsLoadCancellation";
+
+  private final List<ConstrainService.Factory> loadingFactories = new CopyOnWriteArrayList<>();
+
+  void cancelOnClose(ConstrainService.Factory constrainServiceFactory) {
+    loadingFactories.add(constrainServiceFactory);
+  }
+
+  @Override
+  public void close() {
+    loadingFactories.forEach(ConstrainService.Factory::cancelLoading);
+    loadingFactories.clear();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.gradle.api.logging.Logger;
+import org.gradle.dependency.constrain.lib.ConstrainService;
+
+/**
+ * Runs the loading of the constraints in the background, and reports how much of the loading time was hidden behind
+ * the configuration of the build, ie. how long the loading ran before the build had to wait for it.
+ */
+final class ConstraintsLoadTimer {
+  private final Logger logger;
+  private final AtomicBoolean awaited = new AtomicBoolean();
+  private volatile long loadStartedAt;
+  private volatile long loadFinishedAt;
+
+  ConstraintsLoadTimer(Logger logger) {
+    this.logger = logger;
+  }
+
+  /**
+   * The executor loading the constraints with the given executor, while recording when the loading runs.
+   */
+  Executor executor(Executor delegate) {
+    return runnable ->
+        delegate.execute(
+            () -> {
+              loadStartedAt = System.nanoTime();
+              try {
+                runnable.run();
+              } finally {
+                loadFinishedAt = System.nanoTime();
+              }
+            });
+  }
+
+  /**
+   * Waits for the constraints to be loaded the first time they are needed, for at most the timeout, and reports the
+   * timing. Loading errors and timeouts are thrown by the constrain service.
+   *
+   * @return {@code true} for the call that waited, {@code false} for the following calls
+   */
+  boolean awaitLoaded(ConstrainService constrainService, Duration timeout) {
+    if (!awaited.compareAndSet(false, true)) {
+      return false;
+    }
+    long waitStartedAt = System.nanoTime();
+    constrainService.awaitLoaded(timeout);
+    long waitFinishedAt = System.nanoTime();
+    // The service can be completed just before the loader records that it finished
+    long finishedAt = loadFinishedAt != 0 ? loadFinishedAt : waitFinishedAt;
+    long hiddenNanos = Math.max(0, Math.min(finishedAt, waitStartedAt) - loadStartedAt);
+    logger.info(
+        "Dependency constraints loaded in {} ms, of which {} ms were hidden behind the evaluation"
+            + " of the settings (waited {} ms)",
+        TimeUnit.NANOSECONDS.toMillis(finishedAt - loadStartedAt),
+        TimeUnit.NANOSECONDS.toMillis(hiddenNanos),
+        TimeUnit.NANOSECONDS.toMillis(waitFinishedAt - waitStartedAt));
+    return true;
+  }
+}
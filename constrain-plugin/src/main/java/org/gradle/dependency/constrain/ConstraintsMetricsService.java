@@ -0,0 +1,96 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.Nullable;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainMetrics;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainMetricsListener;
+import org.gradle.dependency.constrain.lib.metrics.ConstrainMetricsReport;
+
+/**
+ * Registers the {@link ConstrainMetricsListener}s of the build for as long as the build runs, and writes the metrics
+ * report when the build finishes. The service is shared by the included builds, whose phases are recorded by the same
+ * listeners.
+ * <p>
+ * Public so that Gradle can instantiate it, it isn't meant to be used by builds.
+ */
+public abstract class ConstraintsMetricsService
+    implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+  static final String NAME = "dependencyConstraintsMetrics";
+  private static final Logger LOGGER = Logging.getLogger(ConstraintsMetricsService.class);
+
+  private final List<ConstrainMetricsListener> listeners = new CopyOnWriteArrayList<>();
+  @Nullable private ConstraintsBuildOperations buildOperations;
+  private boolean buildOperationsUnsupported;
+  @Nullable private ConstrainMetricsReport report;
+  @Nullable private File reportFile;
+
+  /**
+   * Surfaces the phases as build operations. Build operations are an internal Gradle API, so none are emitted when the
+   * running Gradle version doesn't provide the services used to emit them.
+   */
+  synchronized void emitBuildOperations(Gradle gradle) {
+    if (buildOperations != null || buildOperationsUnsupported) {
+      return;
+    }
+    try {
+      buildOperations = ConstraintsBuildOperations.of(gradle);
+    } catch (LinkageError | RuntimeException e) {
+      buildOperationsUnsupported = true;
+      LOGGER.debug(
+          "Not emitting build operations for the dependency constraints, this Gradle version"
+              + " doesn't support them",
+          e);
+      return;
+    }
+    register(buildOperations);
+  }
+
+  /**
+   * Records the metrics of the build, to be written to the report file when the build finishes.
+   */
+  synchronized void writeReport(File reportFile) {
+    if (report == null) {
+      report = new ConstrainMetricsReport();
+      this.reportFile = reportFile;
+      register(report);
+    }
+  }
+
+  private void register(ConstrainMetricsListener listener) {
+    listeners.add(listener);
+    ConstrainMetrics.addListener(listener);
+  }
+
+  @Override
+  public synchronized void close() {
+    listeners.forEach(ConstrainMetrics::removeListener);
+    listeners.clear();
+    if (report != null && reportFile != null) {
+      report.writeTo(reportFile);
+      LOGGER.info("Dependency constraints metrics written to {}", reportFile);
+    }
+  }
+}
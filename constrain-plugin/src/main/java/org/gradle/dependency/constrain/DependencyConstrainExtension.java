@@ -0,0 +1,63 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.dependency.constrain;
+
+import java.time.Duration;
+import org.gradle.api.provider.Property;
+
+/**
+ * Settings extension used to configure how the dependency constraints are applied to the build.
+ */
+public abstract class DependencyConstrainExtension {
+  public static final String NAME = "dependencyConstrain";
+  public static final String LOAD_ASYNCHRONOUSLY_PROPERTY = "dependencyConstrain.loadAsynchronously";
+  /**
+   * The Gradle property writing the time and the memory spent loading and applying the constraints to {@code
+   * build/reports/dependency-constraints/metrics.json} when the build finishes, when set to {@code true}.
+   */
+  public static final String METRICS_REPORT_PROPERTY = "dependencyConstrain.metricsReport";
+
+  public static final Duration DEFAULT_LOAD_TIMEOUT = Duration.ofMinutes(5);
+
+  /**
+   * When enabled, the constraints are not registered on every configuration while the projects are configured.
+   * Instead, they are only added to a configuration right before it is resolved, so the configurations which are never
+   * resolved don't get any. A resolved configuration gets all the constraints, not only the ones of its modules. The
+   * configurations which can be consumed, eg. {@code apiElements}, get the constraints once their project is
+   * evaluated, so the resolved dependencies and the published metadata are the same as when they are registered
+   * eagerly.
+   * This reduces configuration time and memory for large builds. Defaults to {@code false}.
+   */
+  public abstract Property<Boolean> getApplyLazily();
+
+  /**
+   * When enabled, the constraints are loaded in the background as soon as the plugin is applied, and the build only
+   * waits for them when they are first applied to a project. Defaults to {@code true}.
+   * <p>
+   * The loading starts before the settings script configures this extension. When it is disabled from the settings
+   * script, the build waits for the loading at the end of the settings evaluation, so that nothing is loaded while
+   * the projects are configured. To not start loading in the background at all, set the
+   * {@value #LOAD_ASYNCHRONOUSLY_PROPERTY} Gradle property to {@code false}.
+   */
+  public abstract Property<Boolean> getLoadAsynchronously();
+
+  /**
+   * How long the build waits for the constraints loaded in the background before failing, eg. when the constraints
+   * file is on a stalled network file system. The loading is cancelled when it times out. Defaults to 5 minutes.
+   */
+  public abstract Property<Duration> getLoadTimeout();
+}
@@ -4,20 +4,39 @@
 package org.gradle.dependency.constrain;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import javax.annotation.Nonnull;
 import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.initialization.Settings;
 import org.gradle.api.invocation.Gradle;
-import org.gradle.dependency.constrain.lib.ConfigurationConstrainService;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.dependency.constrain.lib.ConstrainService;
+import org.gradle.dependency.constrain.lib.ConstraintsLoadExecutors;
+import org.gradle.dependency.constrain.lib.DependencyConstraintFactory;
+import org.gradle.dependency.constrain.lib.serialize.ConstrainFileLoader;
+import org.gradle.dependency.constrain.lib.serialize.ConstraintsValidation;
+import org.gradle.dependency.constrain.lib.serialize.InMemoryConstraintsCache;
+import org.gradle.language.base.plugins.LifecycleBasePlugin;
 
 /**
  * Plugin that applies dependency constraints to the build from an external configuration file.
  */
 @SuppressWarnings("unused")
 public abstract class GradleDependencyConstrainPlugin implements Plugin<Object> {
+  private static final Logger LOGGER = Logging.getLogger(GradleDependencyConstrainPlugin.class);
+  /** The plugins publishing build scans, which record the build operations even without {@code --scan}. */
+  private static final List<String> BUILD_SCAN_PLUGIN_IDS =
+      Arrays.asList("com.gradle.enterprise", "com.gradle.develocity");
 
   private static String pluginApplicationTargetDisplayName(@Nonnull Object object) {
     if (object instanceof Project) {
@@ -43,15 +62,230 @@ public abstract class GradleDependencyConstrainPlugin implements Plugin<Object>
   }
 
   private void doApply(Settings settings) {
-    ConfigurationConstrainService constraintService =
-        ConstrainService.Factory.loadAndCreate(new File(settings.getRootDir(), "/gradle"))
-            .create(settings.getBuildscript().getDependencies().getConstraints()::create);
+    DependencyConstrainExtension extension =
+        settings
+            .getExtensions()
+            .create(DependencyConstrainExtension.NAME, DependencyConstrainExtension.class);
+    recordMetrics(settings);
+    extension.getApplyLazily().convention(false);
+    extension
+        .getLoadAsynchronously()
+        .convention(
+            settings
+                .getProviders()
+                .gradleProperty(DependencyConstrainExtension.LOAD_ASYNCHRONOUSLY_PROPERTY)
+                .forUseAtConfigurationTime()
+                .map(Boolean::parseBoolean)
+                .orElse(true));
+    extension.getLoadTimeout().convention(DependencyConstrainExtension.DEFAULT_LOAD_TIMEOUT);
+    File projectGradleDirectory = new File(settings.getRootDir(), "/gradle");
+    ConstraintsLoadTimer loadTimer;
+    ConstrainService.Factory constrainServiceFactory;
+    // Only the Gradle property can be known when the plugin is applied, before the settings script runs
+    if (extension.getLoadAsynchronously().get()) {
+      loadTimer = new ConstraintsLoadTimer(LOGGER);
+      constrainServiceFactory =
+          ConstrainService.Factory.loadAndCreateAsync(
+              projectGradleDirectory,
+              projectCacheDirectory(settings),
+              loadTimer.executor(ConstraintsLoadExecutors.defaultExecutor()));
+      settings
+          .getGradle()
+          .getSharedServices()
+          .registerIfAbsent(
+              ConstraintsLoadCancellation.NAME, ConstraintsLoadCancellation.class, spec -> {})
+          .get()
+          .cancelOnClose(constrainServiceFactory);
+    } else {
+      loadTimer = null;
+      constrainServiceFactory =
+          ConstrainService.Factory.loadAndCreate(
+              projectGradleDirectory, projectCacheDirectory(settings));
+      logInMemoryCacheStatistics();
+    }
+    // The extension is configured by the settings script, after the plugin was applied
+    settings
+        .getGradle()
+        .settingsEvaluated(
+            evaluatedSettings -> {
+              DependencyConstraintFactory constraintFactory =
+                  settings.getBuildscript().getDependencies().getConstraints()::create;
+              ConstrainService constraintService =
+                  extension.getApplyLazily().get()
+                      ? constrainServiceFactory.createLazy(constraintFactory)
+                      : constrainServiceFactory.create(constraintFactory);
+              if (loadTimer != null && !extension.getLoadAsynchronously().get()) {
+                awaitLoaded(loadTimer, constraintService, extension);
+              }
+              settings
+                  .getGradle()
+                  .allprojects(
+                      project -> {
+                        if (loadTimer != null) {
+                          awaitLoaded(loadTimer, constraintService, extension);
+                        }
+                        constraintService.doConstrain(project.getBuildscript().getConfigurations());
+                        constraintService.doConstrain(project.getConfigurations());
+                        project.afterEvaluate(
+                            evaluatedProject ->
+                                constraintService.doConstrainConsumable(
+                                    evaluatedProject.getConfigurations()));
+                        registerAuditTask(project, projectGradleDirectory, projectCacheDirectory(settings));
+                      });
+            });
+    settings
+        .getGradle()
+        .rootProject(
+            project ->
+                registerValidationTask(
+                    project, projectGradleDirectory, projectCacheDirectory(settings)));
+  }
+
+  /**
+   * Registers the metrics listeners before anything is loaded, so that the loading in the background is recorded.
+   */
+  private static void recordMetrics(Settings settings) {
+    ConstraintsMetricsService metricsService =
+        settings
+            .getGradle()
+            .getSharedServices()
+            .registerIfAbsent(
+                ConstraintsMetricsService.NAME, ConstraintsMetricsService.class, spec -> {})
+            .get();
+    // Only measured for the build operations when a build scan or a profile records them
+    if (settings.getStartParameter().isBuildScan() || settings.getStartParameter().isProfile()) {
+      metricsService.emitBuildOperations(settings.getGradle());
+    }
     settings
         .getGradle()
-        .allprojects(
-            project -> {
-              constraintService.doConstrain(project.getBuildscript().getConfigurations());
-              constraintService.doConstrain(project.getConfigurations());
+        .settingsEvaluated(
+            evaluatedSettings -> {
+              if (BUILD_SCAN_PLUGIN_IDS.stream()
+                  .anyMatch(evaluatedSettings.getPluginManager()::hasPlugin)) {
+                metricsService.emitBuildOperations(evaluatedSettings.getGradle());
+              }
+            });
+    boolean metricsReport =
+        settings
+            .getProviders()
+            .gradleProperty(DependencyConstrainExtension.METRICS_REPORT_PROPERTY)
+            .forUseAtConfigurationTime()
+            .map(Boolean::parseBoolean)
+            .getOrElse(false);
+    if (metricsReport) {
+      metricsService.writeReport(
+          new File(settings.getRootDir(), "build/reports/dependency-constraints/metrics.json"));
+    }
+  }
+
+  /**
+   * Waits for the constraints loaded in the background, the first time they are needed.
+   */
+  private static void awaitLoaded(
+      ConstraintsLoadTimer loadTimer,
+      ConstrainService constraintService,
+      DependencyConstrainExtension extension) {
+    if (loadTimer.awaitLoaded(constraintService, extension.getLoadTimeout().get())) {
+      logInMemoryCacheStatistics();
+    }
+  }
+
+  private static void registerValidationTask(
+      Project project, File projectGradleDirectory, File projectCacheDirectory) {
+    TaskProvider<ValidateDependencyConstraints> validationTask =
+        project
+            .getTasks()
+            .register(
+                ValidateDependencyConstraints.NAME,
+                ValidateDependencyConstraints.class,
+                task -> {
+                  task.setGroup(LifecycleBasePlugin.VERIFICATION_GROUP);
+                  task.setDescription(
+                      "Validates the dependency constraints files, so that they are not validated"
+                          + " again when they are loaded.");
+                  task.getConstraintsFiles().from(constraintsFiles(project, projectGradleDirectory));
+                  task.getSchemaDigest().set(ConstraintsValidation.schemaDigest());
+                  task.getRecordsDirectory()
+                      .set(ConstraintsValidation.recordsDirectory(projectCacheDirectory));
+                });
+    project
+        .getPlugins()
+        .withType(
+            LifecycleBasePlugin.class,
+            plugin ->
+                project
+                    .getTasks()
+                    .named(LifecycleBasePlugin.CHECK_TASK_NAME)
+                    .configure(check -> check.dependsOn(validationTask)));
+  }
+
+  private static FileCollection constraintsFiles(Project project, File projectGradleDirectory) {
+    return project.fileTree(
+        projectGradleDirectory,
+        files -> files.include(ConstrainFileLoader.constraintsFilePatterns()));
+  }
+
+  private static void registerAuditTask(
+      Project project, File projectGradleDirectory, File projectCacheDirectory) {
+    Provider<ConstraintsAuditService> auditService =
+        project
+            .getGradle()
+            .getSharedServices()
+            .registerIfAbsent(ConstraintsAuditService.NAME, ConstraintsAuditService.class, spec -> {});
+    project
+        .getTasks()
+        .register(
+            AuditDependencyConstraints.NAME,
+            AuditDependencyConstraints.class,
+            task -> {
+              task.setGroup(LifecycleBasePlugin.VERIFICATION_GROUP);
+              task.setDescription(
+                  "Reports the resolved dependencies rejected by the dependency constraints.");
+              task.getConstraintsDirectory().set(projectGradleDirectory);
+              task.getConstraintsFiles().from(constraintsFiles(project, projectGradleDirectory));
+              task.getProjectCacheDirectory().set(projectCacheDirectory);
+              task.getProjectPath().set(project.getPath());
+              task.getAuditService().set(auditService);
+              project
+                  .getConfigurations()
+                  .all(
+                      configuration ->
+                          task.getResolvedComponents()
+                              .putAll(
+                                  project.provider(
+                                      () -> resolvedComponents(configuration))));
+              task.getReportFile()
+                  .convention(
+                      project
+                          .getLayout()
+                          .getBuildDirectory()
+                          .file("reports/dependency-constraints/audit.json"));
             });
   }
+
+  /**
+   * Resolves the given configuration for the audit, unless it's a legacy configuration which can also be consumed, eg.
+   * {@code default} or {@code archives}. The roles are checked once the configuration is fully configured.
+   */
+  private static Map<String, List<String>> resolvedComponents(Configuration configuration) {
+    if (!configuration.isCanBeResolved() || configuration.isCanBeConsumed()) {
+      return Collections.emptyMap();
+    }
+    return Collections.singletonMap(
+        configuration.getName(),
+        AuditDependencyConstraints.resolvedComponents(configuration.getIncoming()));
+  }
+
+  private static void logInMemoryCacheStatistics() {
+    InMemoryConstraintsCache inMemoryCache = InMemoryConstraintsCache.getInstance();
+    LOGGER.info(
+        "Dependency constraints in-memory cache: {} hits, {} misses",
+        inMemoryCache.getHitCount(),
+        inMemoryCache.getMissCount());
+  }
+
+  private static File projectCacheDirectory(Settings settings) {
+    File projectCacheDir = settings.getStartParameter().getProjectCacheDir();
+    return projectCacheDir != null ? projectCacheDir : new File(settings.getRootDir(), ".gradle");
+  }
 }
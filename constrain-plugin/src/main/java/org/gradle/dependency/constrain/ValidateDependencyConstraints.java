@@ -0,0 +1,69 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.dependency.constrain;
+
+import java.io.File;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.dependency.constrain.lib.serialize.ConstraintsValidation;
+
+/**
+ * Validates the constraints files against the schema, their canonical formatting and their sort order, and records
+ * their contents as validated in the project cache directory. The following builds then load the constraints of a
+ * recorded content at settings time with a trusted parse, without validating them again.
+ * <p>
+ * The task is cacheable, so that a content is validated once, eg. by the first CI job building it, and its record is
+ * loaded from the build cache by the other builds.
+ */
+@CacheableTask
+public abstract class ValidateDependencyConstraints extends DefaultTask {
+  static final String NAME = "validateDependencyConstraints";
+
+  @InputFiles
+  @SkipWhenEmpty
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public abstract ConfigurableFileCollection getConstraintsFiles();
+
+  /**
+   * The digest of the schema and of the rules the constraints are validated with.
+   */
+  @Input
+  public abstract Property<String> getSchemaDigest();
+
+  /**
+   * The records of the validated contents, see {@link ConstraintsValidation}.
+   */
+  @OutputDirectory
+  public abstract DirectoryProperty getRecordsDirectory();
+
+  @TaskAction
+  void validate() {
+    File recordsDirectory = getRecordsDirectory().get().getAsFile();
+    for (File constraintsFile : getConstraintsFiles()) {
+      ConstraintsValidation.validate(constraintsFile, recordsDirectory);
+    }
+  }
+}
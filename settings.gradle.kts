@@ -2,6 +2,7 @@ pluginManagement {
     plugins {
         id("com.github.johnrengelman.shadow") version "7.1.0"
         id("com.diffplug.spotless") version "6.0.0"
+        id("me.champeau.jmh") version "0.6.6"
     }
 }
 plugins {
@@ -31,5 +32,6 @@ rootProject.name = "gradle-dependency-constrain"
 includeBuild("constrain-build-logic")
 include("constrain-lib")
 include("constrain-plugin")
+include("constrain-benchmarks")
 
 enableFeaturePreview("VERSION_CATALOGS")